@@ -1,10 +1,26 @@
 package io.sportpoll.bot;
 
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
+import org.telegram.telegrambots.meta.api.methods.updates.DeleteWebhook;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import io.sportpoll.bot.persistance.BotDatabase;
 import io.sportpoll.bot.persistance.DataStore;
 import io.sportpoll.bot.config.Config;
 import io.sportpoll.bot.constants.Messages;
+import io.sportpoll.bot.services.OutboundScheduler;
+import io.sportpoll.bot.services.PollRegistry;
+import io.sportpoll.bot.services.ResilientTelegramClient;
 import io.sportpoll.bot.services.TelegramClientService;
+import io.sportpoll.bot.services.TelegramTransport;
+import io.sportpoll.bot.services.UpdateDispatcher;
+import io.sportpoll.bot.services.WebhookServer;
 
 public class Main {
     public static void main(String[] args) {
@@ -18,13 +34,86 @@ public class Main {
 
     private static void runBotInstance() throws Exception {
         DataStore.getInstance().setupShutdownHook();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> logStats()));
+        DataStore.getInstance().preload();
+        DataStore.getInstance().startFlusher(Config.getInstance().dataFlushIntervalMillis);
+        startStatsLog(Config.getInstance().statsLogIntervalMillis);
+        if (Config.getInstance().webhookUrl != null) runWebhook();
+        else runLongPolling();
+    }
+
+    private static void runLongPolling() throws Exception {
         try (TelegramBotsLongPollingApplication botsApplication = new TelegramBotsLongPollingApplication()) {
             Config config = Config.getInstance();
-            SportPollBot bot = new SportPollBot(TelegramClientService.getInstance(), "SportPollBot");
-            botsApplication.registerBot(config.botToken, bot);
+            TelegramClient client = TelegramClientService.getInstance();
+            // getUpdates is refused while a webhook from an earlier run is still set
+            client.execute(DeleteWebhook.builder().build());
+            SportPollBot bot = new SportPollBot(client, BotDatabase.DEFAULT_NAME);
+            PollRegistry pollRegistry = DataStore.getInstance().get(PollRegistry.class);
+            UpdateDispatcher dispatcher = UpdateDispatcher.fromConfig(config, pollRegistry, bot::consume);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> stopDispatcher(dispatcher)));
+            botsApplication.registerBot(config.botToken, updates -> {
+                try {
+                    for (Update update : updates)
+                        dispatcher.submit(update);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
             System.out.println(Messages.BOT_STARTED);
             System.out.println("Bot is ready and listening for updates...");
             Thread.currentThread().join();
         }
     }
-}
\ No newline at end of file
+
+    private static void runWebhook() throws Exception {
+        Config config = Config.getInstance();
+        TelegramClient client = TelegramClientService.getInstance();
+        SportPollBot bot = new SportPollBot(client, BotDatabase.DEFAULT_NAME);
+        PollRegistry pollRegistry = DataStore.getInstance().get(PollRegistry.class);
+        UpdateDispatcher dispatcher = UpdateDispatcher.fromConfig(config, pollRegistry, bot::consume);
+        String secret = config.webhookSecret != null ? config.webhookSecret : WebhookServer.generateSecretToken();
+        WebhookServer server = new WebhookServer((int) config.webhookPort, config.webhookPath, secret, dispatcher);
+        server.start();
+        // Shutdown hooks run in no particular order, so one hook stops intake before draining
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            stopDispatcher(dispatcher);
+        }));
+        client.execute(SetWebhook.builder().url(config.webhookUrl).secretToken(secret).build());
+        System.out.println(Messages.BOT_STARTED);
+        System.out.println("Bot is ready and receiving updates on port " + server.getPort() + config.webhookPath);
+        Thread.currentThread().join();
+    }
+
+    private static void startStatsLog(long intervalMillis) {
+        if (intervalMillis <= 0) return;
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(Main::logStats, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // The client parts are null until the first real client has been created
+    private static void logStats() {
+        StringJoiner stats = new StringJoiner(System.lineSeparator());
+        stats.add(DataStore.getInstance().flushSummary());
+        TelegramTransport transport = TelegramClientService.getTransport();
+        if (transport != null) stats.add(transport.summary());
+        OutboundScheduler scheduler = TelegramClientService.getScheduler();
+        if (scheduler != null) stats.add(scheduler.summary());
+        ResilientTelegramClient resilient = TelegramClientService.getResilientClient();
+        if (resilient != null) stats.add(resilient.summary());
+        System.out.println(stats);
+    }
+
+    private static void stopDispatcher(UpdateDispatcher dispatcher) {
+        try {
+            dispatcher.stop(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
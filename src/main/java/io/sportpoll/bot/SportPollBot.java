@@ -8,19 +8,18 @@ import org.telegram.telegrambots.abilitybots.api.objects.Flag;
 import org.telegram.telegrambots.abilitybots.api.objects.Reply;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
 
 import io.sportpoll.bot.config.Config;
 import io.sportpoll.bot.config.CustomAbilityToggle;
 import io.sportpoll.bot.constants.Messages;
 import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
 import io.sportpoll.bot.services.WeeklyPollScheduler;
 import io.sportpoll.bot.utils.MessageUtils;
 import io.sportpoll.bot.utils.ExceptionHandler;
+import io.sportpoll.bot.persistance.BotDatabase;
 import io.sportpoll.bot.persistance.DataStore;
 
-import java.io.File;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -29,20 +28,26 @@ import static org.telegram.telegrambots.abilitybots.api.objects.Locality.*;
 import static org.telegram.telegrambots.abilitybots.api.objects.Privacy.*;
 
 public class SportPollBot extends AbilityBot {
-    private final PollManager pollManager;
+    private final PollRegistry pollRegistry;
     private final ScheduledExecutorService scheduler;
     private final Config config;
 
     public SportPollBot(TelegramClient telegramClient, String botUsername) {
-        this(telegramClient, botUsername, DataStore.getInstance().get(PollManager.class),
+        this(telegramClient, botUsername, DataStore.getInstance().get(PollRegistry.class),
             DataStore.getInstance().get(WeeklyPollScheduler.class), Config.getInstance(),
             Executors.newScheduledThreadPool(1));
     }
 
     public SportPollBot(TelegramClient telegramClient, String botUsername, PollManager pollManager,
+        WeeklyPollScheduler weeklyPollScheduler, Config config, ScheduledExecutorService scheduler) {
+        this(telegramClient, botUsername, singlePollRegistry(config.targetGroupChatId, pollManager),
+            weeklyPollScheduler, config, scheduler);
+    }
+
+    public SportPollBot(TelegramClient telegramClient, String botUsername, PollRegistry pollRegistry,
         WeeklyPollScheduler weeklyPollScheduler, Config config, ScheduledExecutorService scheduler) {
         super(telegramClient, botUsername, createDatabaseContext(botUsername), new CustomAbilityToggle());
-        this.pollManager = pollManager;
+        this.pollRegistry = pollRegistry;
         this.config = config;
         this.scheduler = scheduler;
         weeklyPollScheduler.initialize();
@@ -50,64 +55,14 @@ public class SportPollBot extends AbilityBot {
         startBackgroundTasks();
     }
 
-    private static DBContext createDatabaseContext(String botUsername) {
-        String dbDir = getDatabaseDirectory();
-        String dbPath = dbDir + File.separator + botUsername;
-
-        DB db = DBMaker.fileDB(dbPath).fileMmapEnableIfSupported().closeOnJvmShutdown().transactionEnable().make();
-
-        return new MapDBContext(db);
-    }
-
-    private static String getDatabaseDirectory() {
-        String dbDir = System.getenv("BOT_DATABASE_DIR");
-        if (dbDir == null || dbDir.trim().isEmpty()) {
-            dbDir = System.getProperty("bot.database.dir");
-        }
-        if (dbDir == null || dbDir.trim().isEmpty()) {
-            dbDir = isTestEnvironment() ? getTestDatabaseDirectory() : "data";
-        }
-
-        File dataDir = new File(dbDir);
-        if (!dataDir.exists()) {
-            dataDir.mkdirs();
-        }
-
-        if (!dataDir.canWrite()) {
-            String tempDir = System.getProperty("java.io.tmpdir") + File.separator + "sportpoll-db";
-            File tempDataDir = new File(tempDir);
-            if (!tempDataDir.exists()) {
-                tempDataDir.mkdirs();
-            }
-            return tempDataDir.getAbsolutePath();
-        }
-
-        return dataDir.getAbsolutePath();
+    private static PollRegistry singlePollRegistry(long chatId, PollManager pollManager) {
+        PollRegistry registry = new PollRegistry(chatId);
+        registry.register(chatId, pollManager);
+        return registry;
     }
 
-    private static boolean isTestEnvironment() {
-        return Thread.currentThread().getStackTrace().length > 0
-            && java.util.Arrays.stream(Thread.currentThread().getStackTrace())
-                .anyMatch(elem -> elem.getClassName().contains("Test") || elem.getClassName().contains("junit"));
-    }
-
-    private static String getTestDatabaseDirectory() {
-        if (Thread.currentThread().getStackTrace().length > 0) {
-            String testClass = java.util.Arrays.stream(Thread.currentThread().getStackTrace())
-                .filter(elem -> elem.getClassName().contains("Test"))
-                .findFirst()
-                .map(StackTraceElement::getClassName)
-                .orElse("");
-
-            if (testClass.contains("Integration")) {
-                return "target" + File.separator + "test-db-integration";
-            } else if (testClass.contains("Comprehensive")) {
-                return "target" + File.separator + "test-db-comprehensive";
-            } else {
-                return "target" + File.separator + "test-db";
-            }
-        }
-        return "target" + File.separator + "test-db";
+    private static DBContext createDatabaseContext(String botUsername) {
+        return new MapDBContext(BotDatabase.open(botUsername));
     }
 
     @Override
@@ -123,13 +78,13 @@ public class SportPollBot extends AbilityBot {
             .privacy(PUBLIC)
             .action(ctx -> {
                 if (isAdmin(ctx.user().getId())) {
-                    if (ctx.chatId() != config.targetGroupChatId) {
-                        ExceptionHandler.handle(() -> MessageUtils.routeUpdate(ctx.update(), pollManager));
+                    if (!pollRegistry.hasPoll(ctx.chatId())) {
+                        ExceptionHandler.handle(() -> MessageUtils.routeUpdate(ctx.update(), pollRegistry));
                     } else {
                         getSilent().send(Messages.GROUP_WELCOME, ctx.chatId());
                     }
                 } else {
-                    if (ctx.chatId() != config.targetGroupChatId) {
+                    if (!pollRegistry.hasPoll(ctx.chatId())) {
                         String welcomeMessage = String.format(Messages.USER_WELCOME, ctx.user().getFirstName());
                         getSilent().send(welcomeMessage, ctx.chatId());
                     }
@@ -139,29 +94,31 @@ public class SportPollBot extends AbilityBot {
     }
 
     public Reply voteReply() {
-        return Reply.of((bot, upd) -> ExceptionHandler.handle(() -> pollManager.handleVoteCommand(upd)),
+        return Reply.of(
+            (bot, upd) -> ExceptionHandler
+                .handle(() -> pollRegistry.execute(upd.getMessage().getChatId(), pm -> pm.handleVoteCommand(upd))),
             Flag.TEXT,
-            upd -> upd.getMessage().getText().startsWith("/+")
-                && upd.getMessage().getChatId().equals(config.targetGroupChatId));
+            upd -> upd.getMessage().getText().startsWith("/+") && pollRegistry.hasPoll(upd.getMessage().getChatId()));
     }
 
     public Reply revokeReply() {
-        return Reply.of((bot, upd) -> ExceptionHandler.handle(() -> pollManager.handleRevokeCommand(upd)),
+        return Reply.of(
+            (bot, upd) -> ExceptionHandler
+                .handle(() -> pollRegistry.execute(upd.getMessage().getChatId(), pm -> pm.handleRevokeCommand(upd))),
             Flag.TEXT,
-            upd -> upd.getMessage().getText().startsWith("/-")
-                && upd.getMessage().getChatId().equals(config.targetGroupChatId));
+            upd -> upd.getMessage().getText().startsWith("/-") && pollRegistry.hasPoll(upd.getMessage().getChatId()));
     }
 
     public Reply callbackQueryReply() {
-        return Reply.of((bot, upd) -> ExceptionHandler.handle(() -> MessageUtils.routeUpdate(upd, pollManager)),
+        return Reply.of((bot, upd) -> ExceptionHandler.handle(() -> MessageUtils.routeUpdate(upd, pollRegistry)),
             Flag.CALLBACK_QUERY);
     }
 
     public Reply adminMessageReply() {
-        return Reply.of((bot, upd) -> ExceptionHandler.handle(() -> MessageUtils.routeUpdate(upd, pollManager)),
+        return Reply.of((bot, upd) -> ExceptionHandler.handle(() -> MessageUtils.routeUpdate(upd, pollRegistry)),
             Flag.TEXT,
             upd -> isAdmin(upd.getMessage().getFrom().getId())
-                && upd.getMessage().getChatId() != config.targetGroupChatId
+                && !pollRegistry.hasPoll(upd.getMessage().getChatId())
                 && !upd.getMessage().getText().startsWith("/"));
     }
 
@@ -172,7 +129,7 @@ public class SportPollBot extends AbilityBot {
     private void startBackgroundTasks() {
         scheduler.scheduleAtFixedRate(() -> {
             try {
-                pollManager.checkMondayClose();
+                pollRegistry.executeForAll(PollManager::checkMondayClose);
             } catch (TelegramApiException e) {
                 e.printStackTrace();
             }
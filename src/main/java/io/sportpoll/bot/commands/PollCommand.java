@@ -4,7 +4,6 @@ import io.sportpoll.bot.services.PollManager;
 import io.sportpoll.bot.services.TelegramClientService;
 import org.telegram.telegrambots.meta.api.methods.polls.SendPoll;
 import org.telegram.telegrambots.meta.api.objects.polls.input.InputPollOption;
-import io.sportpoll.bot.config.Config;
 import java.util.Arrays;
 
 public class PollCommand {
@@ -37,7 +36,7 @@ public class PollCommand {
 
             var result = sendPoll(question, positiveOption, negativeOption);
             if (result.success()) {
-                pollManager.initializePoll(targetVotes, result.messageId());
+                pollManager.initializePoll(targetVotes, result.messageId(), result.pollId());
                 return PollCreationResult.success("Poll created successfully", result.messageId());
             } else {
                 return PollCreationResult.error(result.message());
@@ -47,12 +46,12 @@ public class PollCommand {
         }
     }
 
-    private record SendPollResult(boolean success, String message, int messageId) {
+    private record SendPollResult(boolean success, String message, int messageId, String pollId) {
     }
 
     private SendPollResult sendPoll(String question, String positiveOption, String negativeOption) {
         try {
-            long targetGroupId = Config.getInstance().targetGroupChatId;
+            long targetGroupId = pollManager.getChatId();
 
             var poll = SendPoll.builder()
                 .chatId(String.valueOf(targetGroupId))
@@ -65,12 +64,13 @@ public class PollCommand {
 
             var response = TelegramClientService.getInstance().execute(poll);
             if (response != null && response.getMessageId() != 0) {
-                return new SendPollResult(true, "Poll sent", response.getMessageId());
+                String pollId = response.getPoll() != null ? response.getPoll().getId() : null;
+                return new SendPollResult(true, "Poll sent", response.getMessageId(), pollId);
             } else {
-                return new SendPollResult(false, "Invalid response from Telegram API", 0);
+                return new SendPollResult(false, "Invalid response from Telegram API", 0, null);
             }
         } catch (Exception e) {
-            return new SendPollResult(false, e.getMessage(), 0);
+            return new SendPollResult(false, e.getMessage(), 0, null);
         }
     }
 
@@ -1,5 +1,6 @@
 package io.sportpoll.bot.config;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -9,12 +10,43 @@ public class Config {
     public final String botToken;
     public final List<Long> adminUserIds;
     public final long targetGroupChatId;
+    // Every group the bot runs polls in: TARGET_GROUP_CHAT_ID first, then POLL_GROUP_CHAT_IDS
+    public final List<Long> groupChatIds;
     public final String logLevel;
+    public final long statusFlushIntervalMillis = getOptionalLong("STATUS_FLUSH_INTERVAL_MS", 3000);
+    public final long dataFlushIntervalMillis = getOptionalLong("DATA_FLUSH_INTERVAL_MS", 30000);
+    // How often the data flush and Telegram client stats are logged; 0 only logs them at shutdown
+    public final long statsLogIntervalMillis = getOptionalLong("STATS_LOG_INTERVAL_MS", 900000);
+    public final double outboundGlobalPerSecond = getOptionalDouble("OUTBOUND_GLOBAL_PER_SECOND", 30);
+    public final double outboundGroupPerMinute = getOptionalDouble("OUTBOUND_GROUP_PER_MINUTE", 20);
+    public final double outboundChatPerSecond = getOptionalDouble("OUTBOUND_CHAT_PER_SECOND", 1);
+    public final long telegramMaxAttempts = getOptionalLong("TELEGRAM_MAX_ATTEMPTS", 4);
+    public final long telegramRetryBaseMillis = getOptionalLong("TELEGRAM_RETRY_BASE_MS", 250);
+    public final long telegramRetryMaxMillis = getOptionalLong("TELEGRAM_RETRY_MAX_MS", 4000);
+    public final long telegramBreakerThreshold = getOptionalLong("TELEGRAM_BREAKER_THRESHOLD", 5);
+    public final long telegramBreakerCooldownMillis = getOptionalLong("TELEGRAM_BREAKER_COOLDOWN_MS", 30000);
+    public final long telegramPoolSize = getOptionalLong("TELEGRAM_POOL_SIZE", 5);
+    public final long telegramKeepAliveMillis = getOptionalLong("TELEGRAM_KEEP_ALIVE_MS", 300000);
+    public final long telegramMaxRequestsPerHost = getOptionalLong("TELEGRAM_MAX_REQUESTS_PER_HOST", 5);
+    public final long telegramConnectTimeoutMillis = getOptionalLong("TELEGRAM_CONNECT_TIMEOUT_MS", 10000);
+    public final long telegramReadTimeoutMillis = getOptionalLong("TELEGRAM_READ_TIMEOUT_MS", 30000);
+    public final boolean telegramHttp2 = Boolean.parseBoolean(getOptional("TELEGRAM_HTTP2", "true"));
+    // Base URL of a local Bot API server, e.g. http://localhost:8081; unset means api.telegram.org
+    public final String telegramApiUrl = getOptional("TELEGRAM_API_URL", null);
+    // Public HTTPS URL Telegram should post updates to; unset means long polling
+    public final String webhookUrl = getOptional("WEBHOOK_URL", null);
+    public final long webhookPort = getOptionalLong("WEBHOOK_PORT", 8080);
+    public final String webhookPath = getOptional("WEBHOOK_PATH", "/webhook");
+    // Generated at startup when unset
+    public final String webhookSecret = getOptional("WEBHOOK_SECRET", null);
+    public final long updatePartitions = getOptionalLong("UPDATE_PARTITIONS", 16);
+    public final long updateQueueCapacity = getOptionalLong("UPDATE_QUEUE_CAPACITY", 100);
 
     public Config(String botToken, List<Long> adminUserIds, long targetGroupChatId, String logLevel) {
         this.botToken = botToken;
         this.adminUserIds = adminUserIds;
         this.targetGroupChatId = targetGroupChatId;
+        this.groupChatIds = groupChatIds(targetGroupChatId, getOptional("POLL_GROUP_CHAT_IDS", ""));
         this.logLevel = logLevel;
     }
 
@@ -37,7 +69,7 @@ public class Config {
 
     private static Config load() {
         String botToken = getRequired("BOT_TOKEN");
-        List<Long> adminUserIds = parseUserIds(getRequired("ADMIN_USER_IDS"));
+        List<Long> adminUserIds = parseIds(getRequired("ADMIN_USER_IDS"));
         long targetGroupChatId = Long.parseLong(getRequired("TARGET_GROUP_CHAT_ID"));
         String logLevel = getOptional("LOG_LEVEL", "INFO");
         return new Config(botToken, adminUserIds, targetGroupChatId, logLevel);
@@ -62,7 +94,24 @@ public class Config {
         return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
     }
 
-    private static List<Long> parseUserIds(String userIdsStr) {
-        return Arrays.stream(userIdsStr.split(",")).map(String::trim).map(Long::parseLong).toList();
+    private static long getOptionalLong(String key, long defaultValue) {
+        return Long.parseLong(getOptional(key, String.valueOf(defaultValue)));
+    }
+
+    private static double getOptionalDouble(String key, double defaultValue) {
+        return Double.parseDouble(getOptional(key, String.valueOf(defaultValue)));
+    }
+
+    private static List<Long> parseIds(String idsStr) {
+        return Arrays.stream(idsStr.split(",")).map(String::trim).map(Long::parseLong).toList();
+    }
+
+    private static List<Long> groupChatIds(long targetGroupChatId, String extraIds) {
+        List<Long> ids = new ArrayList<>(List.of(targetGroupChatId));
+        if (!extraIds.isBlank()) {
+            for (long id : parseIds(extraIds))
+                if (!ids.contains(id)) ids.add(id);
+        }
+        return List.copyOf(ids);
     }
 }
@@ -4,8 +4,9 @@ import java.io.Serializable;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import io.sportpoll.bot.constants.UIText;
+import io.sportpoll.bot.persistance.Versioned;
 
-public class WeeklyPollConfig implements Serializable {
+public class WeeklyPollConfig implements Serializable, Versioned {
     private String question;
     private String positiveOption;
     private String negativeOption;
@@ -13,6 +14,7 @@ public class WeeklyPollConfig implements Serializable {
     private DayOfWeek dayOfWeek;
     private LocalTime startTime;
     private boolean enabled;
+    private transient volatile long modificationVersion;
 
     public WeeklyPollConfig() {
         this.question = UIText.DEFAULT_WEEKLY_QUESTION;
@@ -30,6 +32,7 @@ public class WeeklyPollConfig implements Serializable {
 
     public void setQuestion(String question) {
         this.question = question;
+        touch();
     }
 
     public String getPositiveOption() {
@@ -38,6 +41,7 @@ public class WeeklyPollConfig implements Serializable {
 
     public void setPositiveOption(String positiveOption) {
         this.positiveOption = positiveOption;
+        touch();
     }
 
     public String getNegativeOption() {
@@ -46,6 +50,7 @@ public class WeeklyPollConfig implements Serializable {
 
     public void setNegativeOption(String negativeOption) {
         this.negativeOption = negativeOption;
+        touch();
     }
 
     public int getTargetVotes() {
@@ -54,6 +59,7 @@ public class WeeklyPollConfig implements Serializable {
 
     public void setTargetVotes(int targetVotes) {
         this.targetVotes = targetVotes;
+        touch();
     }
 
     public DayOfWeek getDayOfWeek() {
@@ -62,6 +68,7 @@ public class WeeklyPollConfig implements Serializable {
 
     public void setDayOfWeek(DayOfWeek dayOfWeek) {
         this.dayOfWeek = dayOfWeek;
+        touch();
     }
 
     public LocalTime getStartTime() {
@@ -70,6 +77,7 @@ public class WeeklyPollConfig implements Serializable {
 
     public void setStartTime(LocalTime startTime) {
         this.startTime = startTime;
+        touch();
     }
 
     public boolean isEnabled() {
@@ -78,6 +86,16 @@ public class WeeklyPollConfig implements Serializable {
 
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        touch();
+    }
+
+    @Override
+    public long modificationVersion() {
+        return modificationVersion;
+    }
+
+    private synchronized void touch() {
+        modificationVersion++;
     }
 
     public void setDayOfWeek(int day) {
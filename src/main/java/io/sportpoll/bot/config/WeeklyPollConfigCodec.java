@@ -0,0 +1,43 @@
+package io.sportpoll.bot.config;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import io.sportpoll.bot.persistance.BinaryReader;
+import io.sportpoll.bot.persistance.BinaryWriter;
+import io.sportpoll.bot.persistance.Codec;
+
+public class WeeklyPollConfigCodec implements Codec<WeeklyPollConfig> {
+    private static final int VERSION = 1;
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void write(WeeklyPollConfig config, BinaryWriter out) throws IOException {
+        out.writeString(config.getQuestion());
+        out.writeString(config.getPositiveOption());
+        out.writeString(config.getNegativeOption());
+        out.writeVarInt(config.getTargetVotes());
+        out.writeVarInt(config.getDayOfWeek().getValue());
+        out.writeVarInt(config.getStartTime().toSecondOfDay());
+        out.writeBoolean(config.isEnabled());
+    }
+
+    @Override
+    public WeeklyPollConfig read(BinaryReader in, int version) throws IOException {
+        if (version != VERSION) throw new IOException("Unsupported WeeklyPollConfig version " + version);
+        WeeklyPollConfig config = new WeeklyPollConfig();
+        config.setQuestion(in.readString());
+        config.setPositiveOption(in.readString());
+        config.setNegativeOption(in.readString());
+        config.setTargetVotes(in.readVarInt());
+        config.setDayOfWeek(DayOfWeek.of(in.readVarInt()));
+        config.setStartTime(LocalTime.ofSecondOfDay(in.readVarInt()));
+        config.setEnabled(in.readBoolean());
+        return config;
+    }
+}
@@ -12,13 +12,14 @@ public class Messages {
 
     public static final String VOTE_ADDED = "Додано %s";
     public static final String VOTE_REVOKED = "Голос скасовано";
+    public static final String ALL_VOTES_REVOKED = "Скасовано ваших голосів: %d";
     public static final String NO_VOTES_TO_REVOKE = "Немає голосів для скасування";
     public static final String TOO_MANY_VOTES = "Неможливо додати %d голосів. Залишилось лише %d до досягнення цілі";
     public static final String ADMIN_REVOKED_VOTE = "Адмін скасував голос #%s (%s від %s)";
     public static final String VOTE_REVOKED_BY_ID = "Голос #%s (%s) скасовано";
     public static final String PERMISSION_DENIED_REVOKE = "Ви можете скасувати лише свої голоси";
     public static final String VOTE_NOT_FOUND = "Голос не знайдено";
-    public static final String REVOKE_USAGE = "Використання: /- [номер]";
+    public static final String REVOKE_USAGE = "Використання: /- [номер|all]";
     public static final String REQUIRED_ENV_VAR = "Обов'язкова змінна середовища не встановлена: %s";
 
     public static final String INVALID_INPUT = "Неправильний ввід. %s";
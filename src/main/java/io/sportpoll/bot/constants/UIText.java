@@ -12,6 +12,13 @@ public class UIText {
     public static final String BUTTON_CREATE_POLL = "📊 Створити опитування";
     public static final String BUTTON_CLOSE_POLL = "❌ Закрити опитування";
     public static final String BUTTON_WEEKLY_SETTINGS = "⚙️ Тижневі налаштування";
+    public static final String BUTTON_STATS = "📈 Статистика";
+    public static final String MAIN_MENU_GROUP = "👥 Група: <code>%d</code>";
+    public static final String BUTTON_SELECT_GROUP = "👥 Змінити групу";
+
+    // Group Page
+    public static final String GROUP_SELECT_TITLE = "👥 Оберіть групу для опитувань:";
+    public static final String GROUP_SELECTED = "✅ %d";
 
     // Create Poll Page
     public static final String CREATE_POLL_TITLE = "📊 <b>Створення опитування</b>";
@@ -48,6 +55,20 @@ public class UIText {
     public static final String BUTTON_WEEKLY_DAY = "📅 День";
     public static final String BUTTON_WEEKLY_TIME = "⏰ Час";
 
+    // Stats Page
+    public static final String STATS_TITLE = "📈 <b>Статистика відвідування</b>";
+    public static final String STATS_EMPTY = "Ще немає закритих опитувань";
+    public static final String STATS_POLLS = "Опитувань: %d";
+    public static final String STATS_PLAYERS_TITLE = "<b>Гравці</b>";
+    public static final String STATS_PLAYER_LINE = "%d. %s — %d%% (%d/%d), серія %d";
+    public static final String STATS_INVITES_TITLE = "<b>Хто кого запрошує</b>";
+    public static final String STATS_INVITE_LINE = "%s → %s ×%d";
+    public static final String STATS_REBUILT = "🔄 Перераховано %d опитувань за %d мс. %s";
+    public static final String STATS_REBUILD_MATCHED = "Розбіжностей немає";
+    public static final String STATS_REBUILD_FIXED = "Розбіжності виправлено";
+    public static final String STATS_REBUILD_FAILED = "Не вдалося перерахувати статистику";
+    public static final String BUTTON_STATS_REBUILD = "🔄 Перерахувати";
+
     // Weekly Day Page
     public static final String WEEKLY_DAY_TITLE = "Оберіть день тижня для опитування:";
     public static final String BUTTON_BACK = "◀️ Назад";
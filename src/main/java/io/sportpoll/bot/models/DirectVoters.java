@@ -0,0 +1,197 @@
+package io.sportpoll.bot.models;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class DirectVoters implements Serializable {
+    public static final int NONE = -1;
+    private static final byte EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private transient long[] userIds;
+    private transient byte[] options;
+    private transient String[] names;
+    private transient long[] times;
+    private transient int size;
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long userId, int optionId, String name);
+    }
+
+    public DirectVoters() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        userIds = new long[capacity];
+        options = new byte[capacity];
+        names = new String[capacity];
+        times = new long[capacity];
+        Arrays.fill(options, EMPTY);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(long userId) {
+        int slot = find(userId);
+        return slot < 0 ? NONE : options[slot];
+    }
+
+    public String getName(long userId) {
+        int slot = find(userId);
+        return slot < 0 ? null : names[slot];
+    }
+
+    public long getTime(long userId) {
+        int slot = find(userId);
+        return slot < 0 ? 0 : times[slot];
+    }
+
+    public int put(long userId, int optionId, String name) {
+        return put(userId, optionId, name, 0);
+    }
+
+    // The time is when the user last picked an option, in epoch millis
+    public int put(long userId, int optionId, String name, long time) {
+        if (optionId < 0 || optionId > Byte.MAX_VALUE) throw new IllegalArgumentException("Invalid option " + optionId);
+        if ((size + 1) * 4 > userIds.length * 3) resize(userIds.length * 2);
+        int mask = userIds.length - 1;
+        int slot = hash(userId) & mask;
+        while (options[slot] != EMPTY) {
+            if (userIds[slot] == userId) {
+                int previous = options[slot];
+                options[slot] = (byte) optionId;
+                names[slot] = name;
+                times[slot] = time;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        userIds[slot] = userId;
+        options[slot] = (byte) optionId;
+        names[slot] = name;
+        times[slot] = time;
+        size++;
+        return NONE;
+    }
+
+    public int remove(long userId) {
+        int slot = find(userId);
+        if (slot < 0) return NONE;
+        int previous = options[slot];
+        deleteSlot(slot);
+        size--;
+        return previous;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < options.length; slot++)
+            if (options[slot] != EMPTY) visitor.visit(userIds[slot], options[slot], names[slot]);
+    }
+
+    public int capacity() {
+        return options.length;
+    }
+
+    public boolean isOccupied(int slot) {
+        return options[slot] != EMPTY;
+    }
+
+    public long userIdAt(int slot) {
+        return userIds[slot];
+    }
+
+    public int optionAt(int slot) {
+        return options[slot];
+    }
+
+    public String nameAt(int slot) {
+        return names[slot];
+    }
+
+    public long timeAt(int slot) {
+        return times[slot];
+    }
+
+    private int find(long userId) {
+        int mask = userIds.length - 1;
+        int slot = hash(userId) & mask;
+        while (options[slot] != EMPTY) {
+            if (userIds[slot] == userId) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void deleteSlot(int slot) {
+        int mask = userIds.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (options[next] != EMPTY) {
+            int home = hash(userIds[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                userIds[hole] = userIds[next];
+                options[hole] = options[next];
+                names[hole] = names[next];
+                times[hole] = times[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        options[hole] = EMPTY;
+        names[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = userIds;
+        byte[] oldOptions = options;
+        String[] oldNames = names;
+        long[] oldTimes = times;
+        allocate(capacity);
+        for (int slot = 0; slot < oldOptions.length; slot++)
+            if (oldOptions[slot] != EMPTY) put(oldIds[slot], oldOptions[slot], oldNames[slot], oldTimes[slot]);
+    }
+
+    private static int hash(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int slot = 0; slot < options.length; slot++) {
+            if (options[slot] == EMPTY) continue;
+            out.writeLong(userIds[slot]);
+            out.writeByte(options[slot]);
+            out.writeObject(names[slot]);
+            out.writeLong(times[slot]);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, count * 2)) * 2));
+        for (int i = 0; i < count; i++) {
+            long userId = in.readLong();
+            byte optionId = in.readByte();
+            put(userId, optionId, (String) in.readObject(), in.readLong());
+        }
+    }
+}
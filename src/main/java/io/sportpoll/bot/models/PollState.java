@@ -0,0 +1,406 @@
+package io.sportpoll.bot.models;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import io.sportpoll.bot.persistance.VoteEvent;
+
+// Immutable view of one poll as of a journal sequence number. PollManager publishes a new one after every
+// recorded mutation, so other threads read a consistent roster without going through the poll's actor.
+// A change copies only the roster chunk and index path it touches; everything else is shared with the
+// previous state.
+public final class PollState {
+    public static final int INVITED = -1;
+    public static final PollState EMPTY = new PollState(false, false, 0, null, null, null, 0, Roster.EMPTY,
+        Index.EMPTY, new int[2], 0);
+
+    private final boolean active;
+    private final boolean hasRoster;
+    private final int targetVotes;
+    private final Integer messageId;
+    private final String pollId;
+    private final Integer statusMessageId;
+    private final long lastJournalSeq;
+    private final Roster roster;
+    private final Index directIndex;
+    private final int[] directCounts;
+    private final int externalCount;
+
+    // A direct answer has the chosen option; a guest has INVITED, the requester's id and name and the guest's
+    // name, which is null for anonymous guests
+    public record Entry(long userId, int optionId, String name, String voterName, long time) {
+        public boolean isInvited() {
+            return optionId == INVITED;
+        }
+
+        boolean isPositive() {
+            return optionId == 0 || optionId == INVITED;
+        }
+    }
+
+    private PollState(boolean active, boolean hasRoster, int targetVotes, Integer messageId, String pollId,
+        Integer statusMessageId, long lastJournalSeq, Roster roster, Index directIndex, int[] directCounts,
+        int externalCount) {
+        this.active = active;
+        this.hasRoster = hasRoster;
+        this.targetVotes = targetVotes;
+        this.messageId = messageId;
+        this.pollId = pollId;
+        this.statusMessageId = statusMessageId;
+        this.lastJournalSeq = lastJournalSeq;
+        this.roster = roster;
+        this.directIndex = directIndex;
+        this.directCounts = directCounts;
+        this.externalCount = externalCount;
+    }
+
+    // Full copy of the working structures, used after a snapshot or ledger is loaded; guests and "yes" answers
+    // keep their vote order, other answers follow
+    public static PollState capture(boolean active, int targetVotes, Integer messageId, String pollId,
+        Integer statusMessageId, long lastJournalSeq, DirectVoters directVoters, VoteLedger ledger) {
+        PollState state = new PollState(active, directVoters != null || ledger != null, targetVotes, messageId,
+            pollId, statusMessageId, lastJournalSeq, Roster.EMPTY, Index.EMPTY, new int[2], 0);
+        if (ledger != null) {
+            for (int slot = 0; slot < ledger.slotLimit(); slot++) {
+                if (!ledger.isLive(slot)) continue;
+                long userId = ledger.userIdAt(slot);
+                Vote vote = ledger.voteAt(slot);
+                state = vote == null
+                    ? state.direct(userId, 0, directVoters != null ? directVoters.getName(userId) : null,
+                        directVoters != null ? directVoters.getTime(userId) : 0)
+                    : state.append(new Entry(userId, INVITED, vote.getRequesterName(), vote.getVoterName(),
+                        vote.getCreatedAt()));
+            }
+        }
+        if (directVoters != null) {
+            for (int slot = 0; slot < directVoters.capacity(); slot++) {
+                if (!directVoters.isOccupied(slot)) continue;
+                if (ledger == null || directVoters.optionAt(slot) != 0) state = state.direct(
+                    directVoters.userIdAt(slot), directVoters.optionAt(slot), directVoters.nameAt(slot),
+                    directVoters.timeAt(slot));
+            }
+        }
+        return state;
+    }
+
+    // The same transitions PollManager makes on its working copy, so replaying the journal into either agrees
+    public PollState apply(VoteEvent event, long journalSeq) {
+        PollState next = switch (event) {
+            case VoteEvent.PollCreated e -> new PollState(true, true, e.targetVotes(), e.messageId(), e.pollId(),
+                e.statusMessageId(), lastJournalSeq, Roster.EMPTY, Index.EMPTY, new int[2], 0);
+            case VoteEvent.DirectVote e -> e.optionId() == DirectVoters.NONE ? withoutDirect(e.userId())
+                : direct(e.userId(), e.optionId(), e.name(), e.time());
+            case VoteEvent.ExternalVote e -> append(
+                new Entry(e.requesterId(), INVITED, e.requesterName(), e.voterName(), e.time()));
+            case VoteEvent.Revoked e -> {
+                int position = positionOfVote(e.voteNumber());
+                yield position < 0 ? this : removeAt(position);
+            }
+            case VoteEvent.RevokedAll e -> {
+                PollState state = this;
+                for (int position = 0; position < roster.size; position++) {
+                    Entry entry = roster.get(position);
+                    if (entry != null && entry.isInvited() && entry.userId() == e.requesterId())
+                        state = state.removeAt(position);
+                }
+                yield state;
+            }
+            case VoteEvent.Closed e -> e.reset() ? new PollState(false, false, 0, null, null, null, lastJournalSeq,
+                Roster.EMPTY, Index.EMPTY, new int[2], 0) : withActive(false);
+        };
+        return next.compactIfSparse().withJournalSeq(journalSeq);
+    }
+
+    public PollState withStatusMessageId(Integer statusMessageId) {
+        return new PollState(active, hasRoster, targetVotes, messageId, pollId, statusMessageId, lastJournalSeq,
+            roster, directIndex, directCounts, externalCount);
+    }
+
+    private PollState withActive(boolean active) {
+        return new PollState(active, hasRoster, targetVotes, messageId, pollId, statusMessageId, lastJournalSeq,
+            roster, directIndex, directCounts, externalCount);
+    }
+
+    private PollState withJournalSeq(long journalSeq) {
+        if (journalSeq == lastJournalSeq) return this;
+        return new PollState(active, hasRoster, targetVotes, messageId, pollId, statusMessageId, journalSeq,
+            roster, directIndex, directCounts, externalCount);
+    }
+
+    // Re-voting keeps the place in line; only switching to "yes" from another answer moves to the end
+    private PollState direct(long userId, int optionId, String name, long time) {
+        Entry entry = new Entry(userId, optionId, name, null, time);
+        int position = directIndex.get(userId);
+        if (position < 0) return append(entry);
+        Entry previous = roster.get(position);
+        if (optionId == 0 && previous.optionId() != 0) return removeAt(position).append(entry);
+        int[] counts = count(count(directCounts, previous.optionId(), -1), optionId, 1);
+        return new PollState(active, true, targetVotes, messageId, pollId, statusMessageId, lastJournalSeq,
+            roster.set(position, entry), directIndex, counts, externalCount);
+    }
+
+    private PollState withoutDirect(long userId) {
+        int position = directIndex.get(userId);
+        return position < 0 ? this : removeAt(position);
+    }
+
+    private PollState append(Entry entry) {
+        int position = roster.size;
+        Index index = entry.isInvited() ? directIndex : directIndex.put(entry.userId(), position);
+        int[] counts = entry.isInvited() ? directCounts : count(directCounts, entry.optionId(), 1);
+        return new PollState(active, true, targetVotes, messageId, pollId, statusMessageId, lastJournalSeq,
+            roster.append(entry), index, counts, externalCount + (entry.isInvited() ? 1 : 0));
+    }
+
+    private PollState removeAt(int position) {
+        Entry entry = roster.get(position);
+        Index index = entry.isInvited() ? directIndex : directIndex.remove(entry.userId());
+        int[] counts = entry.isInvited() ? directCounts : count(directCounts, entry.optionId(), -1);
+        return new PollState(active, true, targetVotes, messageId, pollId, statusMessageId, lastJournalSeq,
+            roster.set(position, null), index, counts, externalCount - (entry.isInvited() ? 1 : 0));
+    }
+
+    // Removed entries are dropped in one pass once they outnumber the live ones, which renumbers the positions
+    private PollState compactIfSparse() {
+        if (roster.size - roster.live <= roster.live + Roster.CHUNK) return this;
+        Roster compacted = roster.compact();
+        Index index = Index.EMPTY;
+        for (int position = 0; position < compacted.size; position++) {
+            Entry entry = compacted.get(position);
+            if (!entry.isInvited()) index = index.put(entry.userId(), position);
+        }
+        return new PollState(active, hasRoster, targetVotes, messageId, pollId, statusMessageId, lastJournalSeq,
+            compacted, index, directCounts, externalCount);
+    }
+
+    // Vote numbers count guests and "yes" answers in order, starting at 1
+    private int positionOfVote(int voteNumber) {
+        if (voteNumber < 1) return -1;
+        int number = 0;
+        for (int position = 0; position < roster.size; position++) {
+            Entry entry = roster.get(position);
+            if (entry != null && entry.isPositive() && ++number == voteNumber) return position;
+        }
+        return -1;
+    }
+
+    private static int[] count(int[] counts, int optionId, int delta) {
+        if (optionId < 0) return counts;
+        int[] copy = Arrays.copyOf(counts, Math.max(counts.length, optionId + 1));
+        copy[optionId] += delta;
+        return copy;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    // False once a poll is reset; a finished poll keeps its roster until the next one starts
+    public boolean hasRoster() {
+        return hasRoster;
+    }
+
+    public int getTargetVotes() {
+        return targetVotes;
+    }
+
+    public Integer getMessageId() {
+        return messageId;
+    }
+
+    public String getPollId() {
+        return pollId;
+    }
+
+    public Integer getStatusMessageId() {
+        return statusMessageId;
+    }
+
+    public long getLastJournalSeq() {
+        return lastJournalSeq;
+    }
+
+    public int getPositiveVotes() {
+        return directCounts[0] + externalCount;
+    }
+
+    public int getDirectVotes(int optionId) {
+        return optionId >= 0 && optionId < directCounts.length ? directCounts[optionId] : 0;
+    }
+
+    public int getExternalCount() {
+        return externalCount;
+    }
+
+    public int getDirectCount() {
+        return roster.live - externalCount;
+    }
+
+    // Every live entry in arrival order
+    public void forEach(Consumer<Entry> visitor) {
+        for (int position = 0; position < roster.size; position++) {
+            Entry entry = roster.get(position);
+            if (entry != null) visitor.accept(entry);
+        }
+    }
+
+    // Guests and "yes" answers in vote order, the list the status message numbers
+    public void forEachVote(Consumer<Entry> visitor) {
+        forEach(entry -> {
+            if (entry.isPositive()) visitor.accept(entry);
+        });
+    }
+
+    // Entries in arrival order, kept in chunks of CHUNK; a change copies the chunk table and the one chunk it
+    // writes, so older states keep sharing all the other chunks. Removed entries stay as null until compaction.
+    private static final class Roster {
+        static final int CHUNK = 32;
+        static final Roster EMPTY = new Roster(new Entry[0][], 0, 0);
+
+        final Entry[][] chunks;
+        final int size;
+        final int live;
+
+        Roster(Entry[][] chunks, int size, int live) {
+            this.chunks = chunks;
+            this.size = size;
+            this.live = live;
+        }
+
+        Entry get(int position) {
+            return chunks[position / CHUNK][position % CHUNK];
+        }
+
+        Roster append(Entry entry) {
+            int chunk = size / CHUNK;
+            Entry[][] table = Arrays.copyOf(chunks, Math.max(chunks.length, chunk + 1));
+            table[chunk] = chunk < chunks.length ? chunks[chunk].clone() : new Entry[CHUNK];
+            table[chunk][size % CHUNK] = entry;
+            return new Roster(table, size + 1, live + 1);
+        }
+
+        Roster set(int position, Entry entry) {
+            int chunk = position / CHUNK;
+            Entry previous = chunks[chunk][position % CHUNK];
+            Entry[][] table = chunks.clone();
+            table[chunk] = chunks[chunk].clone();
+            table[chunk][position % CHUNK] = entry;
+            return new Roster(table, size, live + (entry != null ? 1 : 0) - (previous != null ? 1 : 0));
+        }
+
+        Roster compact() {
+            Roster compacted = EMPTY;
+            for (int position = 0; position < size; position++) {
+                Entry entry = get(position);
+                if (entry != null) compacted = compacted.append(entry);
+            }
+            return compacted;
+        }
+    }
+
+    // Persistent hash trie from a direct voter's id to their roster position, five hash bits per level. Slots hold
+    // either a Leaf or a child node; a change copies only the nodes on its path.
+    private static final class Index {
+        static final Index EMPTY = new Index(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        record Leaf(long userId, int position) {
+        }
+
+        Index(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        // Bijective, so two ids always part ways by the last level
+        static long hash(long userId) {
+            long h = userId;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+
+        static int bit(long hash, int shift) {
+            return 1 << (int) ((hash >>> shift) & 31);
+        }
+
+        int slotOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        int get(long userId) {
+            long hash = hash(userId);
+            Index node = this;
+            for (int shift = 0;; shift += 5) {
+                int bit = bit(hash, shift);
+                if ((node.bitmap & bit) == 0) return -1;
+                Object slot = node.slots[node.slotOf(bit)];
+                if (slot instanceof Leaf leaf) return leaf.userId() == userId ? leaf.position() : -1;
+                node = (Index) slot;
+            }
+        }
+
+        Index put(long userId, int position) {
+            return put(new Leaf(userId, position), hash(userId), 0);
+        }
+
+        private Index put(Leaf leaf, long hash, int shift) {
+            int bit = bit(hash, shift);
+            int at = slotOf(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, copy, 0, at);
+                copy[at] = leaf;
+                System.arraycopy(slots, at, copy, at + 1, slots.length - at);
+                return new Index(bitmap | bit, copy);
+            }
+            Object slot = slots[at];
+            Object replacement;
+            if (slot instanceof Leaf existing) {
+                replacement = existing.userId() == leaf.userId() ? leaf
+                    : EMPTY.put(existing, hash(existing.userId()), shift + 5).put(leaf, hash, shift + 5);
+            } else replacement = ((Index) slot).put(leaf, hash, shift + 5);
+            Object[] copy = slots.clone();
+            copy[at] = replacement;
+            return new Index(bitmap, copy);
+        }
+
+        Index remove(long userId) {
+            Index result = remove(userId, hash(userId), 0);
+            return result == null ? EMPTY : result;
+        }
+
+        // This node when the id is absent, null when the node ends up empty
+        private Index remove(long userId, long hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+            int at = slotOf(bit);
+            Object slot = slots[at];
+            Object replacement;
+            if (slot instanceof Leaf leaf) {
+                if (leaf.userId() != userId) return this;
+                replacement = null;
+            } else {
+                Index child = ((Index) slot).remove(userId, hash, shift + 5);
+                if (child == slot) return this;
+                // A child left with a single leaf is folded back into this node
+                replacement = child != null && child.slots.length == 1 && child.slots[0] instanceof Leaf only ? only
+                    : child;
+            }
+            if (replacement != null) {
+                Object[] copy = slots.clone();
+                copy[at] = replacement;
+                return new Index(bitmap, copy);
+            }
+            if (slots.length == 1) return null;
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, at);
+            System.arraycopy(slots, at + 1, copy, at, slots.length - at - 1);
+            return new Index(bitmap & ~bit, copy);
+        }
+    }
+}
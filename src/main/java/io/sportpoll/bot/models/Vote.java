@@ -9,9 +9,15 @@ public class Vote implements Serializable {
     private final String requesterName;
     private final String voterName;
     private final boolean isAnonymous;
+    private final long createdAt;
 
     public Vote(long requesterId, String requesterName, String voterName) {
+        this(requesterId, requesterName, voterName, System.currentTimeMillis());
+    }
+
+    public Vote(long requesterId, String requesterName, String voterName, long createdAt) {
         this.voteId = UUID.randomUUID().toString();
+        this.createdAt = createdAt;
         this.requesterId = requesterId;
         this.requesterName = requesterName;
         this.voterName = voterName;
@@ -41,4 +47,9 @@ public class Vote implements Serializable {
     public boolean isAnonymous() {
         return isAnonymous;
     }
+
+    // Epoch millis; 0 for votes stored before times were kept
+    public long getCreatedAt() {
+        return createdAt;
+    }
 }
@@ -0,0 +1,249 @@
+package io.sportpoll.bot.models;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Positive votes in arrival order; a Fenwick tree over live slots answers "vote #N" in O(log n)
+public class VoteLedger implements Serializable {
+    public static final int NONE = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private transient Vote[] votes;
+    private transient long[] userIds;
+    private transient boolean[] live;
+    private transient int[] tree;
+    private transient Map<Long, Integer> directSlots;
+    private transient Map<Long, SlotStack> requesterSlots;
+    private transient int slots;
+    private transient int size;
+    private transient int externalCount;
+
+    public VoteLedger() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        votes = new Vote[capacity];
+        userIds = new long[capacity];
+        live = new boolean[capacity];
+        tree = new int[capacity + 1];
+        directSlots = new HashMap<>();
+        requesterSlots = new HashMap<>();
+        slots = 0;
+        size = 0;
+        externalCount = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int externalCount() {
+        return externalCount;
+    }
+
+    public int slotLimit() {
+        return slots;
+    }
+
+    public boolean isLive(int slot) {
+        return slot >= 0 && slot < slots && live[slot];
+    }
+
+    public boolean isDirect(int slot) {
+        return votes[slot] == null;
+    }
+
+    public long userIdAt(int slot) {
+        return userIds[slot];
+    }
+
+    public Vote voteAt(int slot) {
+        return votes[slot];
+    }
+
+    public int appendDirect(long userId) {
+        Integer existing = directSlots.get(userId);
+        if (existing != null) return existing;
+        int slot = append(userId, null);
+        directSlots.put(userId, slot);
+        return slot;
+    }
+
+    public int appendExternal(Vote vote) {
+        int slot = append(vote.getRequesterId(), vote);
+        externalCount++;
+        requesterSlots.computeIfAbsent(vote.getRequesterId(), id -> new SlotStack()).push(slot);
+        return slot;
+    }
+
+    public boolean removeDirect(long userId) {
+        Integer slot = directSlots.get(userId);
+        if (slot == null) return false;
+        remove(slot);
+        return true;
+    }
+
+    public void remove(int slot) {
+        if (!isLive(slot)) return;
+        live[slot] = false;
+        add(slot, -1);
+        size--;
+        if (votes[slot] == null) directSlots.remove(userIds[slot]);
+        else externalCount--;
+        votes[slot] = null;
+    }
+
+    // Slot of the 1-based vote number, or NONE when out of range
+    public int slotAt(int number) {
+        if (number < 1 || number > size) return NONE;
+        int position = 0;
+        int remaining = number;
+        for (int step = Integer.highestOneBit(live.length); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= live.length && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    // 1-based vote number of a live slot
+    public int numberOf(int slot) {
+        if (!isLive(slot)) return NONE;
+        int count = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i)
+            count += tree[i];
+        return count;
+    }
+
+    // Most recent live invited vote of the requester; revoked slots are popped lazily
+    public int lastExternalSlotOf(long requesterId) {
+        SlotStack stack = requesterSlots.get(requesterId);
+        if (stack == null) return NONE;
+        while (!stack.isEmpty() && !isLive(stack.peek()))
+            stack.pop();
+        if (stack.isEmpty()) {
+            requesterSlots.remove(requesterId);
+            return NONE;
+        }
+        return stack.peek();
+    }
+
+    public int removeAllExternalOf(long requesterId) {
+        SlotStack stack = requesterSlots.remove(requesterId);
+        if (stack == null) return 0;
+        int removed = 0;
+        while (!stack.isEmpty()) {
+            int slot = stack.pop();
+            if (!isLive(slot)) continue;
+            remove(slot);
+            removed++;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private int append(long userId, Vote vote) {
+        if (slots == live.length) {
+            // Reuse tombstoned slots before growing
+            if (size * 2 <= slots) compact(live.length);
+            else compact(live.length * 2);
+        }
+        int slot = slots++;
+        votes[slot] = vote;
+        userIds[slot] = userId;
+        live[slot] = true;
+        add(slot, 1);
+        size++;
+        return slot;
+    }
+
+    private void add(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i)
+            tree[i] += delta;
+    }
+
+    private void compact(int capacity) {
+        Vote[] oldVotes = votes;
+        long[] oldIds = userIds;
+        boolean[] oldLive = live;
+        int oldSlots = slots;
+        allocate(capacity);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            if (!oldLive[slot]) continue;
+            int target = slots++;
+            votes[target] = oldVotes[slot];
+            userIds[target] = oldIds[slot];
+            live[target] = true;
+            if (oldVotes[slot] == null) directSlots.put(oldIds[slot], target);
+            else {
+                externalCount++;
+                requesterSlots.computeIfAbsent(oldIds[slot], id -> new SlotStack()).push(target);
+            }
+        }
+        size = slots;
+        // Linear Fenwick build
+        for (int i = 1; i < tree.length; i++) {
+            if (live[i - 1]) tree[i]++;
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int slot = 0; slot < slots; slot++) {
+            if (!live[slot]) continue;
+            out.writeLong(userIds[slot]);
+            out.writeObject(votes[slot]);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, count)) * 2));
+        for (int i = 0; i < count; i++) {
+            long userId = in.readLong();
+            Vote vote = (Vote) in.readObject();
+            if (vote == null) appendDirect(userId);
+            else appendExternal(vote);
+        }
+    }
+
+    private static final class SlotStack {
+        private int[] slots = new int[4];
+        private int size;
+
+        void push(int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+
+        int pop() {
+            return slots[--size];
+        }
+
+        int peek() {
+            return slots[size - 1];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package io.sportpoll.bot.persistance;
+
+public interface Archiving {
+    // Called after loading; closed polls are appended to the archive from then on
+    void attachArchive(PollArchive archive);
+}
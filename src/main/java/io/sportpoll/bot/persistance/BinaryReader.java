@@ -0,0 +1,74 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryReader implements Closeable {
+    private final InputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    public BinaryReader(InputStream in) {
+        this.in = in;
+    }
+
+    public int readByte() throws IOException {
+        int value = in.read();
+        if (value < 0) throw new EOFException();
+        return value;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public long readVarLong() throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    public Integer readNullableInt() throws IOException {
+        return readBoolean() ? Math.toIntExact(readVarLong()) : null;
+    }
+
+    public String readString() throws IOException {
+        int tag = readVarInt();
+        if (tag == BinaryWriter.NULL_STRING) return null;
+        if (tag >= BinaryWriter.FIRST_STRING_REF) {
+            int index = tag - BinaryWriter.FIRST_STRING_REF;
+            if (index >= strings.size()) throw new IOException("Unknown string reference " + index);
+            return strings.get(index);
+        }
+        int length = readVarInt();
+        if (length < 0) throw new IOException("Malformed string length " + length);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) throw new EOFException();
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
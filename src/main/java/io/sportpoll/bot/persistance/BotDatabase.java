@@ -0,0 +1,131 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+
+// MapDB locks its file, so AbilityBot and the MapDB storage backend must share one DB per bot name
+public final class BotDatabase {
+    public static final String DEFAULT_NAME = "SportPollBot";
+    private static final Map<String, DB> databases = new ConcurrentHashMap<>();
+
+    private BotDatabase() {
+    }
+
+    // Opened for AbilityBot; reuses the storage backend's DB when it already holds the file
+    public static DB open(String name) {
+        return databases.compute(path(name), (key, db) -> db != null && !db.isClosed() ? db : create(key, true));
+    }
+
+    // The storage backend closes this one itself after the final flush, so MapDB's own shutdown hook must not
+    // close it first
+    static DB openShared(String name) {
+        return databases.compute(path(name), (key, db) -> db != null && !db.isClosed() ? db : create(key, false));
+    }
+
+    static void close(String name) {
+        DB db = databases.remove(path(name));
+        if (db != null && !db.isClosed()) db.close();
+    }
+
+    private static String path(String name) {
+        return directory() + File.separator + name;
+    }
+
+    private static DB create(String dbPath, boolean closeOnJvmShutdown) {
+        DBMaker.Maker maker = DBMaker.fileDB(dbPath).fileMmapEnableIfSupported().transactionEnable();
+        if (closeOnJvmShutdown) maker = maker.closeOnJvmShutdown();
+        return maker.make();
+    }
+
+    public static String directory() {
+        String dbDir = System.getenv("BOT_DATABASE_DIR");
+        if (dbDir == null || dbDir.trim().isEmpty()) {
+            dbDir = System.getProperty("bot.database.dir");
+        }
+        if (dbDir == null || dbDir.trim().isEmpty()) {
+            dbDir = isTestEnvironment() ? getTestDatabaseDirectory() : "data";
+        }
+
+        File dataDir = new File(dbDir);
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+        }
+
+        if (!dataDir.canWrite()) {
+            String tempDir = System.getProperty("java.io.tmpdir") + File.separator + "sportpoll-db";
+            File tempDataDir = new File(tempDir);
+            if (!tempDataDir.exists()) {
+                tempDataDir.mkdirs();
+            }
+            return tempDataDir.getAbsolutePath();
+        }
+
+        return dataDir.getAbsolutePath();
+    }
+
+    // Where every snapshot lived before the data directory became configurable; -Dbot.old.database.dir overrides
+    // it, and tests get none unless they set that
+    public static File oldDirectory() {
+        String dir = System.getProperty("bot.old.database.dir");
+        if (dir != null && !dir.trim().isEmpty()) return new File(dir.trim());
+        return isTestEnvironment() ? null : new File("/tmp/sportpollbot");
+    }
+
+    // "file" (default) or "mapdb", from STORAGE_BACKEND or -Dstorage.backend
+    public static String backendName() {
+        String backend = System.getenv("STORAGE_BACKEND");
+        if (backend == null || backend.trim().isEmpty()) {
+            backend = System.getProperty("storage.backend");
+        }
+        return backend == null || backend.trim().isEmpty() ? "file" : backend.trim().toLowerCase();
+    }
+
+    // "journal" (default) or "mapped", from VOTE_LEDGER or -Dvote.ledger; both only change how votes are made
+    // durable between snapshots, polls stay in memory either way
+    public static String ledgerMode() {
+        String mode = System.getenv("VOTE_LEDGER");
+        if (mode == null || mode.trim().isEmpty()) {
+            mode = System.getProperty("vote.ledger");
+        }
+        return mode == null || mode.trim().isEmpty() ? "journal" : mode.trim().toLowerCase();
+    }
+
+    // Closed polls kept uncompressed in the archive, from ARCHIVE_UNCOMPRESSED_POLLS or -Darchive.uncompressed.polls;
+    // 0 turns compression off
+    public static int archiveUncompressedPolls() {
+        String count = System.getenv("ARCHIVE_UNCOMPRESSED_POLLS");
+        if (count == null || count.trim().isEmpty()) {
+            count = System.getProperty("archive.uncompressed.polls");
+        }
+        return count == null || count.trim().isEmpty() ? 8 : Math.max(0, Integer.parseInt(count.trim()));
+    }
+
+    private static boolean isTestEnvironment() {
+        return Thread.currentThread().getStackTrace().length > 0
+            && java.util.Arrays.stream(Thread.currentThread().getStackTrace())
+                .anyMatch(elem -> elem.getClassName().contains("Test") || elem.getClassName().contains("junit"));
+    }
+
+    private static String getTestDatabaseDirectory() {
+        if (Thread.currentThread().getStackTrace().length > 0) {
+            String testClass = java.util.Arrays.stream(Thread.currentThread().getStackTrace())
+                .filter(elem -> elem.getClassName().contains("Test"))
+                .findFirst()
+                .map(StackTraceElement::getClassName)
+                .orElse("");
+
+            if (testClass.contains("Integration")) {
+                return "target" + File.separator + "test-db-integration";
+            } else if (testClass.contains("Comprehensive")) {
+                return "target" + File.separator + "test-db-comprehensive";
+            } else {
+                return "target" + File.separator + "test-db";
+            }
+        }
+        return "target" + File.separator + "test-db";
+    }
+}
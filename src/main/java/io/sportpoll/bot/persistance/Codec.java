@@ -0,0 +1,13 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.IOException;
+
+// Hand-written binary format for one stored type; the version is written in the file header and handed back
+// on read so older layouts can still be decoded
+public interface Codec<T> {
+    int version();
+
+    void write(T value, BinaryWriter out) throws IOException;
+
+    T read(BinaryReader in, int version) throws IOException;
+}
@@ -2,7 +2,20 @@ package io.sportpoll.bot.persistance;
 
 import java.io.*;
 import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 public class DataStore {
@@ -13,29 +26,113 @@ public class DataStore {
     }
 
     static {
-        instance.autoRegister(io.sportpoll.bot.services.PollManager.class);
+        instance.autoRegister(io.sportpoll.bot.services.PollRegistry.class);
         instance.autoRegister(io.sportpoll.bot.services.WeeklyPollScheduler.class);
         instance.autoRegister(io.sportpoll.bot.config.WeeklyPollConfig.class);
+        instance.autoRegister(io.sportpoll.bot.services.AttendanceStats.class);
+        instance.registerCodec(io.sportpoll.bot.services.PollRegistry.class,
+            new io.sportpoll.bot.services.PollRegistryCodec());
+        instance.registerCodec(io.sportpoll.bot.services.WeeklyPollScheduler.class,
+            new io.sportpoll.bot.services.WeeklyPollSchedulerCodec());
+        instance.registerCodec(io.sportpoll.bot.config.WeeklyPollConfig.class,
+            new io.sportpoll.bot.config.WeeklyPollConfigCodec());
+        instance.registerCodec(io.sportpoll.bot.services.AttendanceStats.class,
+            new io.sportpoll.bot.services.AttendanceStatsCodec());
+        instance.registerLegacy(io.sportpoll.bot.services.PollRegistry.class,
+            io.sportpoll.bot.services.LegacyPollManagerReader.FILE_NAME,
+            new io.sportpoll.bot.services.LegacyPollManagerReader());
     }
+    private static final int JOURNAL_COMPACT_EVERY = 5000;
+    private static final int BINARY_MAGIC = 0x53504442;
     private final File dataDir;
     private final ConcurrentHashMap<Class<?>, Object> singletons = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Class<?>, Supplier<?>> factories = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, Codec<?>> codecs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, LegacySource> legacySources = new ConcurrentHashMap<>();
+    private final StorageBackend backend;
+    private final ConcurrentHashMap<Class<?>, Long> flushedVersions = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile ScheduledExecutorService flusher;
+    private final ConcurrentHashMap<Class<?>, LoadStats> loadStats = new ConcurrentHashMap<>();
+    private volatile boolean lazy;
+    private VoteJournal journal;
+    private PollArchive archive;
+    private volatile boolean mappedLedgers;
+
+    public record LoadStats(long millis, int bytes) {
+    }
+
+    private record LegacySource(String fileName, LegacyReader<?> reader) {
+    }
 
     public DataStore() {
-        this.dataDir = new File("/tmp/sportpollbot");
+        this.dataDir = new File(BotDatabase.directory());
         this.dataDir.mkdirs();
-        preloadAll();
+        importOldDirectory(BotDatabase.oldDirectory(), dataDir);
+        this.backend = "mapdb".equals(BotDatabase.backendName())
+            ? new MapDbBackend(BotDatabase.DEFAULT_NAME, new FileBackend(dataDir))
+            : new FileBackend(dataDir);
+        this.mappedLedgers = "mapped".equals(BotDatabase.ledgerMode());
     }
 
     public DataStore(File customDataDir) {
+        this(customDataDir, new FileBackend(customDataDir));
+    }
+
+    public DataStore(File customDataDir, StorageBackend backend) {
         this.dataDir = customDataDir;
         this.dataDir.mkdirs();
+        this.backend = backend;
+    }
+
+    // Files an older version left in its fixed directory are copied over unless the data directory already has one
+    // of the same name; the old directory is then renamed so this happens once
+    private static void importOldDirectory(File oldDir, File dataDir) {
+        if (oldDir == null || !oldDir.isDirectory() || oldDir.getAbsoluteFile().equals(dataDir.getAbsoluteFile()))
+            return;
+        File[] files = oldDir.listFiles(File::isFile);
+        if (files == null) return;
+        int copied = 0;
+        try {
+            for (File file : files) {
+                File target = new File(dataDir, file.getName());
+                if (target.exists()) continue;
+                Files.copy(file.toPath(), target.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+                copied++;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to import " + oldDir + ": " + e.getMessage());
+            return;
+        }
+        File imported = new File(oldDir.getPath() + ".imported");
+        if (!oldDir.renameTo(imported)) System.err.println("Failed to rename " + oldDir + " after importing it");
+        System.out.println("Imported " + copied + " file(s) from " + oldDir + " into " + dataDir);
     }
 
     public <T> void autoRegister(Class<T> type) {
         factories.put(type, () -> createInstance(type));
     }
 
+    // Types with a codec are stored as <Type>.bin; everything else keeps using Java serialization
+    public <T> void registerCodec(Class<T> type, Codec<T> codec) {
+        codecs.put(type, codec);
+    }
+
+    // A file an older version wrote under another name; read once when the type has no file of its own yet
+    public <T> void registerLegacy(Class<T> type, String fileName, LegacyReader<T> reader) {
+        legacySources.put(type, new LegacySource(fileName, reader));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Codec<Object> codecFor(Class<?> type) {
+        return (Codec<Object>) codecs.get(type);
+    }
+
     private <T> T createInstance(Class<T> type) {
         try {
             Constructor<T> constructor = type.getDeclaredConstructor();
@@ -51,15 +148,95 @@ public class DataStore {
         return (T) singletons.computeIfAbsent(type, this::load);
     }
 
+    public synchronized VoteJournal getJournal() {
+        if (journal == null) journal = new VoteJournal(new File(dataDir, "votes.journal"), JOURNAL_COMPACT_EVERY);
+        return journal;
+    }
+
+    public synchronized PollArchive getArchive() {
+        if (archive == null)
+            archive = new PollArchive(new File(dataDir, "polls.archive"), BotDatabase.archiveUncompressedPolls());
+        return archive;
+    }
+
     private Object load(Class<?> type) {
-        File file = new File(dataDir, type.getSimpleName() + ".dat");
-        if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                Object obj = ois.readObject();
+        long start = System.nanoTime();
+        Object obj = loadAndAttach(type);
+        LoadStats previous = loadStats.get(type);
+        loadStats.put(type, new LoadStats(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            previous != null ? previous.bytes() : 0));
+        return obj;
+    }
+
+    private Object loadAndAttach(Class<?> type) {
+        Object obj = read(type);
+        // What was just read matches the disk; changes replayed from the journal below make it dirty again
+        if (obj instanceof Versioned versioned) flushedVersions.putIfAbsent(type, versioned.modificationVersion());
+        if (obj instanceof Archiving archiving) archiving.attachArchive(getArchive());
+        if (mappedLedgers && obj instanceof LedgerBacked backed) backed.attachLedgers(new File(dataDir, "ledgers"));
+        else if (obj instanceof Journaled journaled) {
+            VoteJournal voteJournal = getJournal();
+            journaled.attachJournal(voteJournal);
+            voteJournal.setSnapshotter(() -> save(obj));
+        }
+        if (obj instanceof Versioned versioned) versioned.setFlushHook(this::requestFlush);
+        return obj;
+    }
+
+    private Object read(Class<?> type) {
+        Codec<Object> codec = codecFor(type);
+        if (codec != null) {
+            String name = binaryName(type);
+            byte[] payload = backend.read(name);
+            if (payload != null) {
+                loadStats.put(type, new LoadStats(0, payload.length));
+                try {
+                    return decode(codec, payload);
+                } catch (Exception e) {
+                    System.err.println("Failed to load " + type.getSimpleName() + ": " + e.getMessage());
+                }
+                // Intact on disk but not decodable, e.g. written by a newer version: the next save would rotate it
+                // out, so it is copied aside before falling back to the older generation or a fresh instance
+                preserve(name);
+                byte[] previous = backend.readPrevious(name);
+                if (previous != null && !Arrays.equals(previous, payload)) {
+                    try {
+                        Object obj = decode(codec, previous);
+                        System.err.println("Recovered " + type.getSimpleName() + " from previous snapshot");
+                        return obj;
+                    } catch (Exception e) {
+                        System.err.println("Previous " + type.getSimpleName() + " not decodable: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        String legacy = legacyName(type);
+        if (backend.exists(legacy)) {
+            try {
+                byte[] payload = backend.read(legacy);
+                if (payload == null) payload = backend.readUnverified(legacy);
+                if (payload != null) loadStats.put(type, new LoadStats(0, payload.length));
+                Object obj = deserialize(payload);
+                if (codec != null) migrate(obj, legacy);
                 return obj;
             } catch (Exception e) {
                 System.err.println("Failed to load " + type.getSimpleName() + ": " + e.getMessage());
             }
+            // Without a codec the fresh instance below is saved under the same name
+            if (codec == null) preserve(legacy);
+        }
+        LegacySource source = legacySources.get(type);
+        if (source != null && backend.exists(source.fileName())) {
+            try {
+                byte[] payload = backend.read(source.fileName());
+                if (payload == null) payload = backend.readUnverified(source.fileName());
+                if (payload == null) throw new IOException("No intact snapshot");
+                Object obj = source.reader().read(payload);
+                migrate(obj, source.fileName());
+                return obj;
+            } catch (Exception e) {
+                System.err.println("Failed to import " + source.fileName() + ": " + e.getMessage());
+            }
         }
         Supplier<?> factory = factories.get(type);
         if (factory == null) {
@@ -70,14 +247,89 @@ public class DataStore {
         return instance;
     }
 
-    public void save(Object obj) {
+    // Loading must not go on to overwrite a file whose only copy could not be kept
+    private void preserve(String name) {
         try {
-            File file = new File(dataDir, obj.getClass().getSimpleName() + ".dat");
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-                oos.writeObject(obj);
+            backend.preserve(name);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot keep a copy of undecodable " + name, e);
+        }
+    }
+
+    // The old .dat is read once and kept aside only after the binary copy is written
+    private void migrate(Object obj, String legacy) {
+        if (!save(obj)) return;
+        backend.retire(legacy);
+        System.out.println("Migrated " + legacy + " to " + binaryName(obj.getClass()));
+    }
+
+    private Object decode(Codec<Object> codec, byte[] payload) throws IOException {
+        try (BinaryReader in = new BinaryReader(new ByteArrayInputStream(payload))) {
+            int magic = 0;
+            for (int i = 0; i < Integer.BYTES; i++)
+                magic = (magic << 8) | in.readByte();
+            if (magic != BINARY_MAGIC) throw new IOException("Not a binary snapshot");
+            return codec.read(in, in.readVarInt());
+        }
+    }
+
+    private byte[] encode(Codec<Object> codec, Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (BinaryWriter out = new BinaryWriter(bytes)) {
+            for (int shift = 24; shift >= 0; shift -= 8)
+                out.writeByte(BINARY_MAGIC >>> shift);
+            out.writeVarInt(codec.version());
+            codec.write(obj, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Object deserialize(byte[] payload) throws IOException, ClassNotFoundException {
+        if (payload == null) throw new IOException("No intact snapshot");
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return ois.readObject();
+        }
+    }
+
+    private byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String binaryName(Class<?> type) {
+        return type.getSimpleName() + ".bin";
+    }
+
+    private static String legacyName(Class<?> type) {
+        return type.getSimpleName() + ".dat";
+    }
+
+    public boolean save(Object obj) {
+        return write(obj) >= 0;
+    }
+
+    // The payload is built in memory first so a failing encoder never touches the files on disk. The version is
+    // read before encoding, so a change racing with the write leaves the object dirty for the next flush.
+    // Encoding and writing happen under one lock shared by the flusher and journal compaction: a snapshot taken
+    // later is also written later, so an older payload can never replace one the journal was compacted against.
+    // It is not the store's monitor, which the shutdown hook holds while the journal writer finishes compacting.
+    private long write(Object obj) {
+        synchronized (writeLock) {
+            try {
+                long version = obj instanceof Versioned versioned ? versioned.modificationVersion() : 0;
+                Codec<Object> codec = codecFor(obj.getClass());
+                byte[] payload = codec != null ? encode(codec, obj) : serialize(obj);
+                backend.write(codec != null ? binaryName(obj.getClass()) : legacyName(obj.getClass()), payload);
+                if (obj instanceof Versioned) flushedVersions.put(obj.getClass(), version);
+                bytesWritten.addAndGet(payload.length);
+                return payload.length;
+            } catch (Exception e) {
+                System.err.println("Failed to save " + obj.getClass().getSimpleName() + ": " + e.getMessage());
+                return -1;
             }
-        } catch (Exception e) {
-            System.err.println("Failed to save " + obj.getClass().getSimpleName() + ": " + e.getMessage());
         }
     }
 
@@ -85,17 +337,136 @@ public class DataStore {
         singletons.values().forEach(this::save);
     }
 
-    private void preloadAll() {
-        for (Class<?> c : factories.keySet()) {
-            File file = new File(dataDir, c.getSimpleName() + ".dat");
-            if (file.exists()) {
-                System.out.println("Preloading " + c.getSimpleName() + "...");
-                get(c);
+    // Writes the singletons that changed since their last write; objects without a version are always written
+    public synchronized int flush() {
+        long start = System.nanoTime();
+        int written = 0;
+        for (Object obj : singletons.values()) {
+            if (obj instanceof Versioned versioned) {
+                Long flushed = flushedVersions.get(obj.getClass());
+                if (flushed != null && flushed == versioned.modificationVersion()) continue;
             }
+            if (write(obj) >= 0) written++;
         }
+        lastFlushNanos = System.nanoTime() - start;
+        totalFlushNanos.addAndGet(lastFlushNanos);
+        flushCount.incrementAndGet();
+        return written;
+    }
+
+    public synchronized void startFlusher(long intervalMillis) {
+        if (flusher != null || intervalMillis <= 0) return;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "datastore-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopFlusher() {
+        if (flusher == null) return;
+        flusher.shutdown();
+        flusher = null;
+    }
+
+    // Runs a flush on the flusher thread as soon as possible; requests made while one is queued are merged.
+    // Called from poll actors, so it must not wait for the store's lock: a running flush may be waiting for
+    // that same actor.
+    public void requestFlush() {
+        ScheduledExecutorService executor = flusher;
+        if (executor == null || !flushRequested.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Background flush failed: " + e.getMessage());
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getLastFlushMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastFlushNanos);
+    }
+
+    public long getTotalFlushMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalFlushNanos.get());
+    }
+
+    public String flushSummary() {
+        return String.format("Data flushes: count=%d written=%d bytes last=%d ms total=%d ms", getFlushCount(),
+            getBytesWritten(), getLastFlushMillis(), getTotalFlushMillis());
+    }
+
+    // Tests keep the store lazy so each type is read only when first asked for
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    // Warm start: loads every registered type in parallel so the first update does not pay for
+    // deserialization and journal replay
+    public Map<Class<?>, LoadStats> preload() {
+        if (lazy) return Map.of();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Class<?> type : factories.keySet()) {
+                executor.submit(() -> {
+                    try {
+                        get(type);
+                    } catch (RuntimeException e) {
+                        System.err.println("Failed to preload " + type.getSimpleName() + ": " + e.getMessage());
+                    }
+                });
+            }
+        }
+        Map<Class<?>, LoadStats> stats = new HashMap<>(loadStats);
+        stats.forEach((type, stat) -> System.out.println("Preloaded " + type.getSimpleName() + " in " + stat.millis()
+            + " ms (" + stat.bytes() + " bytes)"));
+        System.out.println("Preload finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return stats;
+    }
+
+    // Mapped vote ledgers replace the journal for types that support them; must be set before they are loaded
+    public void setMappedLedgers(boolean mappedLedgers) {
+        this.mappedLedgers = mappedLedgers;
+    }
+
+    public Map<Class<?>, LoadStats> getLoadStats() {
+        return Collections.unmodifiableMap(loadStats);
     }
 
     public void setupShutdownHook() {
-        Runtime.getRuntime().addShutdownHook(new Thread(this::saveAll));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopFlusher();
+            synchronized (this) {
+                try {
+                    if (journal != null) journal.close();
+                } catch (RuntimeException e) {
+                    System.err.println("Vote journal not fully flushed: " + e.getMessage());
+                }
+                if (archive != null) archive.close();
+            }
+            for (Object obj : singletons.values())
+                if (obj instanceof LedgerBacked backed) backed.forceLedgers();
+            flush();
+            backend.close();
+        }));
     }
 }
@@ -0,0 +1,56 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.File;
+import java.io.IOException;
+
+// One file per snapshot in the data directory, written through SnapshotFile
+public class FileBackend implements StorageBackend {
+    private final File dataDir;
+    private final SnapshotFile snapshots;
+
+    public FileBackend(File dataDir) {
+        this(dataDir, new SnapshotFile());
+    }
+
+    public FileBackend(File dataDir, SnapshotFile snapshots) {
+        this.dataDir = dataDir;
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public void write(String name, byte[] payload) throws IOException {
+        snapshots.write(new File(dataDir, name), payload);
+    }
+
+    @Override
+    public byte[] read(String name) {
+        return snapshots.read(new File(dataDir, name));
+    }
+
+    @Override
+    public byte[] readUnverified(String name) throws IOException {
+        return snapshots.readUnverified(new File(dataDir, name));
+    }
+
+    @Override
+    public byte[] readPrevious(String name) {
+        return snapshots.readPrevious(new File(dataDir, name));
+    }
+
+    @Override
+    public void preserve(String name) throws IOException {
+        snapshots.preserve(new File(dataDir, name));
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return snapshots.exists(new File(dataDir, name));
+    }
+
+    @Override
+    public void retire(String name) {
+        File file = new File(dataDir, name);
+        if (file.exists() && !file.renameTo(new File(dataDir, name + ".migrated")))
+            System.err.println("Failed to retire " + name);
+    }
+}
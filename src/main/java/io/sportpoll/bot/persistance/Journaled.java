@@ -0,0 +1,6 @@
+package io.sportpoll.bot.persistance;
+
+public interface Journaled {
+    // Called once after the snapshot is loaded; replays newer events and starts recording
+    void attachJournal(VoteJournal journal);
+}
@@ -0,0 +1,12 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.File;
+
+public interface LedgerBacked {
+    // Used instead of the journal in mapped mode; each poll mirrors its live roster into a mapped file in the
+    // directory and is rebuilt from it on load
+    void attachLedgers(File directory);
+
+    // Pushes mapped changes to the disk, e.g. on shutdown
+    void forceLedgers();
+}
@@ -0,0 +1,9 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.IOException;
+
+// Reads a file an older version of the bot wrote for a type that has since been replaced; the result is saved in
+// the current format and the old file is kept aside
+public interface LegacyReader<T> {
+    T read(byte[] payload) throws IOException, ClassNotFoundException;
+}
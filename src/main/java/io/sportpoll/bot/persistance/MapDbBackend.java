@@ -0,0 +1,84 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.mapdb.DB;
+import org.mapdb.Serializer;
+
+// Snapshots live in a named collection inside the bot's MapDB file, next to AbilityBot's own maps, so every
+// write goes through MapDB's commit. Names missing from the collection are read from the fallback, which
+// lets existing files migrate on their next write.
+public class MapDbBackend implements StorageBackend {
+    private static final String COLLECTION = "sportpoll.snapshots";
+
+    private final String databaseName;
+    private final DB db;
+    private final Map<String, byte[]> snapshots;
+    private final StorageBackend fallback;
+
+    public MapDbBackend(String databaseName, StorageBackend fallback) {
+        this.databaseName = databaseName;
+        this.db = BotDatabase.openShared(databaseName);
+        this.snapshots = db.hashMap(COLLECTION, Serializer.STRING, Serializer.BYTE_ARRAY).createOrOpen();
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void write(String name, byte[] payload) throws IOException {
+        try {
+            synchronized (db) {
+                snapshots.put(name, payload);
+                db.commit();
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("MapDB write failed for " + name, e);
+        }
+    }
+
+    @Override
+    public byte[] read(String name) {
+        byte[] payload = snapshots.get(name);
+        return payload != null ? payload : fallback.read(name);
+    }
+
+    @Override
+    public byte[] readUnverified(String name) throws IOException {
+        byte[] payload = snapshots.get(name);
+        return payload != null ? payload : fallback.readUnverified(name);
+    }
+
+    // A commit replaces the entry, so only names still read from the fallback have an older generation
+    @Override
+    public byte[] readPrevious(String name) {
+        return snapshots.containsKey(name) ? null : fallback.readPrevious(name);
+    }
+
+    @Override
+    public void preserve(String name) throws IOException {
+        byte[] payload = snapshots.get(name);
+        if (payload == null) {
+            fallback.preserve(name);
+            return;
+        }
+        write(name + ".corrupt-" + System.currentTimeMillis(), payload);
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return snapshots.containsKey(name) || fallback.exists(name);
+    }
+
+    @Override
+    public void retire(String name) {
+        synchronized (db) {
+            if (snapshots.remove(name) != null) db.commit();
+        }
+        fallback.retire(name);
+    }
+
+    @Override
+    public void close() {
+        BotDatabase.close(databaseName);
+    }
+}
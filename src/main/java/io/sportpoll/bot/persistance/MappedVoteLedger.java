@@ -0,0 +1,361 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// Durable copy of one poll's live roster as fixed-size records in a memory-mapped file, used in place of the vote
+// journal. Every change is a store into the mapping, so it survives a crash of the process as soon as the call
+// returns; force() additionally pushes it to the disk. It is only read back when the poll is loaded: PollManager
+// keeps its working copy and published state on the heap either way, so this trades the journal's replay for a
+// remap rather than saving memory.
+// Records keep arrival order, which is the order votes are numbered in, and a record is published by bumping the
+// count in the header after its bytes are in place.
+public class MappedVoteLedger implements AutoCloseable {
+    public static final int NONE = -1;
+    private static final int MAGIC = 0x5350564C;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 128;
+    private static final int RECORD_BYTES = 256;
+    private static final int NAME_BYTES = 112;
+    private static final int MIN_RECORDS = 64;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    // Header offsets
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_BYTES = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_ACTIVE = 16;
+    private static final int H_TARGET = 20;
+    private static final int H_MESSAGE_ID = 24;
+    private static final int H_STATUS_ID = 28;
+    private static final int H_POLL_ID = 32;
+
+    // Record offsets
+    private static final int R_STATE = 0;
+    private static final int R_OPTION = 1;
+    private static final int R_USER_ID = 8;
+    private static final int R_TIME = 16;
+    private static final int R_NAME = 24;
+    private static final int R_REQUESTER_NAME = R_NAME + NAME_BYTES;
+
+    private static final byte DEAD = 0;
+    private static final byte DIRECT = 1;
+    private static final byte EXTERNAL = 2;
+
+    private final File file;
+    private final Map<Long, Integer> directRecords = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int capacity;
+    private int count;
+    private int live;
+
+    public interface Visitor {
+        void direct(long userId, int optionId, String name, long time);
+
+        void external(long requesterId, String requesterName, String voterName, long time);
+    }
+
+    public MappedVoteLedger(File file) {
+        this.file = file;
+    }
+
+    // Maps the file, creating it when missing; returns false when there was no usable ledger to recover
+    public synchronized boolean open() throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        boolean existed = file.exists() && file.length() >= HEADER_BYTES;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        if (existed) {
+            capacity = (int) ((channel.size() - HEADER_BYTES) / RECORD_BYTES);
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+            if (map.getInt(H_MAGIC) == MAGIC && map.getInt(H_VERSION) == VERSION
+                && map.getInt(H_RECORD_BYTES) == RECORD_BYTES) {
+                count = Math.min(Math.max(0, map.getInt(H_COUNT)), capacity);
+                indexRecords();
+                return true;
+            }
+            System.err.println("Ignoring unreadable vote ledger " + file.getName());
+        }
+        remap(MIN_RECORDS);
+        map.putInt(H_MAGIC, MAGIC);
+        map.putInt(H_VERSION, VERSION);
+        map.putInt(H_RECORD_BYTES, RECORD_BYTES);
+        startPoll(false, 0, null, null, null);
+        return false;
+    }
+
+    public synchronized boolean isActive() {
+        return map.get(H_ACTIVE) != 0;
+    }
+
+    public synchronized int targetVotes() {
+        return map.getInt(H_TARGET);
+    }
+
+    public synchronized Integer messageId() {
+        return readNullableInt(H_MESSAGE_ID);
+    }
+
+    public synchronized Integer statusMessageId() {
+        return readNullableInt(H_STATUS_ID);
+    }
+
+    public synchronized String pollId() {
+        return readString(H_POLL_ID, HEADER_BYTES - H_POLL_ID);
+    }
+
+    public synchronized int size() {
+        return live;
+    }
+
+    // Clears the roster and stores the new poll's header
+    public synchronized void startPoll(boolean active, int targetVotes, Integer messageId, String pollId,
+        Integer statusMessageId) {
+        setCount(0);
+        directRecords.clear();
+        live = 0;
+        map.put(H_ACTIVE, (byte) (active ? 1 : 0));
+        map.putInt(H_TARGET, targetVotes);
+        map.putInt(H_MESSAGE_ID, messageId != null ? messageId : NULL_INT);
+        map.putInt(H_STATUS_ID, statusMessageId != null ? statusMessageId : NULL_INT);
+        writeString(H_POLL_ID, HEADER_BYTES - H_POLL_ID, pollId);
+    }
+
+    public synchronized void setActive(boolean active) {
+        map.put(H_ACTIVE, (byte) (active ? 1 : 0));
+    }
+
+    // A change of option between "yes" and anything else moves the voter to the end, like VoteLedger does
+    public synchronized void putDirect(long userId, int optionId, String name, long time) {
+        Integer existing = directRecords.get(userId);
+        if (existing != null) {
+            int previous = map.get(offset(existing) + R_OPTION);
+            if ((previous == 0) == (optionId == 0)) {
+                int at = offset(existing);
+                map.put(at + R_OPTION, (byte) optionId);
+                map.putLong(at + R_TIME, time);
+                writeString(at + R_NAME, NAME_BYTES, name);
+                return;
+            }
+            kill(existing);
+        }
+        directRecords.put(userId, append(DIRECT, userId, optionId, time, name, null));
+    }
+
+    public synchronized void removeDirect(long userId) {
+        Integer existing = directRecords.get(userId);
+        if (existing != null) kill(existing);
+    }
+
+    public synchronized void appendExternal(long requesterId, String requesterName, String voterName, long time) {
+        append(EXTERNAL, requesterId, 0, time, voterName, requesterName);
+    }
+
+    // Vote numbers count live "yes" records in order; revocations are rare, so this scans instead of indexing
+    public synchronized boolean revoke(int voteNumber) {
+        int record = recordOfVote(voteNumber);
+        if (record == NONE) return false;
+        kill(record);
+        return true;
+    }
+
+    public synchronized int revokeAllExternal(long requesterId) {
+        int removed = 0;
+        for (int record = 0; record < count; record++) {
+            int at = offset(record);
+            if (map.get(at + R_STATE) != EXTERNAL || map.getLong(at + R_USER_ID) != requesterId) continue;
+            kill(record);
+            removed++;
+        }
+        return removed;
+    }
+
+    public synchronized void forEach(Visitor visitor) {
+        for (int record = 0; record < count; record++) {
+            int at = offset(record);
+            byte state = map.get(at + R_STATE);
+            if (state == DIRECT) visitor.direct(map.getLong(at + R_USER_ID), map.get(at + R_OPTION),
+                readString(at + R_NAME, NAME_BYTES), map.getLong(at + R_TIME));
+            else if (state == EXTERNAL) visitor.external(map.getLong(at + R_USER_ID),
+                readString(at + R_REQUESTER_NAME, NAME_BYTES), readString(at + R_NAME, NAME_BYTES),
+                map.getLong(at + R_TIME));
+        }
+    }
+
+    // Mirrors a recorded mutation so the mapping always matches the poll's working copy
+    public synchronized void apply(VoteEvent event) {
+        switch (event) {
+            case VoteEvent.PollCreated e -> startPoll(true, e.targetVotes(), e.messageId(), e.pollId(),
+                e.statusMessageId());
+            case VoteEvent.DirectVote e -> {
+                if (e.optionId() < 0) removeDirect(e.userId());
+                else putDirect(e.userId(), e.optionId(), e.name(), e.time());
+            }
+            case VoteEvent.ExternalVote e -> appendExternal(e.requesterId(), e.requesterName(), e.voterName(),
+                e.time());
+            case VoteEvent.Revoked e -> revoke(e.voteNumber());
+            case VoteEvent.RevokedAll e -> revokeAllExternal(e.requesterId());
+            case VoteEvent.Closed e -> {
+                if (e.reset()) startPoll(false, 0, null, null, null);
+                else setActive(false);
+            }
+        }
+    }
+
+    public synchronized void force() {
+        if (map != null) map.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        force();
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close vote ledger: " + e.getMessage());
+        }
+    }
+
+    private int append(byte state, long userId, int optionId, long time, String name, String requesterName) {
+        if (count == capacity) {
+            // Dead records are dropped before the file grows
+            if (live * 2 <= count) compact();
+            if (count == capacity) remap(capacity * 2);
+        }
+        int record = count;
+        int at = offset(record);
+        map.put(at + R_OPTION, (byte) optionId);
+        map.putLong(at + R_USER_ID, userId);
+        map.putLong(at + R_TIME, time);
+        writeString(at + R_NAME, NAME_BYTES, name);
+        writeString(at + R_REQUESTER_NAME, NAME_BYTES, requesterName);
+        map.put(at + R_STATE, state);
+        setCount(count + 1);
+        live++;
+        return record;
+    }
+
+    private void kill(int record) {
+        int at = offset(record);
+        byte state = map.get(at + R_STATE);
+        if (state == DEAD) return;
+        if (state == DIRECT) directRecords.remove(map.getLong(at + R_USER_ID));
+        map.put(at + R_STATE, DEAD);
+        live--;
+    }
+
+    private int recordOfVote(int voteNumber) {
+        if (voteNumber < 1) return NONE;
+        int seen = 0;
+        for (int record = 0; record < count; record++) {
+            int at = offset(record);
+            byte state = map.get(at + R_STATE);
+            boolean positive = state == EXTERNAL || state == DIRECT && map.get(at + R_OPTION) == 0;
+            if (positive && ++seen == voteNumber) return record;
+        }
+        return NONE;
+    }
+
+    private void indexRecords() {
+        directRecords.clear();
+        live = 0;
+        for (int record = 0; record < count; record++) {
+            byte state = map.get(offset(record) + R_STATE);
+            if (state == DEAD) continue;
+            live++;
+            if (state == DIRECT) directRecords.put(map.getLong(offset(record) + R_USER_ID), record);
+        }
+    }
+
+    // Live records are copied into a new file that replaces the old one in a single rename, so a crash leaves
+    // either the old or the compacted ledger
+    private void compact() {
+        File temp = new File(file.getPath() + ".compact");
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer copy = ByteBuffer.allocate(HEADER_BYTES + live * RECORD_BYTES);
+            copy.put(map.duplicate().position(0).limit(HEADER_BYTES));
+            for (int record = 0; record < count; record++) {
+                int at = offset(record);
+                if (map.get(at + R_STATE) != DEAD) copy.put(map.duplicate().position(at).limit(at + RECORD_BYTES));
+            }
+            copy.putInt(H_COUNT, live);
+            copy.flip();
+            while (copy.hasRemaining())
+                out.write(copy);
+            out.force(true);
+        } catch (IOException e) {
+            System.err.println("Failed to compact vote ledger: " + e.getMessage());
+            return;
+        }
+        try {
+            channel.close();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            remap(capacity);
+            count = map.getInt(H_COUNT);
+            indexRecords();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remap(int records) {
+        try {
+            capacity = records;
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) records * RECORD_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void setCount(int count) {
+        this.count = count;
+        map.putInt(H_COUNT, count);
+    }
+
+    private static int offset(int record) {
+        return HEADER_BYTES + record * RECORD_BYTES;
+    }
+
+    private Integer readNullableInt(int at) {
+        int value = map.getInt(at);
+        return value == NULL_INT ? null : value;
+    }
+
+    // [length][utf-8 bytes], length -1 for null; names longer than the field are cut at a character boundary
+    private void writeString(int at, int fieldBytes, String value) {
+        if (value == null) {
+            map.put(at, (byte) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, fieldBytes - 1);
+        while (length > 0 && length < bytes.length && (bytes[length] & 0xC0) == 0x80)
+            length--;
+        map.put(at, (byte) length);
+        map.put(at + 1, bytes, 0, length);
+    }
+
+    private String readString(int at, int fieldBytes) {
+        int length = map.get(at);
+        if (length < 0) return null;
+        length = Math.min(length, fieldBytes - 1);
+        byte[] bytes = new byte[length];
+        map.get(at + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
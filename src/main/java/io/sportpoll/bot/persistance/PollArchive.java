@@ -0,0 +1,418 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Closed polls, one segment each, appended to a single file:
+// [magic][flags][metaLength][storedLength][rawLength][meta][columns][crc32]
+// The meta block is small and uncompressed so summaries can be listed without decoding the vote columns, which are
+// stored column by column (user ids, options, times, names, inviters) and may be deflated once a segment is old.
+public class PollArchive {
+    public static final int INVITED = -1;
+    private static final int MAGIC = 0x50415243;
+    private static final int FLAG_DEFLATED = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Integer.BYTES * 3;
+    private static final int MAX_SEGMENT_BYTES = 64 << 20;
+
+    private final File file;
+    private final int keepUncompressed;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> archivedPolls = new HashSet<>();
+    private FileChannel channel;
+    private int segmentCount;
+
+    // Index is the poll's position in the archive, so listeners can tell whether they missed one
+    @FunctionalInterface
+    public interface Listener {
+        void appended(int index, ArchivedPoll poll);
+    }
+
+    // An invited row carries the requester's id, the guest's name (null when anonymous) and the requester's name
+    public record Row(long userId, int option, long time, String name, String invitedBy) {
+        public boolean isInvited() {
+            return option == INVITED;
+        }
+    }
+
+    public record Summary(long chatId, String pollId, int targetVotes, long closedAt, int rowCount,
+        int positiveVotes) {
+    }
+
+    public record ArchivedPoll(Summary summary, List<Row> rows) {
+    }
+
+    private record Segment(int flags, byte[] meta, byte[] columns, int rawLength) {
+    }
+
+    public PollArchive(File file) {
+        this(file, 0);
+    }
+
+    // With keepUncompressed above 0, every that many appends the segments older than the newest keepUncompressed
+    // are deflated, so the file is rewritten once per batch rather than on every poll
+    public PollArchive(File file, int keepUncompressed) {
+        this.file = file;
+        this.keepUncompressed = keepUncompressed;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // The segment is forced to disk before this returns. A Telegram poll is archived once: a crash before the
+    // drop of its roster reached the journal brings the roster back, and archiving it again would count it twice.
+    // Returns false when the poll was already in the archive.
+    public synchronized boolean append(ArchivedPoll poll) throws IOException {
+        FileChannel out = open();
+        String key = keyOf(poll.summary());
+        if (key != null && archivedPolls.contains(key)) return false;
+        byte[] columns = encodeColumns(poll.rows());
+        byte[] meta = encodeMeta(poll.summary(), poll.rows().size());
+        byte[] frame = frame(new Segment(0, meta, columns, columns.length));
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        out.force(false);
+        if (key != null) archivedPolls.add(key);
+        int index = segmentCount++;
+        for (Listener listener : listeners) {
+            try {
+                listener.appended(index, poll);
+            } catch (RuntimeException e) {
+                System.err.println("Poll archive listener failed: " + e.getMessage());
+            }
+        }
+        if (keepUncompressed > 0 && segmentCount % keepUncompressed == 0) {
+            try {
+                compressOlderSegments(keepUncompressed);
+            } catch (IOException e) {
+                // The segments stay readable uncompressed; the next batch tries again
+                System.err.println("Failed to compress poll archive: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    // Polls that never reached Telegram have no id and are not told apart
+    private static String keyOf(Summary summary) {
+        return summary.pollId() != null ? summary.chatId() + ":" + summary.pollId() : null;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Decodes only the meta blocks; the columns are streamed through the checksum without being kept, so the list
+    // ends at the same torn or corrupt segment as readAll
+    public synchronized List<Summary> summaries() throws IOException {
+        List<Summary> summaries = new ArrayList<>();
+        for (Segment segment : readSegments(false))
+            summaries.add(decodeMeta(segment.meta()));
+        return summaries;
+    }
+
+    // Decodes every intact segment in archive order; a torn or corrupt tail ends the scan
+    public void forEach(Consumer<ArchivedPoll> consumer) throws IOException {
+        for (ArchivedPoll poll : readAll())
+            consumer.accept(poll);
+    }
+
+    public List<ArchivedPoll> readAll() throws IOException {
+        return read(0, false);
+    }
+
+    // Segments are read sequentially and decoded on the common pool
+    public List<ArchivedPoll> readAllParallel() throws IOException {
+        return read(0, true);
+    }
+
+    public List<ArchivedPoll> readFrom(int first) throws IOException {
+        return read(first, false);
+    }
+
+    private List<ArchivedPoll> read(int first, boolean parallel) throws IOException {
+        List<Segment> segments;
+        synchronized (this) {
+            segments = readSegments();
+        }
+        if (first >= segments.size()) return List.of();
+        var stream = segments.subList(Math.max(0, first), segments.size()).stream();
+        try {
+            return (parallel ? stream.parallel() : stream).map(PollArchive::decode).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static ArchivedPoll decode(Segment segment) {
+        try {
+            Summary summary = decodeMeta(segment.meta());
+            return new ArchivedPoll(summary, decodeColumns(columnsOf(segment), summary.rowCount()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Deflates the columns of every segment except the newest ones; the file is rewritten beside the original and
+    // renamed into place. Returns the number of segments compressed.
+    public synchronized int compressOlderSegments(int keepRecent) throws IOException {
+        List<Segment> segments = readSegments();
+        int limit = segments.size() - Math.max(0, keepRecent);
+        int compressed = 0;
+        for (int i = 0; i < limit; i++) {
+            Segment segment = segments.get(i);
+            if ((segment.flags() & FLAG_DEFLATED) != 0) continue;
+            byte[] deflated = deflate(segment.columns());
+            if (deflated.length >= segment.columns().length) continue;
+            segments.set(i, new Segment(segment.flags() | FLAG_DEFLATED, segment.meta(), deflated,
+                segment.rawLength()));
+            compressed++;
+        }
+        if (compressed == 0) return 0;
+        close();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Segment segment : segments) {
+                ByteBuffer buffer = ByteBuffer.wrap(frame(segment));
+                while (buffer.hasRemaining())
+                    out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        return compressed;
+    }
+
+    public synchronized void close() {
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close poll archive: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    // A torn tail from a crash mid-append is cut off before the first new segment
+    private FileChannel open() throws IOException {
+        if (channel != null) return channel;
+        long validBytes = 0;
+        List<Segment> segments = readSegments();
+        archivedPolls.clear();
+        for (Segment segment : segments) {
+            validBytes += HEADER_BYTES + segment.meta().length + segment.columns().length + Integer.BYTES;
+            String key = keyOf(decodeMeta(segment.meta()));
+            if (key != null) archivedPolls.add(key);
+        }
+        segmentCount = segments.size();
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validBytes);
+        channel.position(validBytes);
+        return channel;
+    }
+
+    private List<Segment> readSegments() throws IOException {
+        return readSegments(true);
+    }
+
+    private List<Segment> readSegments(boolean withColumns) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        if (!file.exists()) return segments;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            while (true) {
+                Segment segment = readSegment(in, withColumns);
+                if (segment == null) break;
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    // Without columns the segment is still checked in full, but its columns are left null
+    private static Segment readSegment(DataInputStream in, boolean withColumns) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) return null;
+            int flags = in.readUnsignedByte();
+            int metaLength = in.readInt();
+            int storedLength = in.readInt();
+            int rawLength = in.readInt();
+            if (!validLengths(metaLength, storedLength) || rawLength < 0 || rawLength > MAX_SEGMENT_BYTES) return null;
+            byte[] meta = new byte[metaLength];
+            in.readFully(meta);
+            CRC32 crc = new CRC32();
+            crc.update(meta);
+            byte[] columns = null;
+            if (withColumns) {
+                columns = new byte[storedLength];
+                in.readFully(columns);
+                crc.update(columns);
+            } else {
+                byte[] chunk = new byte[Math.min(storedLength, 8192)];
+                for (int left = storedLength; left > 0;) {
+                    int length = Math.min(left, chunk.length);
+                    in.readFully(chunk, 0, length);
+                    crc.update(chunk, 0, length);
+                    left -= length;
+                }
+            }
+            if (in.readInt() != (int) crc.getValue()) {
+                System.err.println("Checksum mismatch in poll archive, ignoring the rest of the file");
+                return null;
+            }
+            return new Segment(flags, meta, columns, rawLength);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static boolean validLengths(int metaLength, int storedLength) {
+        return metaLength > 0 && storedLength >= 0 && metaLength + (long) storedLength <= MAX_SEGMENT_BYTES;
+    }
+
+    private static byte[] frame(Segment segment) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + segment.meta().length + segment.columns().length
+            + Integer.BYTES);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) segment.flags());
+        buffer.putInt(segment.meta().length);
+        buffer.putInt(segment.columns().length);
+        buffer.putInt(segment.rawLength());
+        buffer.put(segment.meta());
+        buffer.put(segment.columns());
+        buffer.putInt(checksum(segment.meta(), segment.columns()));
+        return buffer.array();
+    }
+
+    private static int checksum(byte[] meta, byte[] columns) {
+        CRC32 crc = new CRC32();
+        crc.update(meta);
+        crc.update(columns);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeMeta(Summary summary, int rowCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (BinaryWriter out = new BinaryWriter(bytes)) {
+            out.writeVarLong(summary.chatId());
+            out.writeString(summary.pollId());
+            out.writeVarInt(summary.targetVotes());
+            out.writeVarLong(summary.closedAt());
+            out.writeVarInt(rowCount);
+            out.writeVarInt(summary.positiveVotes());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Summary decodeMeta(byte[] meta) throws IOException {
+        BinaryReader in = new BinaryReader(new ByteArrayInputStream(meta));
+        return new Summary(in.readVarLong(), in.readString(), in.readVarInt(), in.readVarLong(), in.readVarInt(),
+            in.readVarInt());
+    }
+
+    // Times are delta-encoded against the previous row; names share one string table across the segment
+    private static byte[] encodeColumns(List<Row> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 16 + 16);
+        try (BinaryWriter out = new BinaryWriter(bytes)) {
+            for (Row row : rows)
+                out.writeVarLong(row.userId());
+            for (Row row : rows)
+                out.writeByte(row.option() + 1);
+            long previous = 0;
+            for (Row row : rows) {
+                out.writeVarLong(row.time() - previous);
+                previous = row.time();
+            }
+            for (Row row : rows)
+                out.writeString(row.name());
+            for (Row row : rows)
+                if (row.isInvited()) out.writeString(row.invitedBy());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Row> decodeColumns(byte[] columns, int rowCount) throws IOException {
+        BinaryReader in = new BinaryReader(new ByteArrayInputStream(columns));
+        long[] userIds = new long[rowCount];
+        int[] options = new int[rowCount];
+        long[] times = new long[rowCount];
+        String[] names = new String[rowCount];
+        for (int i = 0; i < rowCount; i++)
+            userIds[i] = in.readVarLong();
+        for (int i = 0; i < rowCount; i++)
+            options[i] = in.readByte() - 1;
+        long previous = 0;
+        for (int i = 0; i < rowCount; i++)
+            previous = times[i] = previous + in.readVarLong();
+        for (int i = 0; i < rowCount; i++)
+            names[i] = in.readString();
+        List<Row> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            String invitedBy = options[i] == INVITED ? in.readString() : null;
+            rows.add(new Row(userIds[i], options[i], times[i], names[i], invitedBy));
+        }
+        return rows;
+    }
+
+    private static byte[] columnsOf(Segment segment) throws IOException {
+        return (segment.flags() & FLAG_DEFLATED) != 0 ? inflate(segment.columns(), segment.rawLength())
+            : segment.columns();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished())
+                out.write(chunk, 0, deflater.deflate(chunk));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                read += n;
+            }
+            if (read != rawLength) throw new IOException("Truncated archive segment");
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive segment", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Snapshots are written beside the target, forced to disk and renamed into place; the copy they replace is
+// kept as <name>.prev. A footer of [length][crc32][magic] marks a complete write.
+public class SnapshotFile {
+    private static final int FOOTER_MAGIC = 0x534E4150;
+    private static final int FOOTER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    public synchronized void write(File target, byte[] payload) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES)
+            .putLong(payload.length)
+            .putLong(checksum(payload, payload.length))
+            .putInt(FOOTER_MAGIC);
+        footer.flip();
+        try (FileChannel channel = openForWrite(temp.toPath())) {
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (body.hasRemaining())
+                channel.write(body);
+            while (footer.hasRemaining())
+                channel.write(footer);
+            channel.force(true);
+        }
+        if (target.exists()) move(target.toPath(), previous(target).toPath());
+        move(temp.toPath(), target.toPath());
+        syncDirectory(target.getAbsoluteFile().getParentFile());
+    }
+
+    // The two file-system steps of a write; tests override them to fail a write part way through
+    protected FileChannel openForWrite(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    protected void move(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Payload of the newest intact generation, or null when neither verifies
+    public byte[] read(File target) {
+        byte[] payload = readVerified(target);
+        if (payload != null) return payload;
+        File previous = previous(target);
+        payload = readVerified(previous);
+        if (payload != null) System.err.println("Recovered " + target.getName() + " from previous snapshot");
+        return payload;
+    }
+
+    // The older generation alone, for a newest one that verifies but no longer decodes
+    public byte[] readPrevious(File target) {
+        return readVerified(previous(target));
+    }
+
+    // Copies both generations aside before a write could rotate away one that failed to decode
+    public void preserve(File target) throws IOException {
+        String suffix = ".corrupt-" + System.currentTimeMillis();
+        for (File file : new File[] { target, previous(target) }) {
+            if (!file.exists()) continue;
+            File copy = new File(file.getPath() + suffix);
+            Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.err.println("Kept a copy of " + file.getName() + " as " + copy.getName());
+        }
+    }
+
+    public boolean exists(File target) {
+        return target.exists() || previous(target).exists();
+    }
+
+    // Files written before snapshots had a footer; they are accepted as-is only when nothing verified
+    public byte[] readUnverified(File target) throws IOException {
+        return target.exists() ? Files.readAllBytes(target.toPath()) : null;
+    }
+
+    private static byte[] readVerified(File file) {
+        if (!file.exists()) return null;
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < FOOTER_BYTES) return null;
+            ByteBuffer footer = ByteBuffer.wrap(bytes, bytes.length - FOOTER_BYTES, FOOTER_BYTES);
+            long length = footer.getLong();
+            long crc = footer.getLong();
+            if (footer.getInt() != FOOTER_MAGIC || length != bytes.length - FOOTER_BYTES) return null;
+            if (checksum(bytes, (int) length) != crc) {
+                System.err.println("Checksum mismatch in " + file.getName());
+                return null;
+            }
+            return Arrays.copyOf(bytes, (int) length);
+        } catch (IOException e) {
+            System.err.println("Failed to read " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static File previous(File target) {
+        return new File(target.getPath() + ".prev");
+    }
+
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    // Makes the renames themselves durable; not every platform can open a directory, which is harmless
+    private static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.IOException;
+
+// Where DataStore keeps its snapshots, addressed by name such as "PollRegistry.bin"
+public interface StorageBackend {
+    // Must be atomic: readers see either the previous payload or the new one
+    void write(String name, byte[] payload) throws IOException;
+
+    // The newest intact payload, or null when there is none
+    byte[] read(String name);
+
+    // The generation before the newest one, or null when the backend keeps only one
+    byte[] readPrevious(String name);
+
+    // Keeps a copy of a payload that could not be decoded, so later writes never replace the only one
+    void preserve(String name) throws IOException;
+
+    // Payloads written before integrity checks existed
+    byte[] readUnverified(String name) throws IOException;
+
+    boolean exists(String name);
+
+    // Drops a payload that was migrated elsewhere
+    void retire(String name);
+
+    default void close() {
+    }
+}
@@ -0,0 +1,11 @@
+package io.sportpoll.bot.persistance;
+
+public interface Versioned {
+    // Grows with every change worth persisting; the flusher skips objects whose version it already wrote
+    long modificationVersion();
+
+    // Called by DataStore with a hook that writes this object soon, for transitions that should not wait
+    // for the next interval
+    default void setFlushHook(Runnable hook) {
+    }
+}
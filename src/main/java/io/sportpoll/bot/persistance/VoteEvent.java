@@ -0,0 +1,32 @@
+package io.sportpoll.bot.persistance;
+
+// Journaled poll mutations, replayed in order on startup
+public sealed interface VoteEvent {
+    long chatId();
+
+    record PollCreated(long chatId, int targetVotes, Integer messageId, String pollId, Integer statusMessageId)
+        implements VoteEvent {
+    }
+
+    record DirectVote(long chatId, long userId, int optionId, String name, long time) implements VoteEvent {
+        public DirectVote(long chatId, long userId, int optionId, String name) {
+            this(chatId, userId, optionId, name, 0);
+        }
+    }
+
+    record ExternalVote(long chatId, long requesterId, String requesterName, String voterName, long time)
+        implements VoteEvent {
+        public ExternalVote(long chatId, long requesterId, String requesterName, String voterName) {
+            this(chatId, requesterId, requesterName, voterName, 0);
+        }
+    }
+
+    record Revoked(long chatId, int voteNumber) implements VoteEvent {
+    }
+
+    record RevokedAll(long chatId, long requesterId) implements VoteEvent {
+    }
+
+    record Closed(long chatId, boolean reset) implements VoteEvent {
+    }
+}
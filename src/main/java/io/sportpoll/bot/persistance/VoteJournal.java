@@ -0,0 +1,379 @@
+package io.sportpoll.bot.persistance;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+// Append-only log of poll mutations. Records are framed as [length][seq][payload][crc32]; a background
+// writer batches whatever is queued into one write and one fsync (group commit).
+public class VoteJournal {
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final File file;
+    private final int compactEvery;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Object appendLock = new Object();
+    private FileChannel channel;
+    private Thread writer;
+    private volatile BooleanSupplier snapshotter;
+    private long nextSeq = 1;
+    private int writtenSinceCompaction;
+    private volatile boolean closed;
+    private volatile RuntimeException writerFailure;
+
+    private record Pending(long seq, byte[] frame, CompletableFuture<Void> durable) {
+    }
+
+    @FunctionalInterface
+    public interface Replayer {
+        void apply(long seq, VoteEvent event);
+    }
+
+    public VoteJournal(File file, int compactEvery) {
+        this.file = file;
+        this.compactEvery = compactEvery;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Reads every intact record, drops a torn tail left by a crash and opens the file for appending
+    public synchronized void replay(Replayer replayer) throws IOException {
+        long validBytes = 0;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                while (true) {
+                    Record record = readRecord(in);
+                    if (record == null) break;
+                    nextSeq = Math.max(nextSeq, record.seq() + 1);
+                    replayer.apply(record.seq(), record.event());
+                    validBytes += record.size();
+                }
+            }
+        }
+        open(validBytes);
+    }
+
+    public synchronized void advanceTo(long lastSeq) {
+        synchronized (appendLock) {
+            nextSeq = Math.max(nextSeq, lastSeq + 1);
+        }
+    }
+
+    public void setSnapshotter(BooleanSupplier snapshotter) {
+        this.snapshotter = snapshotter;
+    }
+
+    // Returns the event's sequence number; the record becomes durable with the writer's next fsync
+    public long append(VoteEvent event) {
+        return append(event, seq -> {});
+    }
+
+    // Runs onSequenced under the append lock, so the compaction watermark never passes an event whose effect the
+    // snapshot cannot see yet
+    public long append(VoteEvent event, LongConsumer onSequenced) {
+        byte[] payload = encode(event);
+        synchronized (appendLock) {
+            long seq = nextSeq++;
+            if (closed || writerFailure != null) {
+                System.err.println("Vote journal " + (closed ? "closed" : "stopped") + ", dropping event " + seq);
+            } else {
+                queue.add(new Pending(seq, frame(seq, payload), null));
+            }
+            onSequenced.accept(seq);
+            return seq;
+        }
+    }
+
+    // Waits until everything appended so far is on disk; throws once the writer has died, since nothing
+    // appended after that will ever be written
+    public void flush() {
+        if (closed || writer == null) return;
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        queue.add(new Pending(0, null, durable));
+        // A dying writer fails what it finds queued; this covers a marker queued after it looked
+        RuntimeException failure = writerFailure;
+        if (failure != null) durable.completeExceptionally(failure);
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Vote journal writer stopped", e.getCause());
+        }
+    }
+
+    public synchronized void close() {
+        if (closed) return;
+        try {
+            flush();
+        } finally {
+            closed = true;
+            if (writer != null) writer.interrupt();
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close vote journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private void open(long validBytes) throws IOException {
+        if (channel != null) return;
+        file.getParentFile().mkdirs();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validBytes);
+        channel.position(validBytes);
+        writer = new Thread(this::writeLoop, "vote-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        try {
+            while (!closed) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch);
+                try {
+                    writeBatch(batch);
+                } catch (IOException e) {
+                    System.err.println("Failed to write vote journal: " + e.getMessage());
+                }
+                for (Pending pending : batch)
+                    if (pending.durable() != null) pending.durable().complete(null);
+                batch.clear();
+                if (compactEvery > 0 && writtenSinceCompaction >= compactEvery) compact();
+            }
+        } catch (RuntimeException e) {
+            // Published before draining, so a flush that queues its marker later sees it and does not wait
+            writerFailure = e;
+            System.err.println("Vote journal writer stopped: " + e);
+            queue.drainTo(batch);
+            for (Pending pending : batch)
+                if (pending.durable() != null) pending.durable().completeExceptionally(e);
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        int bytes = 0;
+        for (Pending pending : batch)
+            if (pending.frame() != null) bytes += pending.frame().length;
+        if (bytes == 0) return;
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        for (Pending pending : batch) {
+            if (pending.frame() == null) continue;
+            buffer.put(pending.frame());
+            writtenSinceCompaction++;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        channel.force(false);
+    }
+
+    // Every event numbered below the watermark was published before the snapshot started, so only
+    // records at or above it need to survive
+    private void compact() {
+        BooleanSupplier snapshot = snapshotter;
+        if (snapshot == null) return;
+        long watermark;
+        synchronized (appendLock) {
+            watermark = nextSeq;
+        }
+        if (!snapshot.getAsBoolean()) return;
+        File compacted = new File(file.getPath() + ".compact");
+        try {
+            channel.force(false);
+            int kept = 0;
+            try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())));
+                FileChannel out = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (true) {
+                    Record record = readRecord(in);
+                    if (record == null) break;
+                    if (record.seq() < watermark) continue;
+                    ByteBuffer frame = ByteBuffer.wrap(frame(record.seq(), encode(record.event())));
+                    while (frame.hasRemaining())
+                        out.write(frame);
+                    kept++;
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            writtenSinceCompaction = kept;
+        } catch (IOException e) {
+            System.err.println("Failed to compact vote journal: " + e.getMessage());
+            reopenAfterFailure();
+        }
+    }
+
+    private void reopenAfterFailure() {
+        try {
+            if (!channel.isOpen()) {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Record(long seq, VoteEvent event, int size) {
+    }
+
+    private static Record readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) return null;
+            long seq = in.readLong();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            int checksum = in.readInt();
+            if (checksum != checksum(seq, payload)) return null;
+            VoteEvent event = decode(payload);
+            return event == null ? null : new Record(seq, event, HEADER_BYTES + length + Integer.BYTES);
+        } catch (EOFException | UTFDataFormatException e) {
+            return null;
+        }
+    }
+
+    private static byte[] frame(long seq, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length + Integer.BYTES);
+        buffer.putInt(payload.length);
+        buffer.putLong(seq);
+        buffer.put(payload);
+        buffer.putInt(checksum(seq, payload));
+        return buffer.array();
+    }
+
+    private static int checksum(long seq, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(seq).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static byte[] encode(VoteEvent event) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            switch (event) {
+                case VoteEvent.PollCreated e -> {
+                    out.writeByte(1);
+                    out.writeLong(e.chatId());
+                    out.writeInt(e.targetVotes());
+                    writeNullableInt(out, e.messageId());
+                    writeNullableString(out, e.pollId());
+                    writeNullableInt(out, e.statusMessageId());
+                }
+                case VoteEvent.DirectVote e -> {
+                    out.writeByte(2);
+                    out.writeLong(e.chatId());
+                    out.writeLong(e.userId());
+                    out.writeInt(e.optionId());
+                    writeNullableString(out, e.name());
+                    out.writeLong(e.time());
+                }
+                case VoteEvent.ExternalVote e -> {
+                    out.writeByte(3);
+                    out.writeLong(e.chatId());
+                    out.writeLong(e.requesterId());
+                    writeNullableString(out, e.requesterName());
+                    writeNullableString(out, e.voterName());
+                    out.writeLong(e.time());
+                }
+                case VoteEvent.Revoked e -> {
+                    out.writeByte(4);
+                    out.writeLong(e.chatId());
+                    out.writeInt(e.voteNumber());
+                }
+                case VoteEvent.RevokedAll e -> {
+                    out.writeByte(5);
+                    out.writeLong(e.chatId());
+                    out.writeLong(e.requesterId());
+                }
+                case VoteEvent.Closed e -> {
+                    out.writeByte(6);
+                    out.writeLong(e.chatId());
+                    out.writeBoolean(e.reset());
+                }
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static VoteEvent decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int type = in.readByte();
+        long chatId = in.readLong();
+        return switch (type) {
+            case 1 -> new VoteEvent.PollCreated(chatId, in.readInt(), readNullableInt(in), readNullableString(in),
+                readNullableInt(in));
+            case 2 -> new VoteEvent.DirectVote(chatId, in.readLong(), in.readInt(), readNullableString(in),
+                readOptionalTime(in));
+            case 3 -> new VoteEvent.ExternalVote(chatId, in.readLong(), readNullableString(in),
+                readNullableString(in), readOptionalTime(in));
+            case 4 -> new VoteEvent.Revoked(chatId, in.readInt());
+            case 5 -> new VoteEvent.RevokedAll(chatId, in.readLong());
+            case 6 -> new VoteEvent.Closed(chatId, in.readBoolean());
+            default -> null;
+        };
+    }
+
+    // Vote times were added after the first records were written
+    private static long readOptionalTime(DataInputStream in) throws IOException {
+        return in.available() >= Long.BYTES ? in.readLong() : 0;
+    }
+
+    private static void writeNullableInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeInt(value);
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
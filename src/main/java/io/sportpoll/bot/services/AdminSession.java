@@ -15,8 +15,12 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMa
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 public class AdminSession {
+    private static final int STATS_PLAYERS = 15;
+    private static final int STATS_INVITES = 10;
     private final long chatId;
-    private final PollManager pollManager;
+    // Null when the session was opened for a single poll
+    private final PollRegistry pollRegistry;
+    private PollManager pollManager;
     private final WeeklyPollScheduler weeklyScheduler;
     private PollData currentPollData;
     private Integer lastMenuMessageId;
@@ -55,21 +59,41 @@ public class AdminSession {
 
     public AdminSession(Update update, org.telegram.telegrambots.meta.generics.TelegramClient telegramClient,
         PollManager pollManager) {
-        this.chatId = update.hasMessage() ? update.getMessage().getChatId()
-            : update.getCallbackQuery().getMessage().getChatId();
-        this.pollManager = pollManager;
-        this.weeklyScheduler = DataStore.getInstance().get(WeeklyPollScheduler.class);
-        this.telegramClient = telegramClient;
+        this(update, telegramClient, null, pollManager);
+    }
+
+    // Starts on the default group; the admin can switch to any group the registry knows
+    public AdminSession(Update update, org.telegram.telegrambots.meta.generics.TelegramClient telegramClient,
+        PollRegistry pollRegistry) {
+        this(update, telegramClient, pollRegistry, pollRegistry.getDefault());
     }
 
     public AdminSession(Update update, org.telegram.telegrambots.meta.generics.TelegramClient telegramClient) {
-        this(update, telegramClient, DataStore.getInstance().get(PollManager.class));
+        this(update, telegramClient, DataStore.getInstance().get(PollRegistry.class));
     }
 
     public AdminSession(Update update, PollManager pollManager) {
         this(update, TelegramClientService.getInstance(), pollManager);
     }
 
+    public AdminSession(Update update, PollRegistry pollRegistry) {
+        this(update, TelegramClientService.getInstance(), pollRegistry);
+    }
+
+    private AdminSession(Update update, org.telegram.telegrambots.meta.generics.TelegramClient telegramClient,
+        PollRegistry pollRegistry, PollManager pollManager) {
+        this.chatId = update.hasMessage() ? update.getMessage().getChatId()
+            : update.getCallbackQuery().getMessage().getChatId();
+        this.pollRegistry = pollRegistry;
+        this.pollManager = pollManager;
+        this.weeklyScheduler = DataStore.getInstance().get(WeeklyPollScheduler.class);
+        this.telegramClient = telegramClient;
+    }
+
+    public long getSelectedChatId() {
+        return pollManager.getChatId();
+    }
+
     public void handleUpdate(Update update) throws TelegramApiException {
         if (update.hasCallbackQuery()) {
             String callbackData = update.getCallbackQuery().getData();
@@ -86,7 +110,32 @@ public class AdminSession {
 
     private void showMainMenu(Update update) {
         boolean hasActivePoll = pollManager.hasActivePoll();
-        sendPage(Pages.MainMenuPage.getText(hasActivePoll), Pages.MainMenuPage.getKeyboard(hasActivePoll));
+        boolean canSelectGroup = pollRegistry != null && pollRegistry.getGroupChatIds().size() > 1;
+        sendPage(Pages.MainMenuPage.getText(hasActivePoll, canSelectGroup ? pollManager.getChatId() : null),
+            Pages.MainMenuPage.getKeyboard(hasActivePoll, canSelectGroup));
+    }
+
+    private void showGroupMenu() {
+        sendPage(Pages.GroupPage.getText(),
+            Pages.GroupPage.getKeyboard(pollRegistry.getGroupChatIds(), pollManager.getChatId()));
+    }
+
+    // Only registered groups can be picked, so a forged callback cannot open a poll in an arbitrary chat
+    private void selectGroup(long groupChatId, Update update) {
+        if (pollRegistry.getGroupChatIds().contains(groupChatId)) {
+            pollManager = pollRegistry.getOrCreate(groupChatId);
+            currentPollData = null;
+        }
+        showMainMenu(update);
+    }
+
+    // Callback data comes from the client, so a malformed id is ignored like any other unknown callback
+    private static Long parseChatId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     private void showPollMenu(Update update) {
@@ -116,6 +165,25 @@ public class AdminSession {
         sendPage(text, Pages.WeeklySettingsPage.getKeyboard(config.isEnabled()));
     }
 
+    private void showStats(String notice) {
+        AttendanceStats stats = DataStore.getInstance().get(AttendanceStats.class);
+        AttendanceStats.Report report = stats.report(pollManager.getChatId(), STATS_PLAYERS, STATS_INVITES);
+        sendPage(Pages.StatsPage.getText(report, notice), Pages.StatsPage.getKeyboard());
+    }
+
+    private void rebuildStats() {
+        String notice;
+        try {
+            AttendanceStats.RebuildResult result = DataStore.getInstance().get(AttendanceStats.class).rebuild();
+            notice = String.format(UIText.STATS_REBUILT, result.polls(), result.millis(),
+                result.matched() ? UIText.STATS_REBUILD_MATCHED : UIText.STATS_REBUILD_FIXED);
+        } catch (java.io.IOException e) {
+            System.err.println("Failed to rebuild attendance stats: " + e.getMessage());
+            notice = UIText.STATS_REBUILD_FAILED;
+        }
+        showStats(notice);
+    }
+
     private void handleCallback(String callbackData, Update update) throws TelegramApiException {
         if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
             lastMenuMessageId = update.getCallbackQuery().getMessage().getMessageId();
@@ -127,6 +195,10 @@ public class AdminSession {
                     case "create" -> showPollMenu(update);
                     case "weekly" -> showWeeklyMenu(update);
                     case "menu" -> showMainMenu(update);
+                    case "stats" -> showStats(null);
+                    case "group" -> {
+                        if (pollRegistry != null) showGroupMenu();
+                    }
                     case "close" -> {
                         try {
                             boolean wasClosed = pollManager.closeCurrentPollSilent();
@@ -169,6 +241,13 @@ public class AdminSession {
                     case "menu" -> showPollMenu(update);
                 }
             }
+            case "stats" -> {
+                if (parts.length > 1 && "rebuild".equals(parts[1])) rebuildStats();
+            }
+            case "group" -> {
+                Long groupChatId = parts.length > 1 ? parseChatId(parts[1]) : null;
+                if (pollRegistry != null && groupChatId != null) selectGroup(groupChatId, update);
+            }
             case "weekly" -> {
                 var config = weeklyScheduler.getConfig();
                 if ("day".equals(parts[1]) && parts.length == 3) {
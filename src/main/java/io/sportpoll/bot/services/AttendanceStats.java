@@ -0,0 +1,245 @@
+package io.sportpoll.bot.services;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.sportpoll.bot.persistance.Archiving;
+import io.sportpoll.bot.persistance.PollArchive;
+import io.sportpoll.bot.persistance.Versioned;
+
+// Attendance aggregates per chat, updated from each poll as it is archived so reading them never scans history.
+// appliedPolls is the number of archive segments folded in; a poll archived while the stats were not loaded is
+// caught up from the archive on the next attach or append.
+public class AttendanceStats implements Serializable, Archiving, Versioned {
+    private Map<Long, ChatStats> chats = new HashMap<>();
+    private volatile int appliedPolls;
+    private transient volatile PollArchive archive;
+    private transient volatile long modificationVersion;
+    private transient volatile Runnable flushHook;
+
+    public record PlayerSummary(long userId, String name, int attended, int eligible, int streak, int bestStreak) {
+        public int ratePercent() {
+            return eligible == 0 ? 0 : Math.round(attended * 100f / eligible);
+        }
+    }
+
+    public record InviteSummary(long inviterId, String inviter, String guest, int count) {
+    }
+
+    public record Report(int polls, List<PlayerSummary> players, List<InviteSummary> invites) {
+    }
+
+    public record RebuildResult(int polls, long millis, boolean matched) {
+    }
+
+    static final class PlayerStats implements Serializable {
+        String name;
+        int attended;
+        int declined;
+        int firstPoll;
+        int lastAttended;
+        int streak;
+        int bestStreak;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PlayerStats p && Objects.equals(name, p.name) && attended == p.attended
+                && declined == p.declined && firstPoll == p.firstPoll && lastAttended == p.lastAttended
+                && streak == p.streak && bestStreak == p.bestStreak;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, attended, declined, firstPoll, lastAttended, streak, bestStreak);
+        }
+    }
+
+    static final class InviterStats implements Serializable {
+        String name;
+        Map<String, Integer> guests = new HashMap<>();
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof InviterStats i && Objects.equals(name, i.name) && guests.equals(i.guests);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, guests);
+        }
+    }
+
+    static final class ChatStats implements Serializable {
+        int polls;
+        Map<Long, PlayerStats> players = new HashMap<>();
+        Map<Long, InviterStats> inviters = new HashMap<>();
+
+        // O(rows of the poll): each voter's counters and streak are updated in place
+        void apply(PollArchive.ArchivedPoll poll) {
+            int index = ++polls;
+            for (PollArchive.Row row : poll.rows()) {
+                if (row.isInvited()) {
+                    InviterStats inviter = inviters.computeIfAbsent(row.userId(), id -> new InviterStats());
+                    if (row.invitedBy() != null) inviter.name = row.invitedBy();
+                    inviter.guests.merge(row.name(), 1, Integer::sum);
+                    continue;
+                }
+                PlayerStats player = players.computeIfAbsent(row.userId(), id -> new PlayerStats());
+                if (player.firstPoll == 0) player.firstPoll = index;
+                if (row.name() != null) player.name = row.name();
+                if (row.option() != 0) {
+                    player.declined++;
+                    continue;
+                }
+                player.attended++;
+                player.streak = player.lastAttended == index - 1 ? player.streak + 1 : 1;
+                player.bestStreak = Math.max(player.bestStreak, player.streak);
+                player.lastAttended = index;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ChatStats c && polls == c.polls && players.equals(c.players)
+                && inviters.equals(c.inviters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(polls, players, inviters);
+        }
+    }
+
+    @Override
+    public void attachArchive(PollArchive archive) {
+        this.archive = archive;
+        archive.addListener(this::onArchived);
+        try {
+            applyFrom(appliedPolls, archive.readFrom(appliedPolls));
+        } catch (IOException e) {
+            System.err.println("Failed to catch up attendance stats: " + e.getMessage());
+        }
+    }
+
+    // Runs on the archiving thread; a gap means polls were archived before the stats were attached
+    private void onArchived(int index, PollArchive.ArchivedPoll poll) {
+        int applied = appliedPolls;
+        if (index < applied) return;
+        if (index == applied) {
+            applyFrom(index, List.of(poll));
+            return;
+        }
+        try {
+            applyFrom(applied, archive.readFrom(applied));
+        } catch (IOException e) {
+            System.err.println("Failed to catch up attendance stats: " + e.getMessage());
+        }
+    }
+
+    private void applyFrom(int first, List<PollArchive.ArchivedPoll> polls) {
+        boolean changed = false;
+        synchronized (this) {
+            for (int i = 0; i < polls.size(); i++) {
+                if (first + i != appliedPolls) continue;
+                PollArchive.ArchivedPoll poll = polls.get(i);
+                chats.computeIfAbsent(poll.summary().chatId(), id -> new ChatStats()).apply(poll);
+                appliedPolls++;
+                changed = true;
+            }
+            if (changed) modificationVersion++;
+        }
+        Runnable hook = flushHook;
+        if (changed && hook != null) hook.run();
+    }
+
+    // Recomputes everything from the archive, one chat per task, and reports whether the incremental aggregates
+    // had drifted from the archive
+    public RebuildResult rebuild() throws IOException {
+        PollArchive source = archive;
+        if (source == null) throw new IOException("Poll archive is not attached");
+        long start = System.nanoTime();
+        List<PollArchive.ArchivedPoll> polls = source.readAllParallel();
+        Map<Long, List<PollArchive.ArchivedPoll>> byChat = new LinkedHashMap<>();
+        for (PollArchive.ArchivedPoll poll : polls)
+            byChat.computeIfAbsent(poll.summary().chatId(), id -> new ArrayList<>()).add(poll);
+        Map<Long, ChatStats> rebuilt = new ConcurrentHashMap<>();
+        byChat.entrySet().parallelStream().forEach(entry -> {
+            ChatStats stats = new ChatStats();
+            entry.getValue().forEach(stats::apply);
+            rebuilt.put(entry.getKey(), stats);
+        });
+        boolean matched;
+        synchronized (this) {
+            matched = appliedPolls == polls.size() && chats.equals(rebuilt);
+            chats = new HashMap<>(rebuilt);
+            appliedPolls = polls.size();
+            modificationVersion++;
+        }
+        Runnable hook = flushHook;
+        if (hook != null) hook.run();
+        return new RebuildResult(polls.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), matched);
+    }
+
+    // Players ordered by attendance rate, then by games played; current streaks end at the latest poll
+    public synchronized Report report(long chatId, int maxPlayers, int maxInvites) {
+        ChatStats chat = chats.get(chatId);
+        if (chat == null) return new Report(0, List.of(), List.of());
+        List<PlayerSummary> players = new ArrayList<>();
+        chat.players.forEach((userId, player) -> {
+            if (player.attended == 0) return;
+            int streak = player.lastAttended == chat.polls ? player.streak : 0;
+            players.add(new PlayerSummary(userId, player.name, player.attended, chat.polls - player.firstPoll + 1,
+                streak, player.bestStreak));
+        });
+        players.sort(Comparator.comparingInt(PlayerSummary::ratePercent)
+            .thenComparingInt(PlayerSummary::attended)
+            .reversed()
+            .thenComparing(PlayerSummary::name, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<InviteSummary> invites = new ArrayList<>();
+        chat.inviters.forEach((inviterId, inviter) -> inviter.guests
+            .forEach((guest, count) -> invites.add(new InviteSummary(inviterId, inviter.name, guest, count))));
+        invites.sort(Comparator.comparingInt(InviteSummary::count).reversed());
+        return new Report(chat.polls, List.copyOf(players.subList(0, Math.min(maxPlayers, players.size()))),
+            List.copyOf(invites.subList(0, Math.min(maxInvites, invites.size()))));
+    }
+
+    synchronized int getAppliedPolls() {
+        return appliedPolls;
+    }
+
+    @Override
+    public long modificationVersion() {
+        return modificationVersion;
+    }
+
+    @Override
+    public void setFlushHook(Runnable hook) {
+        this.flushHook = hook;
+    }
+
+    // Used by AttendanceStatsCodec
+    synchronized Map<Long, ChatStats> chats() {
+        return chats;
+    }
+
+    synchronized void restore(int appliedPolls, Map<Long, ChatStats> chats) {
+        this.appliedPolls = appliedPolls;
+        this.chats = chats;
+    }
+
+    @Serial
+    private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (chats == null) chats = new HashMap<>();
+    }
+}
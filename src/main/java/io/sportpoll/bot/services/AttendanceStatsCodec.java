@@ -0,0 +1,95 @@
+package io.sportpoll.bot.services;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.sportpoll.bot.persistance.BinaryReader;
+import io.sportpoll.bot.persistance.BinaryWriter;
+import io.sportpoll.bot.persistance.Codec;
+
+public class AttendanceStatsCodec implements Codec<AttendanceStats> {
+    private static final int VERSION = 1;
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void write(AttendanceStats stats, BinaryWriter out) throws IOException {
+        synchronized (stats) {
+            out.writeVarInt(stats.getAppliedPolls());
+            Map<Long, AttendanceStats.ChatStats> chats = stats.chats();
+            out.writeVarInt(chats.size());
+            for (var chat : chats.entrySet()) {
+                out.writeVarLong(chat.getKey());
+                writeChat(chat.getValue(), out);
+            }
+        }
+    }
+
+    private static void writeChat(AttendanceStats.ChatStats chat, BinaryWriter out) throws IOException {
+        out.writeVarInt(chat.polls);
+        out.writeVarInt(chat.players.size());
+        for (var entry : chat.players.entrySet()) {
+            AttendanceStats.PlayerStats player = entry.getValue();
+            out.writeVarLong(entry.getKey());
+            out.writeString(player.name);
+            out.writeVarInt(player.attended);
+            out.writeVarInt(player.declined);
+            out.writeVarInt(player.firstPoll);
+            out.writeVarInt(player.lastAttended);
+            out.writeVarInt(player.streak);
+            out.writeVarInt(player.bestStreak);
+        }
+        out.writeVarInt(chat.inviters.size());
+        for (var entry : chat.inviters.entrySet()) {
+            out.writeVarLong(entry.getKey());
+            out.writeString(entry.getValue().name);
+            out.writeVarInt(entry.getValue().guests.size());
+            for (var guest : entry.getValue().guests.entrySet()) {
+                out.writeString(guest.getKey());
+                out.writeVarInt(guest.getValue());
+            }
+        }
+    }
+
+    @Override
+    public AttendanceStats read(BinaryReader in, int version) throws IOException {
+        if (version != VERSION) throw new IOException("Unsupported AttendanceStats version " + version);
+        int appliedPolls = in.readVarInt();
+        Map<Long, AttendanceStats.ChatStats> chats = new HashMap<>();
+        for (int i = in.readVarInt(); i > 0; i--)
+            chats.put(in.readVarLong(), readChat(in));
+        AttendanceStats stats = new AttendanceStats();
+        stats.restore(appliedPolls, chats);
+        return stats;
+    }
+
+    private static AttendanceStats.ChatStats readChat(BinaryReader in) throws IOException {
+        AttendanceStats.ChatStats chat = new AttendanceStats.ChatStats();
+        chat.polls = in.readVarInt();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            long userId = in.readVarLong();
+            AttendanceStats.PlayerStats player = new AttendanceStats.PlayerStats();
+            player.name = in.readString();
+            player.attended = in.readVarInt();
+            player.declined = in.readVarInt();
+            player.firstPoll = in.readVarInt();
+            player.lastAttended = in.readVarInt();
+            player.streak = in.readVarInt();
+            player.bestStreak = in.readVarInt();
+            chat.players.put(userId, player);
+        }
+        for (int i = in.readVarInt(); i > 0; i--) {
+            long inviterId = in.readVarLong();
+            AttendanceStats.InviterStats inviter = new AttendanceStats.InviterStats();
+            inviter.name = in.readString();
+            for (int j = in.readVarInt(); j > 0; j--)
+                inviter.guests.put(in.readString(), in.readVarInt());
+            chat.inviters.put(inviterId, inviter);
+        }
+        return chat;
+    }
+}
@@ -0,0 +1,260 @@
+package io.sportpoll.bot.services;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.SetChatPhoto;
+import org.telegram.telegrambots.meta.api.methods.send.SendAnimation;
+import org.telegram.telegrambots.meta.api.methods.send.SendAudio;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.send.SendMediaGroup;
+import org.telegram.telegrambots.meta.api.methods.send.SendPaidMedia;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.methods.send.SendSticker;
+import org.telegram.telegrambots.meta.api.methods.send.SendVideo;
+import org.telegram.telegrambots.meta.api.methods.send.SendVideoNote;
+import org.telegram.telegrambots.meta.api.methods.send.SendVoice;
+import org.telegram.telegrambots.meta.api.methods.stickers.AddStickerToSet;
+import org.telegram.telegrambots.meta.api.methods.stickers.CreateNewStickerSet;
+import org.telegram.telegrambots.meta.api.methods.stickers.ReplaceStickerInSet;
+import org.telegram.telegrambots.meta.api.methods.stickers.SetStickerSetThumbnail;
+import org.telegram.telegrambots.meta.api.methods.stickers.UploadStickerFile;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageMedia;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+// Passes every call to another client; decorators override the BotApiMethod calls the bot actually makes and
+// leave uploads and downloads as they are
+public abstract class ForwardingTelegramClient implements TelegramClient {
+    protected final TelegramClient delegate;
+
+    protected ForwardingTelegramClient(TelegramClient delegate) {
+        this.delegate = delegate;
+    }
+
+    public TelegramClient getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(Method method)
+        throws TelegramApiException {
+        return delegate.executeAsync(method);
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method)
+        throws TelegramApiException {
+        return delegate.execute(method);
+    }
+
+    @Override
+    public Message execute(SendDocument sendDocument) throws TelegramApiException {
+        return delegate.execute(sendDocument);
+    }
+
+    @Override
+    public Message execute(SendPhoto sendPhoto) throws TelegramApiException {
+        return delegate.execute(sendPhoto);
+    }
+
+    @Override
+    public Boolean execute(SetWebhook setWebhook) throws TelegramApiException {
+        return delegate.execute(setWebhook);
+    }
+
+    @Override
+    public Message execute(SendVideo sendVideo) throws TelegramApiException {
+        return delegate.execute(sendVideo);
+    }
+
+    @Override
+    public Message execute(SendVideoNote sendVideoNote) throws TelegramApiException {
+        return delegate.execute(sendVideoNote);
+    }
+
+    @Override
+    public Message execute(SendSticker sendSticker) throws TelegramApiException {
+        return delegate.execute(sendSticker);
+    }
+
+    @Override
+    public Message execute(SendAudio sendAudio) throws TelegramApiException {
+        return delegate.execute(sendAudio);
+    }
+
+    @Override
+    public Message execute(SendVoice sendVoice) throws TelegramApiException {
+        return delegate.execute(sendVoice);
+    }
+
+    @Override
+    public List<Message> execute(SendMediaGroup sendMediaGroup) throws TelegramApiException {
+        return delegate.execute(sendMediaGroup);
+    }
+
+    @Override
+    public List<Message> execute(SendPaidMedia sendPaidMedia) throws TelegramApiException {
+        return delegate.execute(sendPaidMedia);
+    }
+
+    @Override
+    public Boolean execute(SetChatPhoto setChatPhoto) throws TelegramApiException {
+        return delegate.execute(setChatPhoto);
+    }
+
+    @Override
+    public Boolean execute(AddStickerToSet addStickerToSet) throws TelegramApiException {
+        return delegate.execute(addStickerToSet);
+    }
+
+    @Override
+    public Boolean execute(ReplaceStickerInSet replaceStickerInSet) throws TelegramApiException {
+        return delegate.execute(replaceStickerInSet);
+    }
+
+    @Override
+    public Boolean execute(SetStickerSetThumbnail setStickerSetThumbnail) throws TelegramApiException {
+        return delegate.execute(setStickerSetThumbnail);
+    }
+
+    @Override
+    public Boolean execute(CreateNewStickerSet createNewStickerSet) throws TelegramApiException {
+        return delegate.execute(createNewStickerSet);
+    }
+
+    @Override
+    public org.telegram.telegrambots.meta.api.objects.File execute(UploadStickerFile uploadStickerFile)
+        throws TelegramApiException {
+        return delegate.execute(uploadStickerFile);
+    }
+
+    @Override
+    public Serializable execute(EditMessageMedia editMessageMedia) throws TelegramApiException {
+        return delegate.execute(editMessageMedia);
+    }
+
+    @Override
+    public Message execute(SendAnimation sendAnimation) throws TelegramApiException {
+        return delegate.execute(sendAnimation);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendDocument sendDocument) {
+        return delegate.executeAsync(sendDocument);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendPhoto sendPhoto) {
+        return delegate.executeAsync(sendPhoto);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(SetWebhook setWebhook) {
+        return delegate.executeAsync(setWebhook);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendVideo sendVideo) {
+        return delegate.executeAsync(sendVideo);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendVideoNote sendVideoNote) {
+        return delegate.executeAsync(sendVideoNote);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendSticker sendSticker) {
+        return delegate.executeAsync(sendSticker);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendAudio sendAudio) {
+        return delegate.executeAsync(sendAudio);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendVoice sendVoice) {
+        return delegate.executeAsync(sendVoice);
+    }
+
+    @Override
+    public CompletableFuture<List<Message>> executeAsync(SendMediaGroup sendMediaGroup) {
+        return delegate.executeAsync(sendMediaGroup);
+    }
+
+    @Override
+    public CompletableFuture<List<Message>> executeAsync(SendPaidMedia sendPaidMedia) {
+        return delegate.executeAsync(sendPaidMedia);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(SetChatPhoto setChatPhoto) {
+        return delegate.executeAsync(setChatPhoto);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(AddStickerToSet addStickerToSet) {
+        return delegate.executeAsync(addStickerToSet);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(ReplaceStickerInSet replaceStickerInSet) {
+        return delegate.executeAsync(replaceStickerInSet);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(SetStickerSetThumbnail setStickerSetThumbnail) {
+        return delegate.executeAsync(setStickerSetThumbnail);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(CreateNewStickerSet createNewStickerSet) {
+        return delegate.executeAsync(createNewStickerSet);
+    }
+
+    @Override
+    public CompletableFuture<org.telegram.telegrambots.meta.api.objects.File> executeAsync(
+        UploadStickerFile uploadStickerFile) {
+        return delegate.executeAsync(uploadStickerFile);
+    }
+
+    @Override
+    public CompletableFuture<Serializable> executeAsync(EditMessageMedia editMessageMedia) {
+        return delegate.executeAsync(editMessageMedia);
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendAnimation sendAnimation) {
+        return delegate.executeAsync(sendAnimation);
+    }
+
+    @Override
+    public File downloadFile(org.telegram.telegrambots.meta.api.objects.File file) throws TelegramApiException {
+        return delegate.downloadFile(file);
+    }
+
+    @Override
+    public InputStream downloadFileAsStream(org.telegram.telegrambots.meta.api.objects.File file)
+        throws TelegramApiException {
+        return delegate.downloadFileAsStream(file);
+    }
+
+    @Override
+    public CompletableFuture<File> downloadFileAsync(org.telegram.telegrambots.meta.api.objects.File file) {
+        return delegate.downloadFileAsync(file);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> downloadFileAsStreamAsync(
+        org.telegram.telegrambots.meta.api.objects.File file) {
+        return delegate.downloadFileAsStreamAsync(file);
+    }
+}
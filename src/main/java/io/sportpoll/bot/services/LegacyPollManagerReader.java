@@ -0,0 +1,76 @@
+package io.sportpoll.bot.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import io.sportpoll.bot.models.Vote;
+import io.sportpoll.bot.persistance.LegacyReader;
+
+// Before polls were kept per chat the bot serialized its single PollManager to PollManager.dat. Both classes in
+// that stream have changed shape since, so their descriptors are swapped for copies of the old layout and the
+// poll is imported into the default chat.
+public class LegacyPollManagerReader implements LegacyReader<PollRegistry> {
+    public static final String FILE_NAME = "PollManager.dat";
+
+    // Field names and types must stay exactly as the old classes declared them
+    static class LegacyPollManager implements Serializable {
+        private int targetVotes;
+        private Map<User, Integer> directVoters;
+        private List<LegacyVote> externalVotes;
+        private Integer telegramMessageId;
+        private Integer statusMessageId;
+        private boolean isActive;
+    }
+
+    static class LegacyVote implements Serializable {
+        private String voteId;
+        private long requesterId;
+        private String requesterName;
+        private String voterName;
+        private boolean isAnonymous;
+    }
+
+    private static class RemappingInputStream extends ObjectInputStream {
+        RemappingInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            return switch (descriptor.getName()) {
+                case "io.sportpoll.bot.services.PollManager" -> ObjectStreamClass.lookup(LegacyPollManager.class);
+                case "io.sportpoll.bot.models.Vote" -> ObjectStreamClass.lookup(LegacyVote.class);
+                default -> descriptor;
+            };
+        }
+    }
+
+    @Override
+    public PollRegistry read(byte[] payload) throws IOException, ClassNotFoundException {
+        Object obj;
+        try (ObjectInputStream in = new RemappingInputStream(new ByteArrayInputStream(payload))) {
+            obj = in.readObject();
+        }
+        if (!(obj instanceof LegacyPollManager legacy)) throw new IOException("Not a legacy PollManager snapshot");
+        PollRegistry registry = new PollRegistry();
+        List<Vote> externalVotes = null;
+        if (legacy.externalVotes != null) {
+            externalVotes = new ArrayList<>();
+            for (LegacyVote vote : legacy.externalVotes)
+                externalVotes.add(new Vote(vote.requesterId, vote.requesterName, vote.voterName, 0));
+        }
+        registry.getDefault().restoreLegacy(legacy.isActive, legacy.targetVotes, legacy.telegramMessageId,
+            legacy.statusMessageId, legacy.directVoters, externalVotes);
+        return registry;
+    }
+}
@@ -0,0 +1,262 @@
+package io.sportpoll.bot.services;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.pinnedmessages.PinChatMessage;
+import org.telegram.telegrambots.meta.api.methods.pinnedmessages.UnpinChatMessage;
+import org.telegram.telegrambots.meta.api.methods.polls.SendPoll;
+import org.telegram.telegrambots.meta.api.methods.polls.StopPoll;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.utils.TelegramFutures;
+
+// Sends every Bot API call through a global and a per-chat token bucket, within Telegram's limits of about 30
+// messages a second overall and 20 a minute per group. Waiting calls go out in priority order, and a chat that
+// is out of tokens does not hold up the others. A 429 closes the chat's bucket, or the global one for calls
+// without a chat, for retry_after seconds and puts the call back in its old place.
+public class OutboundScheduler extends ForwardingTelegramClient {
+    private static final int MAX_RATE_LIMIT_RETRIES = 3;
+    private static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+    private static final int PRIVATE_CHAT_BURST = 3;
+    private static final int BUCKET_SWEEP_SIZE = 1024;
+
+    // Replies to users first, pins and deletes next, status edits last
+    public enum Priority {
+        REPLY, PIN, STATUS
+    }
+
+    public record Limits(double globalPerSecond, double groupPerMinute, double chatPerSecond) {
+        public static Limits fromConfig(Config config) {
+            return new Limits(config.outboundGlobalPerSecond, config.outboundGroupPerMinute,
+                config.outboundChatPerSecond);
+        }
+    }
+
+    public record Metrics(int queued, Map<Priority, Integer> queuedByPriority, long sent, long rateLimited,
+        long averageWaitMillis, long maxWaitMillis) {
+    }
+
+    private static final class Call<T extends Serializable> {
+        final BotApiMethod<T> method;
+        final Priority priority;
+        final String chatId;
+        final long seq;
+        final long queuedAt;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        int rateLimited;
+
+        Call(BotApiMethod<T> method, long seq, long queuedAt) {
+            this.method = method;
+            this.priority = priorityOf(method);
+            this.chatId = chatIdOf(method);
+            this.seq = seq;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private final Limits limits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final TreeSet<Call<?>> queue = new TreeSet<>(
+        Comparator.<Call<?>, Priority>comparing(call -> call.priority).thenComparingLong(call -> call.seq));
+    private final Map<String, TokenBucket> chatBuckets = new HashMap<>();
+    private final TokenBucket globalBucket;
+    private Thread dispatcher;
+    private long nextSeq;
+    private long sent;
+    private long rateLimited;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public OutboundScheduler(TelegramClient delegate, Limits limits) {
+        super(delegate);
+        this.limits = limits;
+        this.globalBucket = new TokenBucket(Math.max(1, limits.globalPerSecond()), limits.globalPerSecond(),
+            System.nanoTime());
+    }
+
+    public static Priority priorityOf(BotApiMethod<?> method) {
+        return switch (method) {
+            // Menus edited in place after a button press are answers; the group status message is not
+            case EditMessageText edit -> edit.getReplyMarkup() != null ? Priority.REPLY : Priority.STATUS;
+            case PinChatMessage pin -> Priority.PIN;
+            case UnpinChatMessage unpin -> Priority.PIN;
+            case DeleteMessage delete -> Priority.PIN;
+            default -> Priority.REPLY;
+        };
+    }
+
+    // Calls without a chat, such as callback answers, only count against the global limit
+    static String chatIdOf(BotApiMethod<?> method) {
+        return switch (method) {
+            case SendMessage send -> send.getChatId();
+            case EditMessageText edit -> edit.getChatId();
+            case SendPoll poll -> poll.getChatId();
+            case StopPoll stop -> stop.getChatId();
+            case PinChatMessage pin -> pin.getChatId();
+            case UnpinChatMessage unpin -> unpin.getChatId();
+            case DeleteMessage delete -> delete.getChatId();
+            default -> null;
+        };
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(Method method) {
+        lock.lock();
+        try {
+            Call<T> call = new Call<>(method, nextSeq++, System.nanoTime());
+            queue.add(call);
+            if (dispatcher == null) {
+                dispatcher = new Thread(this::dispatch, "outbound-scheduler");
+                dispatcher.setDaemon(true);
+                dispatcher.start();
+            }
+            changed.signal();
+            return call.result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method)
+        throws TelegramApiException {
+        return TelegramFutures.await(executeAsync(method));
+    }
+
+    public Metrics getMetrics() {
+        lock.lock();
+        try {
+            Map<Priority, Integer> byPriority = new EnumMap<>(Priority.class);
+            for (Priority priority : Priority.values())
+                byPriority.put(priority, 0);
+            for (Call<?> call : queue)
+                byPriority.merge(call.priority, 1, Integer::sum);
+            return new Metrics(queue.size(), byPriority, sent, rateLimited,
+                sent == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / sent),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String summary() {
+        Metrics metrics = getMetrics();
+        return String.format("Outbound calls: queued=%d %s sent=%d rateLimited=%d wait avg=%d max=%d ms",
+            metrics.queued(), metrics.queuedByPriority(), metrics.sent(), metrics.rateLimited(),
+            metrics.averageWaitMillis(), metrics.maxWaitMillis());
+    }
+
+    private void dispatch() {
+        try {
+            while (true)
+                send(takeReady());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The first call in priority order whose chat has a token, once the global bucket has one
+    private Call<?> takeReady() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                long wait = queue.isEmpty() ? Long.MAX_VALUE : globalBucket.delayNanos(now);
+                if (wait == 0) {
+                    wait = Long.MAX_VALUE;
+                    for (Call<?> call : queue) {
+                        TokenBucket chat = chatBucket(call.chatId, now);
+                        long delay = chat != null ? chat.delayNanos(now) : 0;
+                        if (delay == 0) {
+                            queue.remove(call);
+                            globalBucket.take(now);
+                            if (chat != null) chat.take(now);
+                            if (call.rateLimited == 0) recordWait(now - call.queuedAt);
+                            sent++;
+                            return call;
+                        }
+                        wait = Math.min(wait, delay);
+                    }
+                }
+                if (wait == Long.MAX_VALUE) changed.await();
+                else changed.awaitNanos(wait);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TokenBucket chatBucket(String chatId, long now) {
+        if (chatId == null) return null;
+        TokenBucket bucket = chatBuckets.get(chatId);
+        if (bucket != null) return bucket;
+        if (chatBuckets.size() >= BUCKET_SWEEP_SIZE) chatBuckets.values().removeIf(b -> b.isIdle(now));
+        bucket = chatId.startsWith("-")
+            ? new TokenBucket(Math.max(1, limits.groupPerMinute()), limits.groupPerMinute() / 60, now)
+            : new TokenBucket(PRIVATE_CHAT_BURST, limits.chatPerSecond(), now);
+        chatBuckets.put(chatId, bucket);
+        return bucket;
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+    }
+
+    private <T extends Serializable> void send(Call<T> call) {
+        TelegramFutures.start(() -> delegate.executeAsync(call.method)).whenComplete((result, error) -> {
+            if (error == null) {
+                call.result.complete(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+            if (isRateLimited(cause) && call.rateLimited < MAX_RATE_LIMIT_RETRIES) requeue(call, retryAfter(cause));
+            else call.result.completeExceptionally(cause);
+        });
+    }
+
+    private void requeue(Call<?> call, int retryAfterSeconds) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            TokenBucket bucket = call.chatId != null ? chatBucket(call.chatId, now) : globalBucket;
+            bucket.pauseUntil(now + TimeUnit.SECONDS.toNanos(retryAfterSeconds));
+            call.rateLimited++;
+            rateLimited++;
+            queue.add(call);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static boolean isRateLimited(Throwable error) {
+        return error instanceof TelegramApiRequestException request && request.getErrorCode() != null
+            && request.getErrorCode() == 429;
+    }
+
+    static int retryAfter(Throwable error) {
+        if (error instanceof TelegramApiRequestException request && request.getParameters() != null
+            && request.getParameters().getRetryAfter() != null) return request.getParameters().getRetryAfter();
+        return DEFAULT_RETRY_AFTER_SECONDS;
+    }
+}
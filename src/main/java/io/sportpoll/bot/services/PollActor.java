@@ -0,0 +1,90 @@
+package io.sportpoll.bot.services;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import io.sportpoll.bot.utils.TelegramFutures;
+
+// Single writer for one poll: tasks run one at a time on a virtual thread started when the mailbox fills
+public class PollActor {
+    private final String name;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Thread owner;
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T run() throws TelegramApiException;
+    }
+
+    public PollActor(String name) {
+        this.name = name;
+    }
+
+    public <T> CompletableFuture<T> submit(Task<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        TelegramClient client = TelegramClientContext.capture();
+        mailbox.add(() -> {
+            TelegramClientContext.bind(client);
+            try {
+                result.complete(task.run());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                TelegramClientContext.bind(null);
+            }
+        });
+        schedule();
+        return result;
+    }
+
+    // Runs inline when already on this actor so poll methods can call each other
+    public <T> T call(Task<T> task) throws TelegramApiException {
+        if (isCurrentThread()) return task.run();
+        return TelegramFutures.await(submit(task));
+    }
+
+    // Runs on the calling thread while the actor is parked, for work that cannot move threads such as
+    // ObjectOutputStream callbacks
+    public <T> T exclusive(Task<T> task) throws TelegramApiException {
+        if (isCurrentThread()) return task.run();
+        CompletableFuture<Void> parked = new CompletableFuture<>();
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        submit(() -> {
+            parked.complete(null);
+            return released.join();
+        });
+        parked.join();
+        try {
+            return task.run();
+        } finally {
+            released.complete(null);
+        }
+    }
+
+    public boolean isCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) Thread.ofVirtual().name(name).start(this::drain);
+    }
+
+    private void drain() {
+        owner = Thread.currentThread();
+        try {
+            Runnable message;
+            while ((message = mailbox.poll()) != null)
+                message.run();
+        } finally {
+            owner = null;
+            scheduled.set(false);
+        }
+        if (!mailbox.isEmpty()) schedule();
+    }
+}
@@ -3,8 +3,12 @@ package io.sportpoll.bot.services;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
 import io.sportpoll.bot.config.Config;
 import org.telegram.telegrambots.meta.api.methods.polls.SendPoll;
 import org.telegram.telegrambots.meta.api.methods.polls.StopPoll;
@@ -13,19 +17,56 @@ import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageTe
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
 import org.telegram.telegrambots.meta.api.objects.polls.input.InputPollOption;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import io.sportpoll.bot.models.DirectVoters;
+import io.sportpoll.bot.models.PollState;
 import io.sportpoll.bot.models.Vote;
+import io.sportpoll.bot.models.VoteLedger;
 import io.sportpoll.bot.constants.Messages;
+import io.sportpoll.bot.persistance.BinaryReader;
+import io.sportpoll.bot.persistance.BinaryWriter;
+import io.sportpoll.bot.persistance.MappedVoteLedger;
+import io.sportpoll.bot.persistance.PollArchive;
+import io.sportpoll.bot.persistance.VoteEvent;
+import io.sportpoll.bot.persistance.VoteJournal;
 import io.sportpoll.bot.utils.CommandUtils;
 import io.sportpoll.bot.utils.MessageUtils;
+import io.sportpoll.bot.utils.TelegramAction;
+import io.sportpoll.bot.utils.TelegramFutures;
 
 public class PollManager implements Serializable {
     private int targetVotes;
-    private Map<User, Integer> directVoters;
-    private List<Vote> externalVotes;
+    private DirectVoters directVoters;
+    private VoteLedger ledger;
+    private int[] directOptionCounts = new int[2];
     private Integer telegramMessageId;
-    private Integer statusMessageId;
-    private boolean isActive = false;
-    private transient long targetGroupChatId;
+    private volatile String telegramPollId;
+    private volatile Integer statusMessageId;
+    private volatile boolean isActive = false;
+    private long targetGroupChatId;
+    private long lastJournalSeq;
+    private transient VoteJournal journal;
+    private transient PollArchive archive;
+    private transient MappedVoteLedger mappedLedger;
+    private transient StatusFlusher statusFlusher;
+    private transient long statusFlushIntervalMillis;
+    private transient StatusRenderer statusRenderer;
+    private transient volatile PollActor actor;
+    private transient volatile long modificationVersion;
+    private transient Runnable flushHook;
+    private transient PollIdListener pollIdListener;
+    // The fields above are the actor's working copy; this is what everyone else reads
+    private transient AtomicReference<PollState> state = new AtomicReference<>(PollState.EMPTY);
+
+    @FunctionalInterface
+    interface PollIdListener {
+        void assigned(String pollId, long chatId);
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws java.io.IOException;
+    }
 
     public PollManager() {
         this.targetGroupChatId = Config.getInstance().targetGroupChatId;
@@ -38,18 +79,357 @@ public class PollManager implements Serializable {
     @Serial
     private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
         in.defaultReadObject();
-        this.targetGroupChatId = Config.getInstance().targetGroupChatId;
+        if (targetGroupChatId == 0) this.targetGroupChatId = Config.getInstance().targetGroupChatId;
+        recountTallies();
+        this.state = new AtomicReference<>(captureState());
+    }
+
+    @Serial
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+        exclusive(out::defaultWriteObject);
+    }
+
+    // Snapshots are written while the actor is parked so the state and lastJournalSeq describe the same point
+    // in the journal
+    private void exclusive(IoAction action) throws java.io.IOException {
+        try {
+            getActor().exclusive(() -> {
+                try {
+                    action.run();
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (java.io.UncheckedIOException e) {
+            throw e.getCause();
+        } catch (TelegramApiException e) {
+            throw new java.io.IOException(e);
+        }
+    }
+
+    // Compact layout used by PollRegistryCodec, written from the published state so the actor keeps running; the
+    // roster and lastJournalSeq in it describe the same point in the journal. The ledger is written in vote order
+    // so numbering survives.
+    void writeState(BinaryWriter out) throws java.io.IOException {
+        PollState snapshot = getState();
+        out.writeBoolean(snapshot.isActive());
+        out.writeVarInt(snapshot.getTargetVotes());
+        out.writeNullableInt(snapshot.getMessageId());
+        out.writeString(snapshot.getPollId());
+        out.writeNullableInt(snapshot.getStatusMessageId());
+        out.writeVarLong(snapshot.getLastJournalSeq());
+        out.writeBoolean(snapshot.hasRoster());
+        if (snapshot.hasRoster()) {
+            out.writeVarInt(snapshot.getDirectCount());
+            for (PollState.Entry entry : entries(snapshot, false)) {
+                out.writeVarLong(entry.userId());
+                out.writeVarInt(entry.optionId());
+                out.writeString(entry.name());
+                out.writeVarLong(entry.time());
+            }
+        }
+        out.writeBoolean(snapshot.hasRoster());
+        if (snapshot.hasRoster()) {
+            out.writeVarInt(snapshot.getPositiveVotes());
+            for (PollState.Entry entry : entries(snapshot, true)) {
+                out.writeVarLong(entry.userId());
+                out.writeBoolean(entry.isInvited());
+                if (!entry.isInvited()) continue;
+                out.writeString(entry.name());
+                out.writeString(entry.voterName());
+                out.writeVarLong(entry.time());
+            }
+        }
+    }
+
+    // Direct answers in any order, or guests and "yes" answers in vote order
+    private static List<PollState.Entry> entries(PollState snapshot, boolean votes) {
+        List<PollState.Entry> entries = new ArrayList<>();
+        if (votes) snapshot.forEachVote(entries::add);
+        else snapshot.forEach(entry -> {
+            if (!entry.isInvited()) entries.add(entry);
+        });
+        return entries;
+    }
+
+    void readState(BinaryReader in, int version) throws java.io.IOException {
+        isActive = in.readBoolean();
+        targetVotes = in.readVarInt();
+        telegramMessageId = in.readNullableInt();
+        assignPollId(in.readString());
+        statusMessageId = in.readNullableInt();
+        lastJournalSeq = in.readVarLong();
+        directVoters = null;
+        if (in.readBoolean()) {
+            directVoters = new DirectVoters();
+            for (int i = in.readVarInt(); i > 0; i--)
+                directVoters.put(in.readVarLong(), in.readVarInt(), in.readString(),
+                    version >= 2 ? in.readVarLong() : 0);
+        }
+        ledger = null;
+        if (in.readBoolean()) {
+            ledger = new VoteLedger();
+            for (int i = in.readVarInt(); i > 0; i--) {
+                long userId = in.readVarLong();
+                if (in.readBoolean()) ledger.appendExternal(
+                    new Vote(userId, in.readString(), in.readString(), version >= 2 ? in.readVarLong() : 0));
+                else ledger.appendDirect(userId);
+            }
+        }
+        recountTallies();
+        state.set(captureState());
+    }
+
+    void setJournal(VoteJournal journal) {
+        this.journal = journal;
+    }
+
+    void setArchive(PollArchive archive) {
+        this.archive = archive;
+    }
+
+    // Mapped mode: a ledger file that already exists is newer than any snapshot, since every change lands in it
+    // before the call returns; otherwise the file is seeded from the current state
+    void attachMappedLedger(java.io.File file) {
+        if (mappedLedger != null) return;
+        MappedVoteLedger mapped = new MappedVoteLedger(file);
+        try {
+            if (mapped.open()) restoreFrom(mapped);
+            else seed(mapped);
+        } catch (java.io.IOException | java.io.UncheckedIOException e) {
+            System.err.println("Failed to map vote ledger for chat " + targetGroupChatId + ": " + e.getMessage());
+            return;
+        }
+        this.mappedLedger = mapped;
+    }
+
+    void forceMappedLedger() {
+        if (mappedLedger != null) mappedLedger.force();
+    }
+
+    // Remapping is the whole recovery: the header holds the poll and the records hold the roster in vote order
+    private void restoreFrom(MappedVoteLedger mapped) {
+        isActive = mapped.isActive();
+        targetVotes = mapped.targetVotes();
+        telegramMessageId = mapped.messageId();
+        assignPollId(mapped.pollId());
+        statusMessageId = mapped.statusMessageId();
+        directVoters = null;
+        ledger = null;
+        if (isActive || mapped.size() > 0) {
+            directVoters = new DirectVoters();
+            ledger = new VoteLedger();
+            mapped.forEach(new MappedVoteLedger.Visitor() {
+                @Override
+                public void direct(long userId, int optionId, String name, long time) {
+                    directVoters.put(userId, optionId, name, time);
+                    if (optionId == 0) ledger.appendDirect(userId);
+                }
+
+                @Override
+                public void external(long requesterId, String requesterName, String voterName, long time) {
+                    ledger.appendExternal(new Vote(requesterId, requesterName, voterName, time));
+                }
+            });
+        }
+        recountTallies();
+        modificationVersion++;
+        state.set(captureState());
+    }
+
+    // The single poll the bot kept before polls were per chat: the direct roster has no vote order or times, so
+    // direct "yes" votes are numbered ahead of the guests, who keep their order
+    void restoreLegacy(boolean isActive, int targetVotes, Integer messageId, Integer statusMessageId,
+        Map<User, Integer> legacyDirectVoters, List<Vote> legacyExternalVotes) {
+        this.isActive = isActive;
+        this.targetVotes = targetVotes;
+        this.telegramMessageId = messageId;
+        this.statusMessageId = statusMessageId;
+        directVoters = null;
+        ledger = null;
+        directOptionCounts = new int[2];
+        if (legacyDirectVoters != null || legacyExternalVotes != null) {
+            ensureCollections();
+            if (legacyDirectVoters != null) legacyDirectVoters
+                .forEach((user, option) -> applyDirectVote(user.getId(), option, user.getFirstName(), 0));
+            if (legacyExternalVotes != null) legacyExternalVotes.forEach(ledger::appendExternal);
+        }
+        modificationVersion++;
+        state.set(captureState());
+    }
+
+    private void seed(MappedVoteLedger mapped) {
+        mapped.startPoll(isActive, targetVotes, telegramMessageId, telegramPollId, statusMessageId);
+        if (directVoters == null && ledger == null) return;
+        ensureCollections();
+        for (int slot = 0; slot < ledger.slotLimit(); slot++) {
+            if (!ledger.isLive(slot)) continue;
+            long userId = ledger.userIdAt(slot);
+            Vote vote = ledger.voteAt(slot);
+            if (vote == null) mapped.putDirect(userId, 0, directVoters.getName(userId), directVoters.getTime(userId));
+            else mapped.appendExternal(userId, vote.getRequesterName(), vote.getVoterName(), vote.getCreatedAt());
+        }
+        for (int slot = 0; slot < directVoters.capacity(); slot++) {
+            if (directVoters.isOccupied(slot) && directVoters.optionAt(slot) != 0)
+                mapped.putDirect(directVoters.userIdAt(slot), directVoters.optionAt(slot), directVoters.nameAt(slot),
+                    directVoters.timeAt(slot));
+        }
+    }
+
+    long getLastJournalSeq() {
+        return lastJournalSeq;
+    }
+
+    // The poll as of the last recorded change; safe to read from any thread
+    public PollState getState() {
+        return state.get();
+    }
+
+    private PollState captureState() {
+        return PollState.capture(isActive, targetVotes, telegramMessageId, telegramPollId, statusMessageId,
+            lastJournalSeq, directVoters, ledger);
+    }
+
+    void setFlushHook(Runnable flushHook) {
+        this.flushHook = flushHook;
+    }
+
+    // Lets the registry route answers to this poll from the moment Telegram gives it an id
+    void setPollIdListener(PollIdListener pollIdListener) {
+        this.pollIdListener = pollIdListener;
+    }
+
+    private void assignPollId(String pollId) {
+        this.telegramPollId = pollId;
+        PollIdListener listener = pollIdListener;
+        if (pollId != null && listener != null) listener.assigned(pollId, targetGroupChatId);
+    }
+
+    // Written only on the actor, read by the DataStore flusher
+    long getModificationVersion() {
+        return modificationVersion;
+    }
+
+    private void record(VoteEvent event) {
+        modificationVersion++;
+        if (mappedLedger != null) mappedLedger.apply(event);
+        // Published as the sequence number is handed out: a compaction starting in between would otherwise drop
+        // the record while its snapshot still lacks the change
+        if (journal != null) journal.append(event, seq -> {
+            lastJournalSeq = seq;
+            publish(event);
+        });
+        else publish(event);
+        // A closed poll is persisted right away instead of waiting for the next flush interval
+        if (event instanceof VoteEvent.Closed && flushHook != null) flushHook.run();
+    }
+
+    // Applied to the published state in the order the actor records them
+    private void publish(VoteEvent event) {
+        long seq = lastJournalSeq;
+        state.updateAndGet(current -> current.apply(event, seq));
+    }
+
+    // Re-applies a journaled mutation on top of the loaded snapshot; events the snapshot already holds are skipped
+    void replay(long seq, VoteEvent event) {
+        if (seq <= lastJournalSeq) return;
+        lastJournalSeq = seq;
+        modificationVersion++;
+        switch (event) {
+            case VoteEvent.PollCreated e -> startPoll(e.targetVotes(), e.messageId(), e.pollId(), e.statusMessageId());
+            case VoteEvent.DirectVote e -> {
+                ensureCollections();
+                applyDirectVote(e.userId(), e.optionId(), e.name(), e.time());
+            }
+            case VoteEvent.ExternalVote e -> {
+                ensureCollections();
+                ledger.appendExternal(new Vote(e.requesterId(), e.requesterName(), e.voterName(), e.time()));
+            }
+            case VoteEvent.Revoked e -> {
+                ensureCollections();
+                int slot = ledger.slotAt(e.voteNumber());
+                if (slot != VoteLedger.NONE) removeSlot(slot);
+            }
+            case VoteEvent.RevokedAll e -> {
+                ensureCollections();
+                ledger.removeAllExternalOf(e.requesterId());
+            }
+            case VoteEvent.Closed e -> {
+                if (e.reset()) clearPoll();
+                else this.isActive = false;
+            }
+        }
+        publish(event);
+    }
+
+    public void setStatusFlushInterval(long intervalMillis) {
+        if (statusFlusher != null && statusFlushIntervalMillis == intervalMillis) return;
+        if (statusFlusher != null) statusFlusher.cancel();
+        this.statusFlushIntervalMillis = intervalMillis;
+        this.statusFlusher = null;
+    }
+
+    private StatusFlusher getStatusFlusher() {
+        if (statusFlusher == null)
+            statusFlusher = new StatusFlusher(statusFlushIntervalMillis, task -> submit(pm -> task.run()));
+        return statusFlusher;
+    }
+
+    private PollActor getActor() {
+        PollActor current = actor;
+        if (current == null) {
+            synchronized (this) {
+                if (actor == null) actor = new PollActor("poll-" + targetGroupChatId);
+                current = actor;
+            }
+        }
+        return current;
+    }
+
+    // Re-runs the calling method on this poll's actor unless already there; true means the caller is done
+    private boolean dispatched(TelegramAction action) throws TelegramApiException {
+        PollActor pollActor = getActor();
+        if (pollActor.isCurrentThread()) return false;
+        pollActor.call(() -> {
+            action.execute();
+            return null;
+        });
+        return true;
+    }
+
+    public CompletableFuture<Void> submit(PollRegistry.PollAction action) {
+        return getActor().submit(() -> {
+            action.execute(this);
+            return null;
+        });
+    }
+
+    private StatusRenderer getStatusRenderer() {
+        if (statusRenderer == null) statusRenderer = new StatusRenderer();
+        return statusRenderer;
+    }
+
+    public long getChatId() {
+        return targetGroupChatId;
+    }
+
+    public String getTelegramPollId() {
+        return telegramPollId;
     }
 
     public void createAndPostPoll(String question, String positiveOption, String negativeOption, int targetVotes,
         Update update) throws TelegramApiException {
+        if (dispatched(() -> createAndPostPoll(question, positiveOption, negativeOption, targetVotes, update))) return;
         if (isActive) resetPoll();
-        this.targetVotes = targetVotes;
-        this.directVoters = new HashMap<>();
-        this.externalVotes = new ArrayList<>();
-        this.telegramMessageId = null;
-        this.statusMessageId = null;
-        this.isActive = true;
+        else if (directVoters != null || ledger != null) {
+            // The archived roster is dropped in the journal before the round trips below, so a crash during them
+            // does not bring it back to be archived again by the next poll
+            archiveCurrent();
+            clearPoll();
+            record(new VoteEvent.Closed(targetGroupChatId, true));
+        }
+        startPoll(targetVotes, null, null, null);
         SendPoll sendPoll = SendPoll.builder()
             .chatId(targetGroupChatId)
             .question(question)
@@ -57,12 +437,44 @@ public class PollManager implements Serializable {
                 InputPollOption.builder().text(negativeOption).build()))
             .isAnonymous(false)
             .build();
-        var result = TelegramClientService.getInstance().execute(sendPoll);
-        this.telegramMessageId = result.getMessageId();
-        createStatusMessage();
-        MessageUtils.sendMessage(String.format(Messages.SUCCESS, Messages.POLL_CREATED),
-            update.getMessage().getChatId());
+        TelegramClient client = TelegramClientService.getInstance();
+        getStatusFlusher().cancel();
+        String statusText = buildStatusMessage();
+        long requesterChatId = update.getMessage().getChatId();
+        CompletableFuture<Message> pollSent = TelegramFutures.start(() -> client.executeAsync(sendPoll));
+        // The status must land below the poll it points to; the confirmation only needs the poll to exist
+        CompletableFuture<Message> statusSent = pollSent
+            .thenCompose(result -> sendStatusMessageAsync(client, statusText));
+        CompletableFuture<Boolean> statusPinned = statusSent
+            .thenCompose(status -> pinStatusMessageAsync(client, status.getMessageId()));
+        CompletableFuture<Message> confirmed = pollSent.thenCompose(result -> MessageUtils
+            .sendMessageAsync(client, String.format(Messages.SUCCESS, Messages.POLL_CREATED), requesterChatId));
+        try {
+            TelegramFutures.await(statusPinned, confirmed);
+        } finally {
+            // Every call has finished by now; what Telegram answered is applied here, on the actor
+            Message poll = resultOf(pollSent);
+            if (poll != null) {
+                this.telegramMessageId = poll.getMessageId();
+                if (poll.getPoll() != null) assignPollId(poll.getPoll().getId());
+            }
+            Message status = resultOf(statusSent);
+            if (status != null) adoptStatusMessage(status, statusText);
+            record(new VoteEvent.PollCreated(targetGroupChatId, targetVotes, telegramMessageId, telegramPollId,
+                statusMessageId));
+        }
+    }
 
+    private void startPoll(int targetVotes, Integer telegramMessageId, String telegramPollId,
+        Integer statusMessageId) {
+        this.targetVotes = targetVotes;
+        this.directVoters = new DirectVoters();
+        this.ledger = new VoteLedger();
+        this.directOptionCounts = new int[2];
+        this.telegramMessageId = telegramMessageId;
+        assignPollId(telegramPollId);
+        this.statusMessageId = statusMessageId;
+        this.isActive = true;
     }
 
     public boolean hasActivePoll() {
@@ -70,21 +482,58 @@ public class PollManager implements Serializable {
     }
 
     private void resetPoll() throws TelegramApiException {
+        TelegramFutures.await(getStatusFlusher().flush());
         if (statusMessageId != null) unpinStatusMessage();
+        archiveCurrent();
+        clearPoll();
+        record(new VoteEvent.Closed(targetGroupChatId, true));
+    }
+
+    // A completed poll keeps its votes until the next one starts, so both paths end up here before they are dropped;
+    // replay never archives because the original run already did
+    private void archiveCurrent() {
+        if (archive == null || directVoters == null && ledger == null) return;
+        ensureCollections();
+        List<PollArchive.Row> rows = new ArrayList<>(directVoters.size() + ledger.externalCount());
+        for (int slot = 0; slot < directVoters.capacity(); slot++) {
+            if (!directVoters.isOccupied(slot)) continue;
+            rows.add(new PollArchive.Row(directVoters.userIdAt(slot), directVoters.optionAt(slot),
+                directVoters.timeAt(slot), directVoters.nameAt(slot), null));
+        }
+        for (int slot = 0; slot < ledger.slotLimit(); slot++) {
+            if (!ledger.isLive(slot) || ledger.isDirect(slot)) continue;
+            Vote vote = ledger.voteAt(slot);
+            rows.add(new PollArchive.Row(vote.getRequesterId(), PollArchive.INVITED, vote.getCreatedAt(),
+                vote.getVoterName(), vote.getRequesterName()));
+        }
+        PollArchive.Summary summary = new PollArchive.Summary(targetGroupChatId, telegramPollId, targetVotes,
+            System.currentTimeMillis(), rows.size(), directOptionCounts[0] + ledger.externalCount());
+        try {
+            archive.append(new PollArchive.ArchivedPoll(summary, rows));
+        } catch (java.io.IOException e) {
+            System.err.println("Failed to archive poll in chat " + targetGroupChatId + ": " + e.getMessage());
+        }
+    }
+
+    private void clearPoll() {
         this.isActive = false;
         this.directVoters = null;
-        this.externalVotes = null;
+        this.ledger = null;
+        this.directOptionCounts = new int[2];
         this.telegramMessageId = null;
+        this.telegramPollId = null;
         this.statusMessageId = null;
     }
 
     public void resetPollPublic() throws TelegramApiException {
+        if (dispatched(() -> resetPollPublic())) return;
         resetPoll();
     }
     public void addExternalVote(String[] names, int voteCount, Update update) throws TelegramApiException {
+        if (dispatched(() -> addExternalVote(names, voteCount, update))) return;
         long requesterId = update.getMessage().getFrom().getId();
         String requesterName = update.getMessage().getFrom().getFirstName();
-        int currentVotes = getPositiveVotes();
+        int currentVotes = positiveVotes();
         int remaining = targetVotes - currentVotes;
         if (remaining <= 0) {
             MessageUtils.sendMessage(Messages.POLL_CLOSED, targetGroupChatId);
@@ -96,10 +545,10 @@ public class PollManager implements Serializable {
         }
         if (names != null && names.length > 0) {
             for (String name : names)
-                externalVotes.add(new Vote(requesterId, requesterName, name.trim()));
+                appendExternal(new Vote(requesterId, requesterName, name.trim()));
         } else {
             for (int i = 0; i < voteCount; i++)
-                externalVotes.add(new Vote(requesterId, requesterName));
+                appendExternal(new Vote(requesterId, requesterName));
         }
         String voteText = names == null
             ? (voteCount == 1 ? Messages.ANONYMOUS_VOTE_SINGLE
@@ -109,25 +558,80 @@ public class PollManager implements Serializable {
         MessageUtils.sendMessage(String.format(Messages.VOTE_ADDED, voteText), targetGroupChatId);
         checkCompletion();
     }
+    private void appendExternal(Vote vote) {
+        ledger.appendExternal(vote);
+        record(new VoteEvent.ExternalVote(targetGroupChatId, vote.getRequesterId(), vote.getRequesterName(),
+            vote.getVoterName(), vote.getCreatedAt()));
+    }
+
     private void ensureCollections() {
-        if (directVoters == null) directVoters = new HashMap<>();
-        if (externalVotes == null) externalVotes = new ArrayList<>();
+        if (directVoters == null) directVoters = new DirectVoters();
+        if (ledger == null) {
+            ledger = new VoteLedger();
+            directVoters.forEach((userId, optionId, name) -> {
+                if (optionId == 0) ledger.appendDirect(userId);
+            });
+        }
+    }
+    public int getPositiveVotes() {
+        return getState().getPositiveVotes();
     }
-    public synchronized int getPositiveVotes() {
+
+    public int getDirectVotes(int optionId) {
+        return getState().getDirectVotes(optionId);
+    }
+
+    // The actor's working count, which runs ahead of the published state inside a mutation
+    private int positiveVotes() {
         ensureCollections();
-        return (int) directVoters.entrySet().stream().filter(entry -> entry.getValue() == 0).count()
-            + externalVotes.size();
+        assert tallyMatchesRecount() : "Incremental vote tally diverged from roster";
+        return directOptionCounts[0] + ledger.externalCount();
+    }
+
+    private void countDirectVote(int optionId, int delta) {
+        if (optionId < 0) return;
+        if (optionId >= directOptionCounts.length)
+            directOptionCounts = Arrays.copyOf(directOptionCounts, optionId + 1);
+        directOptionCounts[optionId] += delta;
+    }
+
+    private void recountTallies() {
+        directOptionCounts = new int[2];
+        if (directVoters != null) directVoters.forEach((userId, optionId, name) -> countDirectVote(optionId, 1));
+    }
+
+    private boolean tallyMatchesRecount() {
+        int[] counted = new int[directOptionCounts.length];
+        directVoters.forEach((userId, optionId, name) -> {
+            if (optionId < counted.length) counted[optionId]++;
+        });
+        return Arrays.equals(counted, directOptionCounts)
+            && ledger.size() == directOptionCounts[0] + ledger.externalCount();
     }
     public void checkCompletion() throws TelegramApiException {
-        if (getPositiveVotes() >= targetVotes) {
-            closeDirectPoll();
+        if (dispatched(() -> checkCompletion())) return;
+        if (positiveVotes() >= targetVotes) {
+            // Stopping the poll, the final status edit and the announcement are independent
+            TelegramClient client = TelegramClientService.getInstance();
+            CompletableFuture<?> stopped = isActive ? stopDirectPollAsync(client)
+                : MessageUtils.sendMessageAsync(client, String.format(Messages.ERROR, Messages.NO_ACTIVE_POLL),
+                    targetGroupChatId);
+            CompletableFuture<Message> announced = MessageUtils
+                .sendMessageAsync(client, Messages.POLL_COMPLETION_MESSAGE, targetGroupChatId);
             this.isActive = false;
-            updateStatusMessage();
-            MessageUtils.sendMessage(Messages.POLL_COMPLETION_MESSAGE, targetGroupChatId);
+            record(new VoteEvent.Closed(targetGroupChatId, false));
+            CompletableFuture<Void> edited = CompletableFuture.completedFuture(null);
+            try {
+                updateStatusMessage();
+                edited = getStatusFlusher().flush();
+            } finally {
+                TelegramFutures.await(stopped, announced, edited);
+            }
         } else updateStatusMessage();
     }
 
     public void handleVoteCommand(Update update) throws TelegramApiException {
+        if (dispatched(() -> handleVoteCommand(update))) return;
 
         long chatId = update.getMessage().getChatId();
         if (!isActive) {
@@ -144,15 +648,36 @@ public class PollManager implements Serializable {
     }
 
     public void handleDirectVote(Update update) throws TelegramApiException {
+        if (dispatched(() -> handleDirectVote(update))) return;
         if (!isActive) return;
+        String pollId = update.getPollAnswer().getPollId();
+        if (pollId != null && telegramPollId != null && !pollId.equals(telegramPollId)) return;
         User user = update.getPollAnswer().getUser();
         List<Integer> optionIds = update.getPollAnswer().getOptionIds();
-        if (optionIds.isEmpty()) directVoters.remove(user);
-        else directVoters.put(user, optionIds.get(0));
+        int option = optionIds.isEmpty() ? DirectVoters.NONE : optionIds.get(0);
+        long now = System.currentTimeMillis();
+        applyDirectVote(user.getId(), option, user.getFirstName(), now);
+        record(new VoteEvent.DirectVote(targetGroupChatId, user.getId(), option, user.getFirstName(), now));
         checkCompletion();
     }
 
+    private void applyDirectVote(long userId, int option, String name, long time) {
+        int previous = option == DirectVoters.NONE ? directVoters.remove(userId)
+            : directVoters.put(userId, option, name, time);
+        countDirectVote(previous, -1);
+        countDirectVote(option, 1);
+        if (previous == 0 && option != 0) ledger.removeDirect(userId);
+        else if (previous != 0 && option == 0) ledger.appendDirect(userId);
+    }
+
+    // Drops the vote in the slot, keeping the direct roster and tallies in step
+    private void removeSlot(int slot) {
+        if (ledger.isDirect(slot)) countDirectVote(directVoters.remove(ledger.userIdAt(slot)), -1);
+        ledger.remove(slot);
+    }
+
     public void closeCurrentPoll(Update update) throws TelegramApiException {
+        if (dispatched(() -> closeCurrentPoll(update))) return;
         if (!isActive) {
             MessageUtils.acknowledgeCallback(update, Messages.NO_ACTIVE_POLL);
             return;
@@ -163,6 +688,7 @@ public class PollManager implements Serializable {
     }
 
     public boolean closeCurrentPollSilent() throws TelegramApiException {
+        if (!getActor().isCurrentThread()) return getActor().call(this::closeCurrentPollSilent);
         if (!isActive) {
             return false;
         }
@@ -172,6 +698,7 @@ public class PollManager implements Serializable {
     }
 
     public void checkMondayClose() throws TelegramApiException {
+        if (dispatched(() -> checkMondayClose())) return;
         if (isActive) {
             closeDirectPoll();
             resetPoll();
@@ -184,12 +711,17 @@ public class PollManager implements Serializable {
     }
 
     public void handleRevokeCommand(Update update) throws TelegramApiException {
+        if (dispatched(() -> handleRevokeCommand(update))) return;
         String messageText = update.getMessage().getText();
         String[] parts = messageText.split("\\s+");
         long userId = update.getMessage().getFrom().getId();
         long chatId = update.getMessage().getChatId();
         if (parts.length == 1) handleRevoke(userId, chatId);
         else if (parts.length == 2) {
+            if (parts[1].equalsIgnoreCase("all")) {
+                revokeAllInvited(userId, chatId);
+                return;
+            }
             try {
                 int voteNumber = Integer.parseInt(parts[1]);
                 revokeVoteByNumber(voteNumber, userId, chatId);
@@ -200,46 +732,68 @@ public class PollManager implements Serializable {
     }
 
     public void handleRevoke(long userId, long chatId) throws TelegramApiException {
+        if (dispatched(() -> handleRevoke(userId, chatId))) return;
         if (!isActive) {
             MessageUtils.sendError(Messages.NO_ACTIVE_POLL, chatId);
             return;
         }
-        boolean found = false;
-        for (int i = externalVotes.size() - 1; i >= 0; i--) {
-            Vote vote = externalVotes.get(i);
-            if (vote.getRequesterId() == userId) {
-                externalVotes.remove(i);
-                found = true;
-                break;
-            }
-        }
-        if (found) {
+        int slot = ledger.lastExternalSlotOf(userId);
+        if (slot != VoteLedger.NONE) {
+            record(new VoteEvent.Revoked(targetGroupChatId, ledger.numberOf(slot)));
+            ledger.remove(slot);
             MessageUtils.sendMessage(String.format(Messages.SUCCESS, Messages.VOTE_REVOKED), chatId);
             updateStatusMessage();
         } else MessageUtils.sendError(Messages.NO_VOTES_TO_REVOKE, chatId);
     }
 
+    public void revokeAllInvited(long userId, long chatId) throws TelegramApiException {
+        if (dispatched(() -> revokeAllInvited(userId, chatId))) return;
+        if (!isActive) {
+            MessageUtils.sendError(Messages.NO_ACTIVE_POLL, chatId);
+            return;
+        }
+        int removed = ledger.removeAllExternalOf(userId);
+        if (removed > 0) {
+            record(new VoteEvent.RevokedAll(targetGroupChatId, userId));
+            String message = String.format(Messages.ALL_VOTES_REVOKED, removed);
+            MessageUtils.sendMessage(String.format(Messages.SUCCESS, message), chatId);
+            updateStatusMessage();
+        } else MessageUtils.sendError(Messages.NO_VOTES_TO_REVOKE, chatId);
+    }
+
     public void closeDirectPoll() throws TelegramApiException {
+        if (dispatched(() -> closeDirectPoll())) return;
         if (!isActive) {
             MessageUtils.sendError(Messages.NO_ACTIVE_POLL, targetGroupChatId);
             return;
         }
-        if (telegramMessageId == null) return;
+        TelegramFutures.await(stopDirectPollAsync(TelegramClientService.getInstance()));
+    }
+
+    private CompletableFuture<?> stopDirectPollAsync(TelegramClient client) {
+        if (telegramMessageId == null) return CompletableFuture.completedFuture(null);
         StopPoll stopPoll = StopPoll.builder().chatId(targetGroupChatId).messageId(telegramMessageId).build();
-        TelegramClientService.getInstance().execute(stopPoll);
+        return TelegramFutures.start(() -> client.executeAsync(stopPoll));
     }
 
     public void initializePoll(int targetVotes, Integer telegramMessageId) throws TelegramApiException {
-        this.targetVotes = targetVotes;
-        this.directVoters = new HashMap<>();
-        this.externalVotes = new ArrayList<>();
-        this.telegramMessageId = telegramMessageId;
-        this.statusMessageId = null;
-        this.isActive = true;
-        createStatusMessage();
+        initializePoll(targetVotes, telegramMessageId, null);
+    }
+
+    public void initializePoll(int targetVotes, Integer telegramMessageId, String telegramPollId)
+        throws TelegramApiException {
+        if (dispatched(() -> initializePoll(targetVotes, telegramMessageId, telegramPollId))) return;
+        startPoll(targetVotes, telegramMessageId, telegramPollId, null);
+        try {
+            createStatusMessage();
+        } finally {
+            record(new VoteEvent.PollCreated(targetGroupChatId, targetVotes, telegramMessageId, telegramPollId,
+                statusMessageId));
+        }
     }
 
     public void revokeVoteByNumber(int voteNumber, long requesterId, long chatId) throws TelegramApiException {
+        if (dispatched(() -> revokeVoteByNumber(voteNumber, requesterId, chatId))) return;
         if (!isActive) {
             MessageUtils.sendError(Messages.NO_ACTIVE_POLL, chatId);
             return;
@@ -249,135 +803,125 @@ public class PollManager implements Serializable {
             return;
         }
         boolean isAdmin = Config.getInstance().adminUserIds.contains(requesterId);
-        int currentNumber = 1;
-        for (var entry : directVoters.entrySet()) {
-            if (entry.getValue() == 0) {
-                if (currentNumber == voteNumber) {
-                    if (isAdmin || entry.getKey().getId() == requesterId) {
-                        String voterName = entry.getKey().getFirstName();
-                        directVoters.remove(entry.getKey());
-                        String message = isAdmin && entry.getKey().getId() != requesterId
-                            ? String.format(Messages.ADMIN_REVOKED_DIRECT_VOTE, voteNumber, voterName)
-                            : String.format(Messages.REVOKED_DIRECT_VOTE, voteNumber, voterName);
-                        MessageUtils.sendMessage(String.format(Messages.SUCCESS, message), chatId);
-                        updateStatusMessage();
-                    } else {
-                        MessageUtils.sendError(Messages.PERMISSION_DENIED_REVOKE, chatId);
-                    }
-                    return;
-                }
-                currentNumber++;
-            }
+        int slot = ledger.slotAt(voteNumber);
+        if (slot == VoteLedger.NONE) {
+            MessageUtils.sendError(String.format(Messages.VOTE_NOT_FOUND_BY_NUMBER, voteNumber), chatId);
+            return;
         }
-        for (int i = 0; i < externalVotes.size(); i++) {
-            if (currentNumber == voteNumber) {
-                Vote vote = externalVotes.get(i);
-                if (isAdmin || vote.getRequesterId() == requesterId) {
-                    String voterName = vote.isAnonymous() ? Messages.ANONYMOUS_VOTER : vote.getVoterName();
-                    String requesterName = vote.getRequesterName();
-                    externalVotes.remove(i);
-                    String message = isAdmin && vote.getRequesterId() != requesterId
-                        ? String.format(Messages.ADMIN_REVOKED_EXTERNAL_VOTE, voteNumber, voterName, requesterName)
-                        : String.format(Messages.REVOKED_EXTERNAL_VOTE, voteNumber, voterName);
-                    MessageUtils.sendMessage(String.format(Messages.SUCCESS, message), chatId);
-                    updateStatusMessage();
-                } else {
-                    MessageUtils.sendError(Messages.PERMISSION_DENIED_REVOKE, chatId);
-                }
+        if (ledger.isDirect(slot)) {
+            long voterId = ledger.userIdAt(slot);
+            if (!isAdmin && voterId != requesterId) {
+                MessageUtils.sendError(Messages.PERMISSION_DENIED_REVOKE, chatId);
+                return;
+            }
+            String voterName = directVoters.getName(voterId);
+            record(new VoteEvent.Revoked(targetGroupChatId, voteNumber));
+            removeSlot(slot);
+            String message = isAdmin && voterId != requesterId
+                ? String.format(Messages.ADMIN_REVOKED_DIRECT_VOTE, voteNumber, voterName)
+                : String.format(Messages.REVOKED_DIRECT_VOTE, voteNumber, voterName);
+            MessageUtils.sendMessage(String.format(Messages.SUCCESS, message), chatId);
+        } else {
+            Vote vote = ledger.voteAt(slot);
+            if (!isAdmin && vote.getRequesterId() != requesterId) {
+                MessageUtils.sendError(Messages.PERMISSION_DENIED_REVOKE, chatId);
                 return;
             }
-            currentNumber++;
+            String voterName = vote.isAnonymous() ? Messages.ANONYMOUS_VOTER : vote.getVoterName();
+            record(new VoteEvent.Revoked(targetGroupChatId, voteNumber));
+            removeSlot(slot);
+            String message = isAdmin && vote.getRequesterId() != requesterId
+                ? String.format(Messages.ADMIN_REVOKED_EXTERNAL_VOTE, voteNumber, voterName, vote.getRequesterName())
+                : String.format(Messages.REVOKED_EXTERNAL_VOTE, voteNumber, voterName);
+            MessageUtils.sendMessage(String.format(Messages.SUCCESS, message), chatId);
         }
-        MessageUtils.sendError(String.format(Messages.VOTE_NOT_FOUND_BY_NUMBER, voteNumber), chatId);
+        updateStatusMessage();
     }
 
     private void createStatusMessage() throws TelegramApiException {
-        String statusText = buildStatusMessage();
+        getStatusFlusher().cancel();
+        createStatusMessage(TelegramClientService.getInstance(), buildStatusMessage());
+    }
+
+    private void createStatusMessage(TelegramClient client, String statusText) throws TelegramApiException {
+        Message status = TelegramFutures.await(sendStatusMessageAsync(client, statusText));
+        adoptStatusMessage(status, statusText);
+        TelegramFutures.await(pinStatusMessageAsync(client, status.getMessageId()));
+    }
+
+    // Only sends; the callers apply the result on the actor
+    private CompletableFuture<Message> sendStatusMessageAsync(TelegramClient client, String statusText) {
         SendMessage statusMessage = SendMessage.builder()
             .chatId(targetGroupChatId)
             .text(statusText)
             .parseMode("HTML")
             .disableNotification(true)
             .build();
-        var result = TelegramClientService.getInstance().execute(statusMessage);
-        this.statusMessageId = result.getMessageId();
-        pinStatusMessage();
+        return TelegramFutures.start(() -> client.executeAsync(statusMessage));
+    }
+
+    private void adoptStatusMessage(Message status, String statusText) {
+        this.statusMessageId = status.getMessageId();
+        // Not journaled; a replacement status message still has to reach the next snapshot
+        state.updateAndGet(current -> current.withStatusMessageId(status.getMessageId()));
+        getStatusFlusher().markSent(StatusRenderer.hash(statusText));
+    }
+
+    private static <T> T resultOf(CompletableFuture<T> future) {
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
     }
 
     private void updateStatusMessage() throws TelegramApiException {
         if (statusMessageId == null) return;
-        try {
-            String statusText = buildStatusMessage();
-            EditMessageText editMessage = EditMessageText.builder()
-                .chatId(targetGroupChatId)
-                .messageId(statusMessageId)
-                .text(statusText)
-                .parseMode("HTML")
-                .build();
-            TelegramClientService.getInstance().execute(editMessage);
-        } catch (TelegramApiException e) {
-            if (e.getMessage().contains("message not found") || e.getMessage().contains("message to edit not found")
-                || e.getMessage().contains("MESSAGE_ID_INVALID")) recreateStatusMessage();
-        }
+        String statusText = buildStatusMessage();
+        getStatusFlusher().submit(statusText, getStatusRenderer().contentHash(), this::editStatusMessage);
     }
 
-    private void recreateStatusMessage() throws TelegramApiException {
-        if (statusMessageId != null) {
-            DeleteMessage deleteMessage = DeleteMessage.builder()
-                .chatId(targetGroupChatId)
-                .messageId(statusMessageId)
-                .build();
-            TelegramClientService.getInstance().execute(deleteMessage);
-        }
-        createStatusMessage();
+    // Runs on the actor but does not wait for Telegram; a vanished message is replaced on the actor afterwards
+    private CompletableFuture<?> editStatusMessage(TelegramClient client, String statusText) {
+        Integer messageId = statusMessageId;
+        if (messageId == null) return CompletableFuture.completedFuture(null);
+        EditMessageText editMessage = EditMessageText.builder()
+            .chatId(targetGroupChatId)
+            .messageId(messageId)
+            .text(statusText)
+            .parseMode("HTML")
+            .build();
+        return TelegramFutures.start(() -> client.executeAsync(editMessage)).exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                : error;
+            String message = String.valueOf(cause.getMessage());
+            if (message.contains("message not found") || message.contains("message to edit not found")
+                || message.contains("MESSAGE_ID_INVALID")) {
+                submit(pm -> recreateStatusMessage(client, messageId));
+            }
+            return null;
+        });
+    }
+
+    // Skipped when the status message changed while the edit was in flight
+    private void recreateStatusMessage(TelegramClient client, Integer messageId) throws TelegramApiException {
+        if (!messageId.equals(statusMessageId)) return;
+        DeleteMessage deleteMessage = DeleteMessage.builder()
+            .chatId(targetGroupChatId)
+            .messageId(messageId)
+            .build();
+        client.execute(deleteMessage);
+        createStatusMessage(client, buildStatusMessage());
     }
 
     private String buildStatusMessage() {
-        StringBuilder status = new StringBuilder();
-        status.append(Messages.STATUS_HEADER);
-        int currentVotes = getPositiveVotes();
-        boolean isCompleted = currentVotes >= targetVotes;
-        if (isCompleted) status.append(Messages.STATUS_POLL_COMPLETED);
-        else status.append(Messages.STATUS_POLL_ACTIVE);
-        status.append(String.format(Messages.STATUS_TARGET, targetVotes));
-        if (!isCompleted) {
-            int remaining = targetVotes - currentVotes;
-            status.append(String.format(Messages.STATUS_REMAINING, remaining));
-            status.append(Messages.STATUS_HOW_TO_VOTE);
-            status.append(Messages.STATUS_USE_POLL_ABOVE);
-            status.append(Messages.STATUS_OR_USE_COMMANDS);
-            status.append(Messages.STATUS_COMMAND_PLUS);
-            status.append(Messages.STATUS_COMMAND_PLUS_NUMBER);
-            status.append(Messages.STATUS_COMMAND_PLUS_NAMES);
-            status.append(Messages.STATUS_COMMAND_MINUS);
-        }
-        status.append(Messages.STATUS_VOTE_LIST);
-        appendVoteListSimple(status);
-        return status.toString();
-    }
-
-    private void appendVoteListSimple(StringBuilder status) {
-        int voteNumber = 1;
-        for (var entry : directVoters.entrySet())
-            if (entry.getValue() == 0)
-                status.append(String.format("%d. %s\n", voteNumber++, entry.getKey().getFirstName()));
-        for (Vote vote : externalVotes) {
-            String voterName = vote.isAnonymous() ? Messages.ANONYMOUS_VOTER : vote.getVoterName();
-            status.append(String.format("%d. %s (%s)\n",
-                voteNumber++,
-                voterName,
-                String.format(Messages.INVITED, vote.getRequesterName())));
-        }
+        return getStatusRenderer().render(targetVotes, positiveVotes(), directVoters, ledger);
     }
 
-    private void pinStatusMessage() throws TelegramApiException {
-        if (statusMessageId == null) return;
+    private CompletableFuture<Boolean> pinStatusMessageAsync(TelegramClient client, Integer messageId) {
+        if (messageId == null) return CompletableFuture.completedFuture(false);
         var pinMessage = org.telegram.telegrambots.meta.api.methods.pinnedmessages.PinChatMessage.builder()
             .chatId(targetGroupChatId)
-            .messageId(statusMessageId)
+            .messageId(messageId)
             .disableNotification(true)
             .build();
-        TelegramClientService.getInstance().execute(pinMessage);
+        return TelegramFutures.start(() -> client.executeAsync(pinMessage));
     }
 
     private void unpinStatusMessage() throws TelegramApiException {
@@ -0,0 +1,236 @@
+package io.sportpoll.bot.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.persistance.Archiving;
+import io.sportpoll.bot.persistance.Journaled;
+import io.sportpoll.bot.persistance.LedgerBacked;
+import io.sportpoll.bot.persistance.PollArchive;
+import io.sportpoll.bot.persistance.Versioned;
+import io.sportpoll.bot.persistance.VoteJournal;
+
+public class PollRegistry implements Serializable, Journaled, Archiving, LedgerBacked, Versioned {
+    private static final String LEDGER_SUFFIX = ".ledger";
+    private final ConcurrentHashMap<Long, PollManager> polls = new ConcurrentHashMap<>();
+    private transient ConcurrentHashMap<String, Long> chatsByPollId;
+    private transient long defaultChatId;
+    private transient List<Long> groupChatIds;
+    private transient long statusFlushIntervalMillis;
+    private transient volatile VoteJournal journal;
+    private transient volatile PollArchive archive;
+    private transient volatile File ledgerDirectory;
+    private transient volatile Runnable flushHook;
+    private transient AtomicLong structureVersion;
+
+    @FunctionalInterface
+    public interface PollAction {
+        void execute(PollManager pollManager) throws TelegramApiException;
+    }
+
+    public PollRegistry() {
+        this(Config.getInstance().targetGroupChatId, Config.getInstance().statusFlushIntervalMillis,
+            Config.getInstance().groupChatIds);
+    }
+
+    public PollRegistry(long defaultChatId) {
+        this(defaultChatId, 0);
+    }
+
+    public PollRegistry(long defaultChatId, long statusFlushIntervalMillis) {
+        this(defaultChatId, statusFlushIntervalMillis, List.of(defaultChatId));
+    }
+
+    // Registered groups accept polls even before their first one; their PollManagers are created on first use
+    public PollRegistry(long defaultChatId, long statusFlushIntervalMillis, List<Long> groupChatIds) {
+        this.defaultChatId = defaultChatId;
+        this.statusFlushIntervalMillis = statusFlushIntervalMillis;
+        this.groupChatIds = List.copyOf(groupChatIds);
+        initTransientState();
+    }
+
+    private void initTransientState() {
+        this.chatsByPollId = new ConcurrentHashMap<>();
+        this.structureVersion = new AtomicLong();
+    }
+
+    public PollManager getOrCreate(long chatId) {
+        return polls.computeIfAbsent(chatId, id -> {
+            structureVersion.incrementAndGet();
+            return configure(new PollManager(id));
+        });
+    }
+
+    private PollManager configure(PollManager pollManager) {
+        pollManager.setStatusFlushInterval(statusFlushIntervalMillis);
+        pollManager.setJournal(journal);
+        pollManager.setArchive(archive);
+        pollManager.setFlushHook(flushHook);
+        if (ledgerDirectory != null)
+            pollManager.attachMappedLedger(new File(ledgerDirectory, pollManager.getChatId() + LEDGER_SUFFIX));
+        pollManager.setPollIdListener(this::indexPollId);
+        indexPollId(pollManager.getTelegramPollId(), pollManager.getChatId());
+        return pollManager;
+    }
+
+    private void indexPollId(String pollId, long chatId) {
+        if (pollId != null) chatsByPollId.put(pollId, chatId);
+    }
+
+    // Poll versions only grow, so their sum advances whenever any poll changes
+    @Override
+    public long modificationVersion() {
+        long version = structureVersion.get();
+        for (PollManager pollManager : polls.values())
+            version += pollManager.getModificationVersion();
+        return version;
+    }
+
+    @Override
+    public void setFlushHook(Runnable hook) {
+        this.flushHook = hook;
+        polls.values().forEach(this::configure);
+    }
+
+    @Override
+    public void attachJournal(VoteJournal journal) {
+        try {
+            journal.replay((seq, event) -> getOrCreate(event.chatId()).replay(seq, event));
+        } catch (IOException e) {
+            System.err.println("Failed to replay vote journal: " + e.getMessage());
+        }
+        long lastSeq = 0;
+        for (PollManager pollManager : polls.values())
+            lastSeq = Math.max(lastSeq, pollManager.getLastJournalSeq());
+        // A compacted journal may be empty while the snapshot already holds higher sequence numbers
+        journal.advanceTo(lastSeq);
+        this.journal = journal;
+        polls.values().forEach(this::configure);
+    }
+
+    @Override
+    public void attachArchive(PollArchive archive) {
+        this.archive = archive;
+        polls.values().forEach(this::configure);
+    }
+
+    // Ledger files of chats missing from the snapshot still bring their polls back
+    @Override
+    public void attachLedgers(File directory) {
+        directory.mkdirs();
+        this.ledgerDirectory = directory;
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(LEDGER_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String chatId = file.getName().substring(0, file.getName().length() - LEDGER_SUFFIX.length());
+                try {
+                    getOrCreate(Long.parseLong(chatId));
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping unexpected ledger file " + file.getName());
+                }
+            }
+        }
+        polls.values().forEach(this::configure);
+    }
+
+    @Override
+    public void forceLedgers() {
+        polls.values().forEach(PollManager::forceMappedLedger);
+    }
+
+    public PollManager getDefault() {
+        return getOrCreate(defaultChatId);
+    }
+
+    public long getDefaultChatId() {
+        return defaultChatId;
+    }
+
+    // The default group first
+    public List<Long> getGroupChatIds() {
+        return groupChatIds;
+    }
+
+    public PollManager find(long chatId) {
+        return polls.get(chatId);
+    }
+
+    public boolean hasPoll(long chatId) {
+        return groupChatIds.contains(chatId) || polls.containsKey(chatId);
+    }
+
+    public void register(long chatId, PollManager pollManager) {
+        polls.put(chatId, configure(pollManager));
+        structureVersion.incrementAndGet();
+    }
+
+    public Collection<PollManager> all() {
+        return Collections.unmodifiableCollection(polls.values());
+    }
+
+    public PollManager findByPollId(String pollId) {
+        if (pollId == null) return null;
+        Long chatId = chatsByPollId.get(pollId);
+        if (chatId != null) {
+            PollManager pollManager = polls.get(chatId);
+            if (pollManager != null && pollId.equals(pollManager.getTelegramPollId())) return pollManager;
+            chatsByPollId.remove(pollId);
+        }
+        for (var entry : polls.entrySet()) {
+            if (pollId.equals(entry.getValue().getTelegramPollId())) {
+                chatsByPollId.put(pollId, entry.getKey());
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // PollManager serializes its own mutations on its actor, so the action runs on the calling thread
+    public void execute(long chatId, PollAction action) throws TelegramApiException {
+        PollManager pollManager = resolve(chatId);
+        if (pollManager != null) action.execute(pollManager);
+    }
+
+    // Runs the whole action on the poll's actor, e.g. to read and update state in one step
+    public CompletableFuture<Void> submit(long chatId, PollAction action) {
+        PollManager pollManager = resolve(chatId);
+        if (pollManager == null) return CompletableFuture.completedFuture(null);
+        return pollManager.submit(action);
+    }
+
+    private PollManager resolve(long chatId) {
+        return groupChatIds.contains(chatId) ? getOrCreate(chatId) : polls.get(chatId);
+    }
+
+    public void executeForPollAnswer(String pollId, PollAction action) throws TelegramApiException {
+        PollManager pollManager = findByPollId(pollId);
+        execute(pollManager != null ? pollManager.getChatId() : defaultChatId, action);
+    }
+
+    public void executeForAll(PollAction action) throws TelegramApiException {
+        for (long chatId : polls.keySet())
+            execute(chatId, action);
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.defaultChatId = Config.getInstance().targetGroupChatId;
+        this.statusFlushIntervalMillis = Config.getInstance().statusFlushIntervalMillis;
+        this.groupChatIds = Config.getInstance().groupChatIds;
+        initTransientState();
+        polls.values().forEach(this::configure);
+    }
+}
@@ -0,0 +1,36 @@
+package io.sportpoll.bot.services;
+
+import java.io.IOException;
+
+import io.sportpoll.bot.persistance.BinaryReader;
+import io.sportpoll.bot.persistance.BinaryWriter;
+import io.sportpoll.bot.persistance.Codec;
+
+public class PollRegistryCodec implements Codec<PollRegistry> {
+    // 2: vote times
+    private static final int VERSION = 2;
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void write(PollRegistry registry, BinaryWriter out) throws IOException {
+        var polls = registry.all().toArray(PollManager[]::new);
+        out.writeVarInt(polls.length);
+        for (PollManager pollManager : polls) {
+            out.writeVarLong(pollManager.getChatId());
+            pollManager.writeState(out);
+        }
+    }
+
+    @Override
+    public PollRegistry read(BinaryReader in, int version) throws IOException {
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported PollRegistry version " + version);
+        PollRegistry registry = new PollRegistry();
+        for (int i = in.readVarInt(); i > 0; i--)
+            registry.getOrCreate(in.readVarLong()).readState(in, version);
+        return registry;
+    }
+}
@@ -0,0 +1,243 @@
+package io.sportpoll.bot.services;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.pinnedmessages.PinChatMessage;
+import org.telegram.telegrambots.meta.api.methods.pinnedmessages.UnpinChatMessage;
+import org.telegram.telegrambots.meta.api.methods.polls.StopPoll;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.utils.TelegramFutures;
+
+// Outermost layer of the client: retries transient failures with jittered exponential backoff and stops calling
+// the Bot API for a while once it looks down, so a flaky network ends a flow with a bounded wait instead of the
+// first stray exception. Calls that may have reached Telegram are only retried when repeating them is harmless;
+// 429s were already retried by the OutboundScheduler below and are passed on as they are.
+public class ResilientTelegramClient extends ForwardingTelegramClient {
+    private static final String STATS_LINE = "%n  %-22s ok=%d failed=%d retries=%d rejected=%d avg=%d max=%d ms";
+
+    public enum Failure {
+        // The connection was never made, so nothing reached Telegram
+        UNREACHABLE,
+        // The request may or may not have been processed
+        NETWORK,
+        SERVER,
+        RATE_LIMITED,
+        PERMANENT
+    }
+
+    public record Policy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, int breakerThreshold,
+        long breakerCooldownMillis) {
+        public static Policy fromConfig(Config config) {
+            return new Policy((int) config.telegramMaxAttempts, config.telegramRetryBaseMillis,
+                config.telegramRetryMaxMillis, (int) config.telegramBreakerThreshold,
+                config.telegramBreakerCooldownMillis);
+        }
+    }
+
+    public record MethodStats(long successes, long failures, long retries, long rejected, long averageLatencyMillis,
+        long maxLatencyMillis) {
+    }
+
+    public static class CircuitOpenException extends TelegramApiException {
+        public CircuitOpenException(String method) {
+            super("Telegram API unavailable, not sending " + method);
+        }
+    }
+
+    private static class Counters {
+        final AtomicLong successes = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong totalLatencyNanos = new AtomicLong();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        void finished(AtomicLong outcome, long latencyNanos) {
+            outcome.incrementAndGet();
+            totalLatencyNanos.addAndGet(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+    }
+
+    private final Policy policy;
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "telegram-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int consecutiveOutages;
+    private boolean open;
+    private boolean trialInFlight;
+    private long openedAt;
+
+    public ResilientTelegramClient(TelegramClient delegate, Policy policy) {
+        super(delegate);
+        this.policy = policy;
+    }
+
+    public static Failure classify(Throwable error) {
+        if (error instanceof TelegramApiRequestException request) {
+            Integer code = request.getErrorCode();
+            // No code means the body was not a Bot API response, typically an error page from a proxy
+            if (code == null || code == 0 || code >= 500) return Failure.SERVER;
+            return code == 429 ? Failure.RATE_LIMITED : Failure.PERMANENT;
+        }
+        // execute wraps the transport's IOException in a TelegramApiException, executeAsync fails with it bare
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException io) {
+                return io instanceof ConnectException || io instanceof UnknownHostException
+                    || io instanceof NoRouteToHostException ? Failure.UNREACHABLE : Failure.NETWORK;
+            }
+        }
+        return Failure.PERMANENT;
+    }
+
+    // Sending these twice leaves the chat as sending them once; a repeat may fail with a 400 such as
+    // "message is not modified", which callers already treat as done
+    public static boolean isIdempotent(BotApiMethod<?> method) {
+        return method instanceof EditMessageText || method instanceof StopPoll || method instanceof PinChatMessage
+            || method instanceof UnpinChatMessage || method instanceof DeleteMessage
+            || method instanceof AnswerCallbackQuery || method.getMethod().startsWith("get");
+    }
+
+    static boolean isRetryable(Failure failure, BotApiMethod<?> method) {
+        return switch (failure) {
+            case UNREACHABLE -> true;
+            case NETWORK, SERVER -> isIdempotent(method);
+            case RATE_LIMITED, PERMANENT -> false;
+        };
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(Method method) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(method, 1, System.nanoTime(), result);
+        return result;
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method)
+        throws TelegramApiException {
+        return TelegramFutures.await(executeAsync(method));
+    }
+
+    public Map<String, MethodStats> getStats() {
+        Map<String, MethodStats> stats = new TreeMap<>();
+        counters.forEach((method, c) -> {
+            long finished = c.successes.get() + c.failures.get() + c.rejected.get();
+            long average = finished == 0 ? 0 : c.totalLatencyNanos.get() / finished;
+            stats.put(method, new MethodStats(c.successes.get(), c.failures.get(), c.retries.get(),
+                c.rejected.get(), TimeUnit.NANOSECONDS.toMillis(average),
+                TimeUnit.NANOSECONDS.toMillis(c.maxLatencyNanos.get())));
+        });
+        return stats;
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder("Telegram calls" + (isOpen() ? " (circuit open):" : ":"));
+        getStats().forEach((method, s) -> summary.append(String.format(STATS_LINE, method, s.successes(),
+            s.failures(), s.retries(), s.rejected(), s.averageLatencyMillis(), s.maxLatencyMillis())));
+        return summary.toString();
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    private <T extends Serializable> void attempt(BotApiMethod<T> method, int attempt, long startedAt,
+        CompletableFuture<T> result) {
+        Counters stats = counters.computeIfAbsent(method.getMethod(), m -> new Counters());
+        if (!allow()) {
+            stats.finished(stats.rejected, System.nanoTime() - startedAt);
+            result.completeExceptionally(new CircuitOpenException(method.getMethod()));
+            return;
+        }
+        TelegramFutures.start(() -> delegate.executeAsync(method)).whenComplete((value, error) -> {
+            if (error == null) {
+                reachable();
+                stats.finished(stats.successes, System.nanoTime() - startedAt);
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            Failure failure = classify(cause);
+            if (failure == Failure.UNREACHABLE || failure == Failure.NETWORK || failure == Failure.SERVER) outage();
+            else reachable();
+            if (attempt < policy.maxAttempts() && isRetryable(failure, method)) {
+                stats.retries.incrementAndGet();
+                retries.schedule(() -> attempt(method, attempt + 1, startedAt, result), backoffMillis(attempt),
+                    TimeUnit.MILLISECONDS);
+                return;
+            }
+            System.err.println("Telegram " + method.getMethod() + " failed (" + failure + ") after " + attempt
+                + " attempt(s): " + cause.getMessage());
+            stats.finished(stats.failures, System.nanoTime() - startedAt);
+            result.completeExceptionally(cause);
+        });
+    }
+
+    // Equal jitter: half the exponential delay is fixed, the other half random, so retries from a burst spread out
+    long backoffMillis(int attempt) {
+        long delay = Math.min(policy.maxDelayMillis(), policy.baseDelayMillis() << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // Once open, the breaker lets a single trial call through per cooldown; its outcome closes or reopens it
+    private synchronized boolean allow() {
+        if (!open) return true;
+        long cooldown = TimeUnit.MILLISECONDS.toNanos(policy.breakerCooldownMillis());
+        if (trialInFlight || System.nanoTime() - openedAt < cooldown) return false;
+        trialInFlight = true;
+        return true;
+    }
+
+    private synchronized void reachable() {
+        if (open) System.err.println("Telegram API reachable again, closing circuit breaker");
+        consecutiveOutages = 0;
+        open = false;
+        trialInFlight = false;
+    }
+
+    private synchronized void outage() {
+        consecutiveOutages++;
+        trialInFlight = false;
+        if (open || consecutiveOutages >= policy.breakerThreshold()) {
+            if (!open) System.err.println("Telegram API failed " + consecutiveOutages
+                + " times in a row, opening circuit breaker");
+            open = true;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+            && cause.getCause() != null)
+            cause = cause.getCause();
+        return cause;
+    }
+}
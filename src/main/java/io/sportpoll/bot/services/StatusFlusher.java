@@ -0,0 +1,138 @@
+package io.sportpoll.bot.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+// Coalesces status edits to one per interval. The shared timer only hands a due flush to the owner, the poll's
+// actor, so the edit is built and sent in order with the poll's own changes and never blocks other polls.
+public class StatusFlusher {
+    private static final ScheduledExecutorService sharedTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "status-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long intervalMillis;
+    private final ScheduledExecutorService timer;
+    private final Executor owner;
+    private String pendingText;
+    private long pendingHash;
+    private StatusSender pendingSender;
+    private TelegramClient pendingClient;
+    private ScheduledFuture<?> pendingFlush;
+    private long lastSentAt;
+    private long lastSentHash;
+    private boolean hasSentHash;
+
+    // Starts the edit and returns without waiting for Telegram
+    @FunctionalInterface
+    public interface StatusSender {
+        CompletableFuture<?> send(TelegramClient client, String text);
+    }
+
+    public StatusFlusher(long intervalMillis) {
+        this(intervalMillis, Runnable::run);
+    }
+
+    public StatusFlusher(long intervalMillis, Executor owner) {
+        this(intervalMillis, sharedTimer, owner);
+    }
+
+    public StatusFlusher(long intervalMillis, ScheduledExecutorService timer, Executor owner) {
+        this.intervalMillis = intervalMillis;
+        this.timer = timer;
+        this.owner = owner;
+    }
+
+    public void submit(String text, StatusSender sender) {
+        submit(text, StatusRenderer.hash(text), sender);
+    }
+
+    public void submit(String text, long contentHash, StatusSender sender) {
+        TelegramClient client = TelegramClientService.getInstance();
+        synchronized (this) {
+            // Identical content would only earn a "message is not modified" error from Telegram
+            if (pendingSender == null && hasSentHash && contentHash == lastSentHash) return;
+            pendingText = text;
+            pendingHash = contentHash;
+            pendingSender = sender;
+            pendingClient = client;
+            if (pendingFlush != null) return;
+            long delay = lastSentAt + intervalMillis - System.currentTimeMillis();
+            if (delay > 0) {
+                pendingFlush = timer.schedule(this::flushScheduled, delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        flush();
+    }
+
+    public synchronized void markSent(long contentHash) {
+        lastSentAt = System.currentTimeMillis();
+        lastSentHash = contentHash;
+        hasSentHash = true;
+    }
+
+    // Sends the pending edit; the future completes when Telegram answered
+    public CompletableFuture<Void> flush() {
+        String text;
+        StatusSender sender;
+        TelegramClient client;
+        synchronized (this) {
+            if (pendingFlush != null) pendingFlush.cancel(false);
+            pendingFlush = null;
+            if (pendingSender == null) return CompletableFuture.completedFuture(null);
+            if (hasSentHash && pendingHash == lastSentHash) {
+                clearPending();
+                return CompletableFuture.completedFuture(null);
+            }
+            text = pendingText;
+            sender = pendingSender;
+            client = pendingClient;
+            clearPending();
+            lastSentAt = System.currentTimeMillis();
+            lastSentHash = pendingHash;
+            hasSentHash = true;
+        }
+        CompletableFuture<?> sent;
+        try {
+            sent = sender.send(client, text);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.whenComplete((result, error) -> {
+            if (error == null) return;
+            synchronized (this) {
+                hasSentHash = false;
+            }
+        }).thenApply(result -> null);
+    }
+
+    public synchronized void cancel() {
+        if (pendingFlush != null) pendingFlush.cancel(false);
+        pendingFlush = null;
+        clearPending();
+    }
+
+    private void clearPending() {
+        pendingText = null;
+        pendingSender = null;
+        pendingClient = null;
+    }
+
+    public synchronized boolean hasPending() {
+        return pendingSender != null;
+    }
+
+    private void flushScheduled() {
+        owner.execute(() -> flush().whenComplete((result, error) -> {
+            if (error != null) System.err.println("Failed to flush status message: " + error.getMessage());
+        }));
+    }
+}
@@ -0,0 +1,113 @@
+package io.sportpoll.bot.services;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import io.sportpoll.bot.constants.Messages;
+import io.sportpoll.bot.models.DirectVoters;
+import io.sportpoll.bot.models.Vote;
+import io.sportpoll.bot.models.VoteLedger;
+
+public class StatusRenderer {
+    private static final String INSTRUCTIONS = Messages.STATUS_HOW_TO_VOTE + Messages.STATUS_USE_POLL_ABOVE
+        + Messages.STATUS_OR_USE_COMMANDS + Messages.STATUS_COMMAND_PLUS + Messages.STATUS_COMMAND_PLUS_NUMBER
+        + Messages.STATUS_COMMAND_PLUS_NAMES + Messages.STATUS_COMMAND_MINUS;
+    private static final String REMAINING_PREFIX = formatPrefix(Messages.STATUS_REMAINING);
+    private static final String REMAINING_SUFFIX = formatSuffix(Messages.STATUS_REMAINING);
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Long, DirectLine> directLines = new HashMap<>();
+    private final Map<Vote, String> externalLines = new IdentityHashMap<>();
+    private final StringBuilder buffer = new StringBuilder(1024);
+    private int headerTarget = -1;
+    private String activeHeader;
+    private String completedHeader;
+    private long contentHash;
+
+    private record DirectLine(String name, String fragment) {}
+
+    public synchronized String render(int targetVotes, int currentVotes, DirectVoters directVoters,
+        VoteLedger ledger) {
+        if (headerTarget != targetVotes) cacheHeaders(targetVotes);
+        StringBuilder status = buffer;
+        status.setLength(0);
+        if (currentVotes >= targetVotes) status.append(completedHeader);
+        else {
+            status.append(activeHeader);
+            status.append(REMAINING_PREFIX).append(targetVotes - currentVotes).append(REMAINING_SUFFIX);
+            status.append(INSTRUCTIONS);
+        }
+        status.append(Messages.STATUS_VOTE_LIST);
+        int voteNumber = 1;
+        for (int slot = 0; slot < ledger.slotLimit(); slot++) {
+            if (!ledger.isLive(slot)) continue;
+            String fragment = ledger.isDirect(slot)
+                ? directFragment(ledger.userIdAt(slot), directVoters.getName(ledger.userIdAt(slot)))
+                : externalLines.computeIfAbsent(ledger.voteAt(slot), StatusRenderer::externalFragment);
+            status.append(voteNumber++).append(fragment);
+        }
+        pruneStaleLines(directVoters, ledger);
+        String text = status.toString();
+        contentHash = hash(text);
+        return text;
+    }
+
+    public synchronized long contentHash() {
+        return contentHash;
+    }
+
+    public static long hash(CharSequence text) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private void cacheHeaders(int targetVotes) {
+        String target = String.format(Messages.STATUS_TARGET, targetVotes);
+        activeHeader = Messages.STATUS_HEADER + Messages.STATUS_POLL_ACTIVE + target;
+        completedHeader = Messages.STATUS_HEADER + Messages.STATUS_POLL_COMPLETED + target;
+        headerTarget = targetVotes;
+    }
+
+    private String directFragment(long userId, String name) {
+        DirectLine line = directLines.get(userId);
+        if (line == null || !Objects.equals(line.name(), name)) {
+            line = new DirectLine(name, ". " + name + "\n");
+            directLines.put(userId, line);
+        }
+        return line.fragment();
+    }
+
+    private static String externalFragment(Vote vote) {
+        String voterName = vote.isAnonymous() ? Messages.ANONYMOUS_VOTER : vote.getVoterName();
+        return ". " + voterName + " (" + String.format(Messages.INVITED, vote.getRequesterName()) + ")\n";
+    }
+
+    // Cached fragments for revoked votes are dropped once they outnumber the live roster
+    private void pruneStaleLines(DirectVoters directVoters, VoteLedger ledger) {
+        if (directLines.size() > directVoters.size() * 2 + 16)
+            directLines.keySet().removeIf(userId -> directVoters.get(userId) == DirectVoters.NONE);
+        if (externalLines.size() > ledger.externalCount() * 2 + 16) {
+            Set<Vote> live = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int slot = 0; slot < ledger.slotLimit(); slot++)
+                if (ledger.isLive(slot) && !ledger.isDirect(slot)) live.add(ledger.voteAt(slot));
+            externalLines.keySet().retainAll(live);
+        }
+    }
+
+    private static String formatPrefix(String format) {
+        return format.substring(0, format.indexOf("%d"));
+    }
+
+    private static String formatSuffix(String format) {
+        return format.substring(format.indexOf("%d") + 2);
+    }
+}
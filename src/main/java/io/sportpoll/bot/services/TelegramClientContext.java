@@ -0,0 +1,27 @@
+package io.sportpoll.bot.services;
+
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+// Carries the submitting thread's client onto poll actor threads
+public class TelegramClientContext {
+    private static final ThreadLocal<TelegramClient> bound = new ThreadLocal<>();
+
+    public static TelegramClient current() {
+        return bound.get();
+    }
+
+    public static TelegramClient capture() {
+        TelegramClient client = bound.get();
+        if (client != null) return client;
+        try {
+            return TelegramClientService.getInstance();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    static void bind(TelegramClient client) {
+        if (client == null) bound.remove();
+        else bound.set(client);
+    }
+}
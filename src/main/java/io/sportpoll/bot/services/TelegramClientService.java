@@ -1,20 +1,43 @@
 package io.sportpoll.bot.services;
 
-import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 import io.sportpoll.bot.config.Config;
 
 public class TelegramClientService {
     private static volatile TelegramClient instance = null;
+    private static volatile TelegramTransport transport = null;
+    private static volatile OutboundScheduler scheduler = null;
+    private static volatile ResilientTelegramClient resilient = null;
 
     public static TelegramClient getInstance() {
+        TelegramClient bound = TelegramClientContext.current();
+        if (bound != null) return bound;
         if (instance == null) {
             synchronized (TelegramClientService.class) {
                 if (instance == null) {
-                    instance = new OkHttpTelegramClient(Config.getInstance().botToken);
+                    Config config = Config.getInstance();
+                    transport = new TelegramTransport(TelegramTransport.Settings.fromConfig(config));
+                    scheduler = new OutboundScheduler(transport.createClient(config.botToken),
+                        OutboundScheduler.Limits.fromConfig(config));
+                    resilient = new ResilientTelegramClient(scheduler,
+                        ResilientTelegramClient.Policy.fromConfig(config));
+                    instance = resilient;
                 }
             }
         }
         return instance;
     }
+
+    // Null until the first real client has been created
+    public static TelegramTransport getTransport() {
+        return transport;
+    }
+
+    public static OutboundScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public static ResilientTelegramClient getResilientClient() {
+        return resilient;
+    }
 }
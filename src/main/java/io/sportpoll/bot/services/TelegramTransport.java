@@ -0,0 +1,105 @@
+package io.sportpoll.bot.services;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
+import org.telegram.telegrambots.meta.TelegramUrl;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.utils.LatencyHistogram;
+
+// The HTTP side of the Bot API client: pool, concurrency, timeouts and protocol come from Config. Each Bot API
+// method gets a latency histogram covering one HTTP exchange up to the response headers, so time spent queued
+// in the OutboundScheduler or between retries does not show up in it.
+public class TelegramTransport {
+    private static final String LATENCY_LINE = "%n  %-22s n=%d mean=%d p50=%d p90=%d p99=%d max=%d";
+
+    public record Settings(int poolSize, long keepAliveMillis, int maxRequestsPerHost, long connectTimeoutMillis,
+        long readTimeoutMillis, boolean http2, String apiUrl) {
+        public static Settings fromConfig(Config config) {
+            return new Settings((int) config.telegramPoolSize, config.telegramKeepAliveMillis,
+                (int) config.telegramMaxRequestsPerHost, config.telegramConnectTimeoutMillis,
+                config.telegramReadTimeoutMillis, config.telegramHttp2, config.telegramApiUrl);
+        }
+    }
+
+    private final Settings settings;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    public TelegramTransport(Settings settings) {
+        this.settings = settings;
+    }
+
+    public TelegramClient createClient(String botToken) {
+        return new OkHttpTelegramClient(buildHttpClient(), botToken, telegramUrl());
+    }
+
+    public OkHttpClient buildHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(settings.maxRequestsPerHost());
+        dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), settings.maxRequestsPerHost()));
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(new ConnectionPool(settings.poolSize(), settings.keepAliveMillis(), TimeUnit.MILLISECONDS))
+            .connectTimeout(settings.connectTimeoutMillis(), TimeUnit.MILLISECONDS)
+            .readTimeout(settings.readTimeoutMillis(), TimeUnit.MILLISECONDS)
+            .writeTimeout(settings.readTimeoutMillis(), TimeUnit.MILLISECONDS)
+            .addInterceptor(this::timed);
+        // HTTP/2 is negotiated over TLS by default; a plain-HTTP local server or a misbehaving proxy may need 1.1
+        if (!settings.http2()) builder.protocols(List.of(Protocol.HTTP_1_1));
+        return builder.build();
+    }
+
+    public TelegramUrl telegramUrl() {
+        if (settings.apiUrl() == null) return TelegramUrl.DEFAULT_URL;
+        URI uri = URI.create(settings.apiUrl());
+        String schema = uri.getScheme() != null ? uri.getScheme() : "https";
+        int port = uri.getPort() != -1 ? uri.getPort() : "http".equals(schema) ? 80 : 443;
+        return new TelegramUrl(schema, uri.getHost(), port, false);
+    }
+
+    public Map<String, LatencyHistogram.Snapshot> getLatencies() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        latencies.forEach((method, histogram) -> snapshots.put(method, histogram.snapshot()));
+        return snapshots;
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder("Telegram request latency (ms):");
+        getLatencies().forEach((method, s) -> summary.append(String.format(LATENCY_LINE, method, s.count(),
+            s.meanMillis(), s.p50Millis(), s.p90Millis(), s.p99Millis(), s.maxMillis())));
+        return summary.toString();
+    }
+
+    // Requests go to /bot<token>/<method>, or /file/bot<token>/<path> for downloads
+    static String methodOf(HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        if (!segments.isEmpty() && "file".equals(segments.get(0))) return "download";
+        return segments.isEmpty() ? "" : segments.get(segments.size() - 1);
+    }
+
+    private Response timed(Interceptor.Chain chain) throws IOException {
+        LatencyHistogram histogram = latencies.computeIfAbsent(methodOf(chain.request().url()),
+            method -> new LatencyHistogram());
+        long start = System.nanoTime();
+        try {
+            return chain.proceed(chain.request());
+        } finally {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.sportpoll.bot.services;
+
+import java.util.concurrent.TimeUnit;
+
+// Refills continuously up to its capacity; times are System.nanoTime() values passed in by the caller. A pause,
+// e.g. from a 429 with retry_after, keeps the bucket closed until the given time.
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long updatedAt;
+    private long pausedUntil;
+
+    public TokenBucket(double capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.updatedAt = now;
+        this.pausedUntil = now;
+    }
+
+    // 0 when a token can be taken now, otherwise how long until one can
+    public synchronized long delayNanos(long now) {
+        refill(now);
+        long paused = pausedUntil - now;
+        if (paused > 0) return paused;
+        if (tokens >= 1) return 0;
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    public synchronized void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    public synchronized void pauseUntil(long until) {
+        if (until - pausedUntil > 0) pausedUntil = until;
+        tokens = 0;
+    }
+
+    // A full, unpaused bucket holds no history and can be dropped and recreated later
+    public synchronized boolean isIdle(long now) {
+        refill(now);
+        return tokens >= capacity && now - pausedUntil >= 0;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - updatedAt;
+        if (elapsed <= 0) return;
+        tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+        updatedAt = now;
+    }
+}
@@ -0,0 +1,144 @@
+package io.sportpoll.bot.services;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.polls.PollAnswer;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import io.sportpoll.bot.config.Config;
+
+// Spreads incoming updates over a fixed set of partitions by chat, each a bounded queue drained by one virtual
+// thread: updates from one chat are handled one at a time in arrival order, different chats in parallel. A full
+// partition blocks the submitter, which holds back the long-polling loop or the webhook request that brought it.
+public class UpdateDispatcher {
+    private static final Update STOP = new Update();
+
+    public record Metrics(int queued, int deepestPartition, long processed, long failed) {
+    }
+
+    private final Consumer<Update> handler;
+    // Null when poll answers cannot be traced back to their chat
+    private final PollRegistry pollRegistry;
+    private final BlockingQueue<Update>[] partitions;
+    private final Thread[] workers;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean stopped;
+
+    public static UpdateDispatcher fromConfig(Config config, PollRegistry pollRegistry, Consumer<Update> handler) {
+        return new UpdateDispatcher((int) config.updatePartitions, (int) config.updateQueueCapacity, pollRegistry,
+            handler);
+    }
+
+    public UpdateDispatcher(int partitionCount, int queueCapacity, Consumer<Update> handler) {
+        this(partitionCount, queueCapacity, null, handler);
+    }
+
+    @SuppressWarnings("unchecked")
+    public UpdateDispatcher(int partitionCount, int queueCapacity, PollRegistry pollRegistry,
+        Consumer<Update> handler) {
+        this.handler = handler;
+        this.pollRegistry = pollRegistry;
+        this.partitions = new BlockingQueue[partitionCount];
+        this.workers = new Thread[partitionCount];
+        // Workers keep the client of whoever created the dispatcher, as poll actor threads do
+        TelegramClient client = TelegramClientContext.capture();
+        for (int i = 0; i < partitionCount; i++) {
+            BlockingQueue<Update> queue = new ArrayBlockingQueue<>(queueCapacity);
+            partitions[i] = queue;
+            workers[i] = Thread.ofVirtual().name("updates-" + i).start(() -> drain(queue, client));
+        }
+    }
+
+    // Waits for room in the update's partition
+    public void submit(Update update) throws InterruptedException {
+        if (stopped) throw new IllegalStateException("Update dispatcher is stopped");
+        partitionOf(update).put(update);
+    }
+
+    // False when the partition stayed full for the whole timeout or the dispatcher is stopped
+    public boolean submit(Update update, long timeout, TimeUnit unit) throws InterruptedException {
+        return !stopped && partitionOf(update).offer(update, timeout, unit);
+    }
+
+    public Metrics getMetrics() {
+        int queued = 0;
+        int deepest = 0;
+        for (BlockingQueue<Update> partition : partitions) {
+            int size = partition.size();
+            queued += size;
+            deepest = Math.max(deepest, size);
+        }
+        return new Metrics(queued, deepest, processed.get(), failed.get());
+    }
+
+    // Lets the workers finish what was already queued, up to the timeout
+    public void stop(long timeout, TimeUnit unit) throws InterruptedException {
+        stopped = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int i = 0; i < partitions.length; i++) {
+            // Queued behind everything already accepted, so the worker reaches it after draining
+            if (!partitions[i].offer(STOP, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) workers[i].interrupt();
+        }
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) worker.join(Duration.ofNanos(remaining));
+            if (worker.isAlive()) worker.interrupt();
+        }
+    }
+
+    // A poll answer carries no chat, so it is keyed by the chat of the poll it answers and lands behind that chat's
+    // messages; answers to polls the registry does not know are keyed by the user, keeping one user's in order
+    private long keyOf(Update update) {
+        if (update.getMessage() != null) return update.getMessage().getChatId();
+        if (update.getEditedMessage() != null) return update.getEditedMessage().getChatId();
+        if (update.getCallbackQuery() != null) {
+            CallbackQuery callback = update.getCallbackQuery();
+            return callback.getMessage() != null ? callback.getMessage().getChatId() : callback.getFrom().getId();
+        }
+        if (update.getPollAnswer() != null) {
+            PollAnswer answer = update.getPollAnswer();
+            PollManager pollManager = pollRegistry != null ? pollRegistry.findByPollId(answer.getPollId()) : null;
+            if (pollManager != null) return pollManager.getChatId();
+            return answer.getUser() != null ? answer.getUser().getId() : answer.getVoterChat().getId();
+        }
+        if (update.getPoll() != null) return update.getPoll().getId().hashCode();
+        if (update.getMyChatMember() != null) return update.getMyChatMember().getChat().getId();
+        if (update.getChatMember() != null) return update.getChatMember().getChat().getId();
+        return 0;
+    }
+
+    private BlockingQueue<Update> partitionOf(Update update) {
+        long key = keyOf(update);
+        // Chat ids share long runs of digits; mixing keeps neighbouring chats from piling onto one partition
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return partitions[(int) Math.floorMod(mixed ^ (mixed >>> 32), (long) partitions.length)];
+    }
+
+    private void drain(BlockingQueue<Update> queue, TelegramClient client) {
+        TelegramClientContext.bind(client);
+        try {
+            for (Update update = queue.take(); update != STOP; update = queue.take())
+                process(update);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(Update update) {
+        try {
+            handler.accept(update);
+            processed.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("Error processing update " + update.getUpdateId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.sportpoll.bot.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Receives updates pushed by Telegram instead of polling for them. Each request is served on its own virtual
+// thread and answered as soon as the update is queued on the UpdateDispatcher, so a slow handler never makes
+// Telegram time out and resend. When the update's partition stays full the request gets a 503 and Telegram
+// delivers the update again later.
+public class WebhookServer {
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final long SUBMIT_TIMEOUT_SECONDS = 5;
+    private static final String SECRET_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789_-";
+
+    private final int port;
+    private final String path;
+    private final byte[] secretToken;
+    private final UpdateDispatcher dispatcher;
+    private final ObjectMapper mapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private HttpServer server;
+    private ExecutorService requests;
+
+    public WebhookServer(int port, String path, String secretToken, UpdateDispatcher dispatcher) {
+        this.port = port;
+        this.path = path;
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+        this.dispatcher = dispatcher;
+    }
+
+    // Telegram accepts 1-256 characters from A-Z, a-z, 0-9, _ and -
+    public static String generateSecretToken() {
+        SecureRandom random = new SecureRandom();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < 48; i++)
+            token.append(SECRET_ALPHABET.charAt(random.nextInt(SECRET_ALPHABET.length())));
+        return token.toString();
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) return;
+        requests = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(requests);
+        server.createContext(path, this::handle);
+        server.start();
+    }
+
+    // Stops accepting requests; updates already acknowledged are left to the dispatcher
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(1);
+        requests.shutdown();
+        server = null;
+    }
+
+    // The bound port, which differs from the configured one when that was 0
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String secret = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+            if (secret == null || !MessageDigest.isEqual(secretToken, secret.getBytes(StandardCharsets.UTF_8))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            byte[] bytes;
+            try (InputStream body = exchange.getRequestBody()) {
+                bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (bytes.length > MAX_BODY_BYTES) {
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            }
+            Update update = parse(bytes);
+            if (update == null) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            boolean queued;
+            try {
+                queued = dispatcher.submit(update, SUBMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            exchange.sendResponseHeaders(queued ? 200 : 503, -1);
+        }
+    }
+
+    private Update parse(byte[] bytes) {
+        try {
+            return mapper.readValue(bytes, Update.class);
+        } catch (IOException e) {
+            System.err.println("Rejected malformed webhook update: " + e.getMessage());
+            return null;
+        }
+    }
+}
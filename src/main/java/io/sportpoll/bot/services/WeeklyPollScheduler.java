@@ -4,6 +4,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
@@ -11,16 +12,18 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import io.sportpoll.bot.persistance.DataStore;
+import io.sportpoll.bot.persistance.Versioned;
 import io.sportpoll.bot.commands.PollCommand;
 import io.sportpoll.bot.config.WeeklyPollConfig;
 
-public class WeeklyPollScheduler implements Serializable {
+public class WeeklyPollScheduler implements Serializable, Versioned {
     private transient WeeklyPollConfig config;
     private transient PollManager pollManager;
     private transient ScheduledExecutorService scheduler;
     private transient Supplier<Double> randomProvider;
     private transient Supplier<LocalDateTime> timeProvider;
     private Duration randomWindow = Duration.ofHours(1);
+    private transient volatile long modificationVersion;
 
     public WeeklyPollScheduler() {
         this(null, null, null, null, null);
@@ -52,13 +55,23 @@ public class WeeklyPollScheduler implements Serializable {
     }
     public void setRandomWindow(Duration window) {
         randomWindow = window;
+        modificationVersion++;
     }
 
-    private PollManager getPollManager() {
-        if (pollManager == null) pollManager = DataStore.getInstance().get(PollManager.class);
-        System.out.println("WeeklyPollScheduler.getPollManager: returning " + pollManager + " (hasActivePoll: "
-            + pollManager.hasActivePoll() + ")");
-        return pollManager;
+    @Override
+    public long modificationVersion() {
+        return modificationVersion;
+    }
+
+    public Duration getRandomWindow() {
+        return randomWindow;
+    }
+
+    // A scheduler built for one poll keeps to it; otherwise every registered group gets the weekly poll
+    private List<PollManager> getPollManagers() {
+        if (pollManager != null) return List.of(pollManager);
+        PollRegistry registry = DataStore.getInstance().get(PollRegistry.class);
+        return registry.getGroupChatIds().stream().map(registry::getOrCreate).toList();
     }
 
     public void updateConfig(WeeklyPollConfig newConfig) {
@@ -86,11 +99,11 @@ public class WeeklyPollScheduler implements Serializable {
     }
 
     public void runScheduledPollCheck() {
-        if (!getConfig().isEnabled() || getPollManager().hasActivePoll()) return;
-        LocalDateTime now = timeProvider.get();
-        if (isTimeWithinScheduledWindow(now)) {
-            createWeeklyPoll();
-        }
+        if (!getConfig().isEnabled()) return;
+        List<PollManager> idle = getPollManagers().stream().filter(pm -> !pm.hasActivePoll()).toList();
+        if (idle.isEmpty() || !isTimeWithinScheduledWindow(timeProvider.get())) return;
+        for (PollManager pm : idle)
+            createWeeklyPoll(pm);
     }
 
     private boolean isTimeWithinScheduledWindow(LocalDateTime now) {
@@ -158,15 +171,16 @@ public class WeeklyPollScheduler implements Serializable {
         return randomProvider;
     }
 
-    private void createWeeklyPoll() {
+    private void createWeeklyPoll(PollManager pollManager) {
         WeeklyPollConfig currentConfig = getConfig();
-        PollCommand cmd = new PollCommand(getPollManager());
+        PollCommand cmd = new PollCommand(pollManager);
         PollCommand.PollCreationResult result = cmd.createPoll(currentConfig.getQuestion(),
             currentConfig.getPositiveOption(),
             currentConfig.getNegativeOption(),
             currentConfig.getTargetVotes());
         if (!result.success()) {
-            System.err.println("WeeklyPollScheduler: Failed to create weekly poll - " + result.message());
+            System.err.println("WeeklyPollScheduler: Failed to create weekly poll in " + pollManager.getChatId()
+                + " - " + result.message());
         }
     }
 
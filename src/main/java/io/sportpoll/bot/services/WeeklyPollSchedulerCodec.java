@@ -0,0 +1,30 @@
+package io.sportpoll.bot.services;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import io.sportpoll.bot.persistance.BinaryReader;
+import io.sportpoll.bot.persistance.BinaryWriter;
+import io.sportpoll.bot.persistance.Codec;
+
+public class WeeklyPollSchedulerCodec implements Codec<WeeklyPollScheduler> {
+    private static final int VERSION = 1;
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void write(WeeklyPollScheduler scheduler, BinaryWriter out) throws IOException {
+        out.writeVarLong(scheduler.getRandomWindow().toMillis());
+    }
+
+    @Override
+    public WeeklyPollScheduler read(BinaryReader in, int version) throws IOException {
+        if (version != VERSION) throw new IOException("Unsupported WeeklyPollScheduler version " + version);
+        WeeklyPollScheduler scheduler = new WeeklyPollScheduler();
+        scheduler.setRandomWindow(Duration.ofMillis(in.readVarLong()));
+        return scheduler;
+    }
+}
@@ -3,7 +3,9 @@ package io.sportpoll.bot.ui;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
+import io.sportpoll.bot.constants.Messages;
 import io.sportpoll.bot.constants.UIText;
+import io.sportpoll.bot.services.AttendanceStats;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,7 +34,17 @@ public class Pages {
             return UIText.MAIN_MENU_TITLE;
         }
 
+        // With several groups the menu names the one it acts on
+        public static String getText(boolean hasActivePoll, Long groupChatId) {
+            if (groupChatId == null) return getText(hasActivePoll);
+            return UIText.MAIN_MENU_TITLE + "\n\n" + String.format(UIText.MAIN_MENU_GROUP, groupChatId);
+        }
+
         public static InlineKeyboardMarkup getKeyboard(boolean hasActivePoll) {
+            return getKeyboard(hasActivePoll, false);
+        }
+
+        public static InlineKeyboardMarkup getKeyboard(boolean hasActivePoll, boolean canSelectGroup) {
             List<InlineKeyboardRow> rows = new ArrayList<>();
             InlineKeyboardRow row1 = new InlineKeyboardRow();
             row1.add(
@@ -42,7 +54,31 @@ public class Pages {
             InlineKeyboardRow row2 = new InlineKeyboardRow();
             row2.add(
                 InlineKeyboardButton.builder().text(UIText.BUTTON_WEEKLY_SETTINGS).callbackData("main:weekly").build());
+            row2.add(InlineKeyboardButton.builder().text(UIText.BUTTON_STATS).callbackData("main:stats").build());
             rows.add(row2);
+            if (canSelectGroup) {
+                rows.add(new InlineKeyboardRow(List.of(
+                    InlineKeyboardButton.builder().text(UIText.BUTTON_SELECT_GROUP).callbackData("main:group").build())));
+            }
+            return InlineKeyboardMarkup.builder().keyboard(rows).build();
+        }
+    }
+
+    public static class GroupPage {
+        public static String getText() {
+            return UIText.GROUP_SELECT_TITLE;
+        }
+
+        public static InlineKeyboardMarkup getKeyboard(List<Long> groupChatIds, long selectedChatId) {
+            List<InlineKeyboardRow> rows = new ArrayList<>();
+            for (long groupChatId : groupChatIds) {
+                String text = groupChatId == selectedChatId ? String.format(UIText.GROUP_SELECTED, groupChatId)
+                    : String.valueOf(groupChatId);
+                rows.add(new InlineKeyboardRow(List.of(
+                    InlineKeyboardButton.builder().text(text).callbackData("group:" + groupChatId).build())));
+            }
+            rows.add(new InlineKeyboardRow(
+                List.of(InlineKeyboardButton.builder().text(UIText.BUTTON_BACK).callbackData("main:menu").build())));
             return InlineKeyboardMarkup.builder().keyboard(rows).build();
         }
     }
@@ -140,6 +176,40 @@ public class Pages {
         }
     }
 
+    public static class StatsPage {
+        public static String getText(AttendanceStats.Report report, String notice) {
+            StringBuilder text = new StringBuilder(UIText.STATS_TITLE).append("\n\n");
+            if (notice != null) text.append(notice).append("\n\n");
+            if (report.polls() == 0) return text.append(UIText.STATS_EMPTY).toString();
+            text.append(String.format(UIText.STATS_POLLS, report.polls()));
+            if (!report.players().isEmpty()) {
+                text.append("\n\n").append(UIText.STATS_PLAYERS_TITLE);
+                int place = 1;
+                for (AttendanceStats.PlayerSummary player : report.players())
+                    text.append('\n')
+                        .append(String.format(UIText.STATS_PLAYER_LINE, place++, player.name(), player.ratePercent(),
+                            player.attended(), player.eligible(), player.streak()));
+            }
+            if (!report.invites().isEmpty()) {
+                text.append("\n\n").append(UIText.STATS_INVITES_TITLE);
+                for (AttendanceStats.InviteSummary invite : report.invites())
+                    text.append('\n')
+                        .append(String.format(UIText.STATS_INVITE_LINE,
+                            invite.inviter() != null ? invite.inviter() : String.valueOf(invite.inviterId()),
+                            invite.guest() != null ? invite.guest() : Messages.ANONYMOUS_VOTER, invite.count()));
+            }
+            return text.toString();
+        }
+
+        public static InlineKeyboardMarkup getKeyboard() {
+            List<InlineKeyboardRow> rows = new ArrayList<>();
+            rows.add(new InlineKeyboardRow(List.of(
+                InlineKeyboardButton.builder().text(UIText.BUTTON_STATS_REBUILD).callbackData("stats:rebuild").build(),
+                InlineKeyboardButton.builder().text(UIText.BUTTON_BACK).callbackData("main:menu").build())));
+            return InlineKeyboardMarkup.builder().keyboard(rows).build();
+        }
+    }
+
     public static class WeeklyDayPage {
         public static String getText() {
             return UIText.WEEKLY_DAY_TITLE;
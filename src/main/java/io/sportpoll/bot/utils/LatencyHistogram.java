@@ -0,0 +1,54 @@
+package io.sportpoll.bot.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed buckets from a few milliseconds up to the read timeout; recording is lock-free so it can sit on the
+// request path. Percentiles are reported as the upper bound of the bucket they fall in.
+public class LatencyHistogram {
+    private static final long[] BOUNDS_MILLIS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+    public record Snapshot(long count, long meanMillis, long p50Millis, long p90Millis, long p99Millis,
+        long maxMillis) {
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS_MILLIS.length && millis > BOUNDS_MILLIS[bucket])
+            bucket++;
+        counts.incrementAndGet(bucket);
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long max = TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        return new Snapshot(count, count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count),
+            percentile(copy, count, 0.50, max), percentile(copy, count, 0.90, max), percentile(copy, count, 0.99, max),
+            max);
+    }
+
+    private static long percentile(long[] counts, long count, double quantile, long max) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            // The bucket bound can overstate a sample; the recorded maximum caps it
+            if (seen >= rank) return i < BOUNDS_MILLIS.length ? Math.min(BOUNDS_MILLIS[i], max) : max;
+        }
+        return max;
+    }
+}
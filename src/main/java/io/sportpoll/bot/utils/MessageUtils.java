@@ -1,44 +1,48 @@
 package io.sportpoll.bot.utils;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
 import io.sportpoll.bot.config.Config;
 import io.sportpoll.bot.constants.Messages;
 import io.sportpoll.bot.services.AdminSession;
 import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
 import io.sportpoll.bot.services.TelegramClientService;
 
 public class MessageUtils {
     private static final Map<String, AdminSession> adminSessions = new ConcurrentHashMap<>(); // Key is now String
 
-    public static void routeUpdate(Update update, PollManager pollManager) throws TelegramApiException {
+    public static void routeUpdate(Update update, PollRegistry pollRegistry) throws TelegramApiException {
         if (update == null) return;
         if (update.hasPollAnswer()) {
-            pollManager.handleDirectVote(update);
+            pollRegistry.executeForPollAnswer(update.getPollAnswer().getPollId(), pm -> pm.handleDirectVote(update));
             return;
         }
         if (update.hasCallbackQuery()) {
-            handleCallbackQuery(update, pollManager);
+            handleCallbackQuery(update, pollRegistry);
             return;
         }
         if (!update.hasMessage()) return;
-        routeMessage(update, pollManager);
+        routeMessage(update, pollRegistry);
     }
 
-    private static void routeMessage(Update update, PollManager pollManager) throws TelegramApiException {
+    private static void routeMessage(Update update, PollRegistry pollRegistry) throws TelegramApiException {
         long chatId = update.getMessage().getChatId();
         long userId = update.getMessage().getFrom().getId();
         Config config = Config.getInstance();
         boolean isAdmin = config.adminUserIds.contains(userId);
-        boolean isTargetGroup = (chatId == config.targetGroupChatId);
-        if (isAdmin && !isTargetGroup) {
-            handleAdminMessage(update, pollManager);
-        } else if (isTargetGroup) {
-            handleGroupMessage(update, pollManager);
+        boolean isPollChat = pollRegistry.hasPoll(chatId);
+        if (isAdmin && !isPollChat) {
+            handleAdminMessage(update, pollRegistry);
+        } else if (isPollChat) {
+            pollRegistry.execute(chatId, pm -> handleGroupMessage(update, pm));
         }
     }
 
@@ -50,12 +54,12 @@ public class MessageUtils {
         }
     }
 
-    private static void handleAdminMessage(Update update, PollManager pollManager) throws TelegramApiException {
+    private static void handleAdminMessage(Update update, PollRegistry pollRegistry) throws TelegramApiException {
         long userId = update.getMessage().getFrom().getId();
         long chatId = update.getMessage().getChatId();
         String sessionKey = userId + ":" + chatId;
         String message = update.getMessage().getText();
-        AdminSession session = adminSessions.computeIfAbsent(sessionKey, k -> new AdminSession(update, pollManager));
+        AdminSession session = adminSessions.computeIfAbsent(sessionKey, k -> new AdminSession(update, pollRegistry));
         if (CommandUtils.isCommand(message)) {
             if (CommandUtils.parseCommand(message).equals("/start")) {
                 session.handleUpdate(update);
@@ -65,7 +69,7 @@ public class MessageUtils {
         session.handleUpdate(update);
     }
 
-    private static void handleCallbackQuery(Update update, PollManager pollManager) throws TelegramApiException {
+    private static void handleCallbackQuery(Update update, PollRegistry pollRegistry) throws TelegramApiException {
         long userId = update.getCallbackQuery().getFrom().getId();
         long chatId = update.getCallbackQuery().getMessage().getChatId();
         String sessionKey = userId + ":" + chatId;
@@ -74,18 +78,25 @@ public class MessageUtils {
             acknowledgeCallback(update, "");
             return;
         }
-        AdminSession session = adminSessions.computeIfAbsent(sessionKey, k -> new AdminSession(update, pollManager));
+        AdminSession session = adminSessions.computeIfAbsent(sessionKey, k -> new AdminSession(update, pollRegistry));
         session.handleUpdate(update);
     }
 
     public static void sendMessage(String text, long chatId) throws TelegramApiException {
-        SendMessage message = SendMessage.builder()
+        TelegramClientService.getInstance().execute(buildMessage(text, chatId));
+    }
+
+    public static CompletableFuture<Message> sendMessageAsync(TelegramClient client, String text, long chatId) {
+        return TelegramFutures.start(() -> client.executeAsync(buildMessage(text, chatId)));
+    }
+
+    private static SendMessage buildMessage(String text, long chatId) {
+        return SendMessage.builder()
             .chatId(chatId)
             .text(text)
             .parseMode("HTML")
             .disableNotification(true)
             .build();
-        TelegramClientService.getInstance().execute(message);
     }
 
     public static void sendError(String text, long chatId) throws TelegramApiException {
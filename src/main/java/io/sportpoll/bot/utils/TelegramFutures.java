@@ -0,0 +1,51 @@
+package io.sportpoll.bot.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+public class TelegramFutures {
+    @FunctionalInterface
+    public interface AsyncCall<T> {
+        CompletableFuture<T> start() throws TelegramApiException;
+    }
+
+    // Lets executeAsync be used inside future stages, reporting a synchronous failure through the future
+    public static <T> CompletableFuture<T> start(AsyncCall<T> call) {
+        try {
+            return call.start();
+        } catch (TelegramApiException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Waits once for a set of in-flight calls and surfaces the first failure as the synchronous API would
+    public static void await(CompletableFuture<?>... futures) throws TelegramApiException {
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    public static <T> T await(CompletableFuture<T> future) throws TelegramApiException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static TelegramApiException unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+            && cause.getCause() != null)
+            cause = cause.getCause();
+        if (cause instanceof TelegramApiException telegramException) return telegramException;
+        if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+        if (cause instanceof Error error) throw error;
+        return new TelegramApiException(cause);
+    }
+}
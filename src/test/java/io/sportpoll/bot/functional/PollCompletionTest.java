@@ -40,6 +40,7 @@ public class PollCompletionTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        TestUtils.forwardAsyncCalls(telegramClient);
         originalUserDir = System.getProperty("user.dir");
         TestUtils.setupTestDatabaseDirectory("poll-completion");
     }
@@ -37,6 +37,7 @@ public class PollCreationTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        TestUtils.forwardAsyncCalls(telegramClient);
         originalUserDir = System.getProperty("user.dir");
         TestUtils.setupTestDatabaseDirectory("poll-creation");
     }
@@ -39,6 +39,7 @@ public class PollRevocationTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        TestUtils.forwardAsyncCalls(telegramClient);
         originalUserDir = System.getProperty("user.dir");
         TestUtils.setupTestDatabaseDirectory("poll-revocation");
         io.sportpoll.bot.config.Config.setInstance(TestUtils.createTestConfig());
@@ -0,0 +1,171 @@
+package io.sportpoll.bot.functional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.MockitoAnnotations;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import io.sportpoll.bot.SportPollBot;
+import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.TelegramClientService;
+import io.sportpoll.bot.services.UpdateDispatcher;
+import io.sportpoll.bot.services.WebhookServer;
+import io.sportpoll.bot.services.WeeklyPollScheduler;
+import io.sportpoll.bot.unit.utils.TestUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Posts updates to a real webhook server over HTTP, the way Telegram delivers them
+public class WebhookIngestionTest {
+    private static final long CHAT = -1001234567890L;
+    private static final String SECRET = "test-secret_123";
+
+    @Mock
+    private TelegramClient telegramClient;
+
+    @Mock
+    private WeeklyPollScheduler weeklyPollScheduler;
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private UpdateDispatcher dispatcher;
+    private WebhookServer server;
+    private String originalUserDir;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        TestUtils.forwardAsyncCalls(telegramClient);
+        originalUserDir = System.getProperty("user.dir");
+        TestUtils.setupTestDatabaseDirectory("webhook-ingestion");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) server.stop();
+        if (dispatcher != null) dispatcher.stop(5, TimeUnit.SECONDS);
+        TestUtils.cleanupDatabaseFiles(originalUserDir, "WebhookIngestionTest_");
+        if (originalUserDir != null) {
+            System.setProperty("user.dir", originalUserDir);
+        }
+    }
+
+    private WebhookServer start(Consumer<Update> consumer) throws Exception {
+        dispatcher = new UpdateDispatcher(4, 16, consumer);
+        server = new WebhookServer(0, "/webhook", SECRET, dispatcher);
+        server.start();
+        return server;
+    }
+
+    private HttpResponse<String> post(String secret, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort()
+            + "/webhook")).POST(HttpRequest.BodyPublishers.ofString(body)).header("Content-Type", "application/json");
+        if (secret != null) request.header(WebhookServer.SECRET_HEADER, secret);
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String textUpdate(int updateId, long userId, String firstName, String text) {
+        return "{\"update_id\":" + updateId + ",\"message\":{\"message_id\":" + (1000 + updateId)
+            + ",\"date\":1700000000,\"chat\":{\"id\":" + CHAT + ",\"type\":\"supergroup\",\"title\":\"Football\"},"
+            + "\"from\":{\"id\":" + userId + ",\"is_bot\":false,\"first_name\":\"" + firstName + "\"},"
+            + "\"text\":\"" + text + "\"}}";
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void testRejectsUnauthenticatedAndMalformedRequests() throws Exception {
+        List<Update> received = Collections.synchronizedList(new ArrayList<>());
+        start(received::add);
+
+        assertEquals(401, post(null, textUpdate(1, 1L, "A", "hi")).statusCode());
+        assertEquals(401, post("wrong", textUpdate(2, 1L, "A", "hi")).statusCode());
+        assertEquals(400, post(SECRET, "{not json").statusCode());
+        HttpResponse<String> get = http.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:"
+            + server.getPort() + "/webhook")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, get.statusCode());
+
+        assertEquals(200, post(SECRET, textUpdate(3, 1L, "A", "hi")).statusCode());
+        awaitTrue(() -> received.size() == 1);
+        assertEquals(3, received.get(0).getUpdateId());
+    }
+
+    @Test
+    void testAcknowledgesBeforeProcessingAndKeepsOrder() throws Exception {
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        start(update -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processed.add(update.getUpdateId());
+        });
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= 10; i++)
+            assertEquals(200, post(SECRET, textUpdate(i, 1L, "A", "m" + i)).statusCode());
+        // Ten slow updates were acknowledged long before they could all have been handled
+        assertTrue(System.nanoTime() - start < 500_000_000L);
+        awaitTrue(() -> processed.size() == 10);
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), processed);
+    }
+
+    @Test
+    void testVotesPostedToWebhookReachThePoll() throws Exception {
+        try (MockedStatic<TelegramClientService> mockedStatic = mockStatic(TelegramClientService.class)) {
+            PollManager realPollManager = new PollManager(CHAT);
+            SportPollBot bot = TestUtils.createTestBot(telegramClient,
+                realPollManager,
+                weeklyPollScheduler,
+                scheduler,
+                "WebhookIngestionTest_" + System.currentTimeMillis());
+
+            mockedStatic.when(TelegramClientService::getInstance).thenReturn(telegramClient);
+            Message mockMessage = mock(Message.class);
+            when(mockMessage.getMessageId()).thenReturn(123);
+            when(telegramClient.execute(any(org.telegram.telegrambots.meta.api.methods.send.SendMessage.class)))
+                .thenReturn(mockMessage);
+            when(telegramClient.execute(any(org.telegram.telegrambots.meta.api.methods.polls.SendPoll.class)))
+                .thenReturn(mockMessage);
+            when(telegramClient
+                .execute(any(org.telegram.telegrambots.meta.api.methods.pinnedmessages.PinChatMessage.class)))
+                    .thenReturn(true);
+
+            Update setupUpdate = TestUtils.createMockUpdate("setup", CHAT, 123456789L);
+            realPollManager.createAndPostPoll("Webhook Poll", "Positive", "Negative", 10, setupUpdate);
+
+            // Same processing path as long polling: dispatcher, then the bot's update consumer
+            start(bot::consume);
+            assertEquals(200, post(SECRET, textUpdate(1, 123456789L, "Ivan", "/+1")).statusCode());
+            assertEquals(200, post(SECRET, textUpdate(2, 456456456L, "Olena", "/+ Alice Bob")).statusCode());
+            awaitTrue(() -> realPollManager.getPositiveVotes() == 3);
+        }
+    }
+}
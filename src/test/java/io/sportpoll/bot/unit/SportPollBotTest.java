@@ -44,6 +44,7 @@ public class SportPollBotTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        TestUtils.forwardAsyncCalls(telegramClient);
     }
 
     @Test
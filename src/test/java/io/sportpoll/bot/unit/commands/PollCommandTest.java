@@ -50,7 +50,7 @@ class PollCommandTest {
             assertEquals("Poll created successfully", result.message());
             assertEquals(123, result.messageId());
             // Verify poll manager initialization was called
-            verify(pollManager).initializePoll(5, 123);
+            verify(pollManager).initializePoll(5, 123, null);
         }
     }
 
@@ -83,7 +83,7 @@ class PollCommandTest {
             assertEquals("API Error", result.message());
             assertEquals(0, result.messageId());
             // Verify poll manager was not initialized
-            verify(pollManager, never()).initializePoll(anyInt(), anyInt());
+            verify(pollManager, never()).initializePoll(anyInt(), anyInt(), any());
         }
     }
 
@@ -103,7 +103,7 @@ class PollCommandTest {
             assertEquals("Invalid response from Telegram API", result.message());
             assertEquals(0, result.messageId());
             // Verify poll manager was not initialized
-            verify(pollManager, never()).initializePoll(anyInt(), anyInt());
+            verify(pollManager, never()).initializePoll(anyInt(), anyInt(), any());
         }
     }
 
@@ -125,7 +125,7 @@ class PollCommandTest {
             assertEquals("Invalid response from Telegram API", result.message());
             assertEquals(0, result.messageId());
             // Verify poll manager was not initialized
-            verify(pollManager, never()).initializePoll(anyInt(), anyInt());
+            verify(pollManager, never()).initializePoll(anyInt(), anyInt(), any());
         }
     }
 }
@@ -0,0 +1,74 @@
+package io.sportpoll.bot.unit.models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import io.sportpoll.bot.models.DirectVoters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class DirectVotersTest {
+
+    @Test
+    void testPutGetRemove() {
+        DirectVoters voters = new DirectVoters();
+        assertEquals(DirectVoters.NONE, voters.put(42L, 0, "Alice"));
+        assertEquals(0, voters.get(42L));
+        assertEquals("Alice", voters.getName(42L));
+        // Re-voting replaces the option and refreshes the display name
+        assertEquals(0, voters.put(42L, 1, "Alicia"));
+        assertEquals(1, voters.size());
+        assertEquals("Alicia", voters.getName(42L));
+        assertEquals(1, voters.remove(42L));
+        assertEquals(DirectVoters.NONE, voters.get(42L));
+        assertNull(voters.getName(42L));
+        assertEquals(0, voters.size());
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomChurn() {
+        DirectVoters voters = new DirectVoters();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            long userId = random.nextInt(500) + 1;
+            if (random.nextInt(3) == 0) {
+                Integer previous = expected.remove(userId);
+                assertEquals(previous == null ? DirectVoters.NONE : previous, voters.remove(userId));
+            } else {
+                int option = random.nextInt(2);
+                Integer previous = expected.put(userId, option);
+                assertEquals(previous == null ? DirectVoters.NONE : previous, voters.put(userId, option, "u" + userId));
+            }
+        }
+        assertEquals(expected.size(), voters.size());
+        expected.forEach((userId, option) -> assertEquals(option.intValue(), voters.get(userId)));
+    }
+
+    @Test
+    void testSerializationRoundTrip() throws Exception {
+        DirectVoters voters = new DirectVoters();
+        for (long userId = 1; userId <= 100; userId++)
+            voters.put(userId, (int) (userId % 2), "User " + userId, 1_700_000_000_000L + userId);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(voters);
+        }
+        DirectVoters restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (DirectVoters) in.readObject();
+        }
+        assertEquals(100, restored.size());
+        assertEquals(1, restored.get(77L));
+        assertEquals("User 77", restored.getName(77L));
+        assertEquals(1_700_000_000_077L, restored.getTime(77L));
+    }
+}
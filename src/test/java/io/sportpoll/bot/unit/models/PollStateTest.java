@@ -0,0 +1,141 @@
+package io.sportpoll.bot.unit.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import io.sportpoll.bot.models.DirectVoters;
+import io.sportpoll.bot.models.PollState;
+import io.sportpoll.bot.models.Vote;
+import io.sportpoll.bot.models.VoteLedger;
+import io.sportpoll.bot.persistance.VoteEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PollStateTest {
+    private static final long CHAT = -1001234567890L;
+
+    private static List<String> votes(PollState state) {
+        List<String> votes = new ArrayList<>();
+        state.forEachVote(entry -> votes.add(entry.isInvited() ? entry.voterName() + "<" + entry.name()
+            : entry.name()));
+        return votes;
+    }
+
+    private static List<String> votes(DirectVoters directVoters, VoteLedger ledger) {
+        List<String> votes = new ArrayList<>();
+        for (int slot = 0; slot < ledger.slotLimit(); slot++) {
+            if (!ledger.isLive(slot)) continue;
+            Vote vote = ledger.voteAt(slot);
+            votes.add(vote == null ? directVoters.getName(ledger.userIdAt(slot))
+                : vote.getVoterName() + "<" + vote.getRequesterName());
+        }
+        return votes;
+    }
+
+    @Test
+    void testVoteOrderFollowsArrival() {
+        PollState state = PollState.EMPTY;
+        long seq = 0;
+        for (VoteEvent event : List.of(
+            new VoteEvent.PollCreated(CHAT, 10, 5, "poll", 6),
+            new VoteEvent.DirectVote(CHAT, 1L, 0, "A", 100),
+            new VoteEvent.DirectVote(CHAT, 2L, 1, "B", 200),
+            new VoteEvent.ExternalVote(CHAT, 3L, "C", "G1", 300),
+            new VoteEvent.ExternalVote(CHAT, 3L, "C", "G2", 400),
+            // Re-voting "yes" keeps the place in line, switching from "no" to "yes" goes to the end
+            new VoteEvent.DirectVote(CHAT, 1L, 0, "A2", 500),
+            new VoteEvent.DirectVote(CHAT, 2L, 0, "B", 600)))
+            state = state.apply(event, ++seq);
+        assertEquals(List.of("A2", "G1<C", "G2<C", "B"), votes(state));
+        assertEquals(4, state.getPositiveVotes());
+        assertEquals(2, state.getDirectVotes(0));
+        assertEquals(0, state.getDirectVotes(1));
+        assertEquals(7, state.getLastJournalSeq());
+        assertEquals("poll", state.getPollId());
+
+        // Vote #2 is G1; "no" answers are not numbered
+        state = state.apply(new VoteEvent.Revoked(CHAT, 2), ++seq);
+        state = state.apply(new VoteEvent.DirectVote(CHAT, 1L, 1, "A2", 700), ++seq);
+        assertEquals(List.of("G2<C", "B"), votes(state));
+        assertEquals(1, state.getDirectVotes(1));
+        state = state.apply(new VoteEvent.RevokedAll(CHAT, 3L), ++seq);
+        assertEquals(List.of("B"), votes(state));
+
+        state = state.apply(new VoteEvent.Closed(CHAT, false), ++seq);
+        assertFalse(state.isActive());
+        assertTrue(state.hasRoster());
+        state = state.apply(new VoteEvent.Closed(CHAT, true), ++seq);
+        assertFalse(state.hasRoster());
+        assertEquals(List.of(), votes(state));
+        assertEquals(12, state.getLastJournalSeq());
+    }
+
+    @Test
+    void testEarlierStatesAreUnchanged() {
+        PollState created = PollState.EMPTY.apply(new VoteEvent.PollCreated(CHAT, 10, null, null, null), 1);
+        PollState state = created;
+        List<PollState> history = new ArrayList<>();
+        for (long user = 0; user < 100; user++) {
+            state = state.apply(new VoteEvent.DirectVote(CHAT, user, 0, "P" + user, user), user + 2);
+            history.add(state);
+        }
+        state = state.apply(new VoteEvent.Revoked(CHAT, 1), 200);
+        for (int i = 0; i < history.size(); i++) {
+            assertEquals(i + 1, history.get(i).getPositiveVotes());
+            assertEquals("P0", votes(history.get(i)).get(0));
+        }
+        assertEquals("P1", votes(state).get(0));
+        assertEquals(0, created.getPositiveVotes());
+    }
+
+    @Test
+    void testMatchesWorkingCopyUnderRandomChurn() {
+        Random random = new Random(42);
+        DirectVoters directVoters = new DirectVoters();
+        VoteLedger ledger = new VoteLedger();
+        PollState state = PollState.EMPTY.apply(new VoteEvent.PollCreated(CHAT, 1000, null, null, null), 1);
+        for (int step = 0; step < 20_000; step++) {
+            long userId = random.nextInt(200);
+            int roll = random.nextInt(10);
+            VoteEvent event;
+            // The same transitions PollManager applies to its working copy
+            if (roll < 6) {
+                int option = random.nextInt(4) == 0 ? DirectVoters.NONE : random.nextInt(2);
+                String name = "P" + userId + "." + random.nextInt(3);
+                int previous = option == DirectVoters.NONE ? directVoters.remove(userId)
+                    : directVoters.put(userId, option, name, step);
+                if (previous == 0 && option != 0) ledger.removeDirect(userId);
+                else if (previous != 0 && option == 0) ledger.appendDirect(userId);
+                event = new VoteEvent.DirectVote(CHAT, userId, option, name, step);
+            } else if (roll < 8) {
+                ledger.appendExternal(new Vote(userId, "R" + userId, "G" + step, step));
+                event = new VoteEvent.ExternalVote(CHAT, userId, "R" + userId, "G" + step, step);
+            } else if (roll < 9) {
+                int number = 1 + random.nextInt(Math.max(1, ledger.size()));
+                int slot = ledger.slotAt(number);
+                if (slot != VoteLedger.NONE) {
+                    if (ledger.isDirect(slot)) directVoters.remove(ledger.userIdAt(slot));
+                    ledger.remove(slot);
+                }
+                event = new VoteEvent.Revoked(CHAT, number);
+            } else {
+                ledger.removeAllExternalOf(userId);
+                event = new VoteEvent.RevokedAll(CHAT, userId);
+            }
+            state = state.apply(event, step + 2);
+            if (step % 500 == 0) assertEquals(votes(directVoters, ledger), votes(state), "step " + step);
+        }
+        assertEquals(votes(directVoters, ledger), votes(state));
+        assertEquals(ledger.size(), state.getPositiveVotes());
+        assertEquals(directVoters.size(), state.getDirectCount());
+        assertEquals(ledger.externalCount(), state.getExternalCount());
+        PollState captured = PollState.capture(true, 1000, null, null, null, 0, directVoters, ledger);
+        assertEquals(votes(state), votes(captured));
+        assertEquals(state.getDirectVotes(1), captured.getDirectVotes(1));
+    }
+}
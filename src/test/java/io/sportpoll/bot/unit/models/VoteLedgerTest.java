@@ -0,0 +1,120 @@
+package io.sportpoll.bot.unit.models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import io.sportpoll.bot.models.Vote;
+import io.sportpoll.bot.models.VoteLedger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VoteLedgerTest {
+
+    @Test
+    void testNumberingFollowsArrivalOrder() {
+        VoteLedger ledger = new VoteLedger();
+        ledger.appendDirect(10L);
+        Vote petro = new Vote(20L, "Alice", "Petro");
+        ledger.appendExternal(petro);
+        ledger.appendDirect(30L);
+        assertEquals(3, ledger.size());
+        assertEquals(1, ledger.externalCount());
+        // Direct and invited votes share one numbering
+        assertTrue(ledger.isDirect(ledger.slotAt(1)));
+        assertSame(petro, ledger.voteAt(ledger.slotAt(2)));
+        assertEquals(30L, ledger.userIdAt(ledger.slotAt(3)));
+        // Removing #1 shifts later numbers down
+        ledger.remove(ledger.slotAt(1));
+        assertSame(petro, ledger.voteAt(ledger.slotAt(1)));
+        assertEquals(2, ledger.numberOf(ledger.slotAt(2)));
+        assertEquals(VoteLedger.NONE, ledger.slotAt(3));
+        assertEquals(VoteLedger.NONE, ledger.slotAt(0));
+        // A direct voter is listed once
+        ledger.appendDirect(30L);
+        assertEquals(2, ledger.size());
+        assertTrue(ledger.removeDirect(30L));
+        assertFalse(ledger.removeDirect(30L));
+    }
+
+    @Test
+    void testMatchesListUnderRandomChurn() {
+        VoteLedger ledger = new VoteLedger();
+        List<Long> expected = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                long requesterId = random.nextInt(50);
+                ledger.appendExternal(new Vote(requesterId, "R" + requesterId));
+                expected.add(requesterId);
+            } else {
+                int number = 1 + random.nextInt(expected.size());
+                ledger.remove(ledger.slotAt(number));
+                expected.remove(number - 1);
+            }
+            assertEquals(expected.size(), ledger.size());
+        }
+        for (int number = 1; number <= expected.size(); number++) {
+            int slot = ledger.slotAt(number);
+            assertEquals((long) expected.get(number - 1), ledger.userIdAt(slot));
+            assertEquals(number, ledger.numberOf(slot));
+        }
+    }
+
+    @Test
+    void testSerializationKeepsLiveVotesInOrder() throws Exception {
+        VoteLedger ledger = new VoteLedger();
+        for (int i = 0; i < 40; i++)
+            if (i % 2 == 0) ledger.appendDirect(i);
+            else ledger.appendExternal(new Vote(i, "R" + i, "V" + i));
+        for (int i = 0; i < 10; i++)
+            ledger.remove(ledger.slotAt(1));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(ledger);
+        }
+        VoteLedger restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (VoteLedger) in.readObject();
+        }
+        assertEquals(ledger.size(), restored.size());
+        assertEquals(ledger.externalCount(), restored.externalCount());
+        for (int number = 1; number <= ledger.size(); number++)
+            assertEquals(ledger.userIdAt(ledger.slotAt(number)), restored.userIdAt(restored.slotAt(number)));
+        assertTrue(restored.removeDirect(10L));
+    }
+
+    @Test
+    void testRequesterIndex() {
+        VoteLedger ledger = new VoteLedger();
+        for (int i = 0; i < 30; i++)
+            ledger.appendExternal(new Vote(i % 3, "R" + (i % 3)));
+        ledger.appendDirect(1L);
+        // Most recent invited vote of requester 1 is #29 (0-based arrival 28)
+        int last = ledger.lastExternalSlotOf(1L);
+        assertEquals(29, ledger.numberOf(last));
+        ledger.remove(last);
+        assertEquals(26, ledger.numberOf(ledger.lastExternalSlotOf(1L)));
+        // Bulk revoke touches only that requester's votes and leaves the direct vote
+        assertEquals(9, ledger.removeAllExternalOf(1L));
+        assertEquals(VoteLedger.NONE, ledger.lastExternalSlotOf(1L));
+        assertEquals(0, ledger.removeAllExternalOf(1L));
+        assertEquals(21, ledger.size());
+        assertEquals(20, ledger.externalCount());
+        assertTrue(ledger.removeDirect(1L));
+        // The index survives compaction
+        for (int i = 0; i < 40; i++)
+            ledger.appendExternal(new Vote(7L, "R7"));
+        assertEquals(40, ledger.removeAllExternalOf(7L));
+        assertEquals(10, ledger.removeAllExternalOf(0L));
+    }
+}
@@ -0,0 +1,242 @@
+package io.sportpoll.bot.unit.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.config.WeeklyPollConfig;
+import io.sportpoll.bot.config.WeeklyPollConfigCodec;
+import io.sportpoll.bot.persistance.BinaryReader;
+import io.sportpoll.bot.persistance.BinaryWriter;
+import io.sportpoll.bot.persistance.DataStore;
+import io.sportpoll.bot.persistance.VoteEvent;
+import io.sportpoll.bot.persistance.VoteJournal;
+import io.sportpoll.bot.services.LegacyPollManagerReader;
+import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
+import io.sportpoll.bot.services.PollRegistryCodec;
+import io.sportpoll.bot.unit.utils.TestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryCodecTest {
+    private static final long CHAT = -1001234567890L;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Config.setInstance(TestUtils.createTestConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Config.setInstance(null);
+    }
+
+    @Test
+    void testPrimitivesRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryWriter out = new BinaryWriter(bytes)) {
+            out.writeVarInt(0);
+            out.writeVarInt(300);
+            out.writeVarInt(Integer.MAX_VALUE);
+            out.writeVarLong(CHAT);
+            out.writeVarLong(Long.MIN_VALUE);
+            out.writeNullableInt(null);
+            out.writeNullableInt(-5);
+            out.writeString("Олег");
+            out.writeString(null);
+            out.writeString("Олег");
+        }
+        try (BinaryReader in = new BinaryReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(0, in.readVarInt());
+            assertEquals(300, in.readVarInt());
+            assertEquals(Integer.MAX_VALUE, in.readVarInt());
+            assertEquals(CHAT, in.readVarLong());
+            assertEquals(Long.MIN_VALUE, in.readVarLong());
+            assertNull(in.readNullableInt());
+            assertEquals(Integer.valueOf(-5), in.readNullableInt());
+            assertEquals("Олег", in.readString());
+            assertNull(in.readString());
+            assertEquals("Олег", in.readString());
+        }
+    }
+
+    @Test
+    void testRepeatedStringsUseTheTable() throws Exception {
+        ByteArrayOutputStream once = new ByteArrayOutputStream();
+        try (BinaryWriter out = new BinaryWriter(once)) {
+            out.writeString("Приглашённый");
+        }
+        ByteArrayOutputStream twice = new ByteArrayOutputStream();
+        try (BinaryWriter out = new BinaryWriter(twice)) {
+            out.writeString("Приглашённый");
+            out.writeString("Приглашённый");
+        }
+        // The second copy is a one-byte reference
+        assertEquals(once.size() + 1, twice.size());
+    }
+
+    @Test
+    void testPollRegistryRoundTrip() throws Exception {
+        DataStore dataStore = storeWithCodecs();
+        PollRegistry registry = populatedRegistry(50);
+        assertTrue(dataStore.save(registry));
+        assertTrue(new File(tempDir, "PollRegistry.bin").exists());
+        PollRegistry loaded = storeWithCodecs().get(PollRegistry.class);
+        PollManager pollManager = loaded.find(CHAT);
+        assertTrue(pollManager.hasActivePoll());
+        assertEquals("poll", pollManager.getTelegramPollId());
+        assertEquals(registry.find(CHAT).getPositiveVotes(), pollManager.getPositiveVotes());
+        assertEquals(registry.find(CHAT).getDirectVotes(1), pollManager.getDirectVotes(1));
+    }
+
+    @Test
+    void testWeeklyPollConfigRoundTrip() throws Exception {
+        WeeklyPollConfig config = new WeeklyPollConfig();
+        config.setQuestion("Футбол в пятницу?");
+        config.setTargetVotes(14);
+        config.setDayOfWeek(DayOfWeek.FRIDAY);
+        config.setStartTime(LocalTime.of(9, 30));
+        config.setEnabled(false);
+        assertTrue(storeWithCodecs().save(config));
+        WeeklyPollConfig loaded = storeWithCodecs().get(WeeklyPollConfig.class);
+        assertEquals("Футбол в пятницу?", loaded.getQuestion());
+        assertEquals(config.getPositiveOption(), loaded.getPositiveOption());
+        assertEquals(14, loaded.getTargetVotes());
+        assertEquals(DayOfWeek.FRIDAY, loaded.getDayOfWeek());
+        assertEquals(LocalTime.of(9, 30), loaded.getStartTime());
+        assertFalse(loaded.isEnabled());
+    }
+
+    @Test
+    void testLegacyFileIsMigratedOnce() throws Exception {
+        WeeklyPollConfig config = new WeeklyPollConfig();
+        config.setTargetVotes(9);
+        File legacy = new File(tempDir, "WeeklyPollConfig.dat");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacy))) {
+            out.writeObject(config);
+        }
+        assertEquals(9, storeWithCodecs().get(WeeklyPollConfig.class).getTargetVotes());
+        // The old file is retired once the binary copy exists
+        assertFalse(legacy.exists());
+        assertTrue(new File(tempDir, "WeeklyPollConfig.dat.migrated").exists());
+        assertTrue(new File(tempDir, "WeeklyPollConfig.bin").exists());
+        assertEquals(9, storeWithCodecs().get(WeeklyPollConfig.class).getTargetVotes());
+    }
+
+    @Test
+    void testLegacyPollManagerIsImportedIntoDefaultChat() throws Exception {
+        // Written by the bot before polls were kept per chat
+        File legacy = new File(tempDir, LegacyPollManagerReader.FILE_NAME);
+        try (InputStream in = getClass().getResourceAsStream("/legacy/PollManager.dat")) {
+            Files.copy(in, legacy.toPath());
+        }
+        PollManager pollManager = storeWithCodecs().get(PollRegistry.class).getDefault();
+        assertEquals(CHAT, pollManager.getChatId());
+        assertTrue(pollManager.hasActivePoll());
+        assertEquals(12, pollManager.getState().getTargetVotes());
+        assertEquals(Integer.valueOf(100), pollManager.getState().getMessageId());
+        assertEquals(Integer.valueOf(101), pollManager.getState().getStatusMessageId());
+        // Two direct "yes" votes, one "no" and two guests
+        assertEquals(4, pollManager.getPositiveVotes());
+        assertEquals(1, pollManager.getDirectVotes(1));
+        assertFalse(legacy.exists());
+        assertTrue(new File(tempDir, LegacyPollManagerReader.FILE_NAME + ".migrated").exists());
+        // Later starts read the binary copy
+        assertEquals(4, storeWithCodecs().get(PollRegistry.class).getDefault().getPositiveVotes());
+    }
+
+    @Test
+    void testBenchmarkAgainstJavaSerialization() throws Exception {
+        PollRegistry registry = populatedRegistry(2000);
+        PollRegistryCodec codec = new PollRegistryCodec();
+        int rounds = 20;
+        byte[] serialized = null;
+        byte[] encoded = null;
+        long serializeNanos = 0;
+        long encodeNanos = 0;
+        long deserializeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            ByteArrayOutputStream javaBytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(javaBytes)) {
+                out.writeObject(registry);
+            }
+            serialized = javaBytes.toByteArray();
+            serializeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ByteArrayOutputStream binaryBytes = new ByteArrayOutputStream();
+            try (BinaryWriter out = new BinaryWriter(binaryBytes)) {
+                codec.write(registry, out);
+            }
+            encoded = binaryBytes.toByteArray();
+            encodeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            try (var in = new java.io.ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                in.readObject();
+            }
+            deserializeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            try (BinaryReader in = new BinaryReader(new ByteArrayInputStream(encoded))) {
+                codec.read(in, codec.version());
+            }
+            decodeNanos += System.nanoTime() - start;
+        }
+        System.out.printf("Java serialization: %d bytes, save %.2f ms, load %.2f ms%n", serialized.length,
+            serializeNanos / 1e6 / rounds, deserializeNanos / 1e6 / rounds);
+        System.out.printf("Binary codec: %d bytes, save %.2f ms, load %.2f ms%n", encoded.length,
+            encodeNanos / 1e6 / rounds, decodeNanos / 1e6 / rounds);
+        // Timings are informational; size is deterministic
+        assertTrue(encoded.length * 2 < serialized.length);
+    }
+
+    private DataStore storeWithCodecs() {
+        DataStore dataStore = new DataStore(tempDir);
+        dataStore.autoRegister(PollRegistry.class);
+        dataStore.autoRegister(WeeklyPollConfig.class);
+        dataStore.registerCodec(PollRegistry.class, new PollRegistryCodec());
+        dataStore.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        dataStore.registerLegacy(PollRegistry.class, LegacyPollManagerReader.FILE_NAME, new LegacyPollManagerReader());
+        return dataStore;
+    }
+
+    // Builds the poll through journal replay, which needs no Telegram client
+    private PollRegistry populatedRegistry(int voters) throws Exception {
+        File file = new File(tempDir, "populate-" + voters + ".journal");
+        VoteJournal journal = new VoteJournal(file, 0);
+        journal.replay((seq, event) -> {});
+        journal.append(new VoteEvent.PollCreated(CHAT, voters * 2, 5, "poll", 6));
+        for (int i = 0; i < voters; i++) {
+            journal.append(new VoteEvent.DirectVote(CHAT, 1000 + i, i % 3 == 0 ? 1 : 0, "Игрок " + (i % 40)));
+            if (i % 4 == 0) journal.append(new VoteEvent.ExternalVote(CHAT, 1000 + i, "Игрок " + (i % 40), null));
+        }
+        journal.close();
+        PollRegistry registry = new PollRegistry(CHAT);
+        VoteJournal reopened = new VoteJournal(file, 0);
+        registry.attachJournal(reopened);
+        reopened.close();
+        return registry;
+    }
+}
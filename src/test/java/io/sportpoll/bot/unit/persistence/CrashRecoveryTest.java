@@ -0,0 +1,242 @@
+package io.sportpoll.bot.unit.persistence;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.config.WeeklyPollConfig;
+import io.sportpoll.bot.config.WeeklyPollConfigCodec;
+import io.sportpoll.bot.persistance.DataStore;
+import io.sportpoll.bot.persistance.FileBackend;
+import io.sportpoll.bot.persistance.SnapshotFile;
+import io.sportpoll.bot.persistance.VoteEvent;
+import io.sportpoll.bot.persistance.VoteJournal;
+import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
+import io.sportpoll.bot.services.PollRegistryCodec;
+import io.sportpoll.bot.unit.utils.FaultInjection.CrashPoint;
+import io.sportpoll.bot.unit.utils.FaultInjection.CrashingSnapshotFile;
+import io.sportpoll.bot.unit.utils.TestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Kills writes at every byte offset and rename, corrupts committed files and skips the shutdown hook, then checks
+// that a fresh DataStore on the same directory comes back with the last committed state
+public class CrashRecoveryTest {
+    private static final long CHAT = -1001234567890L;
+
+    @TempDir
+    File tempDir;
+
+    private final List<VoteJournal> journals = new ArrayList<>();
+    private final List<DataStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Config.setInstance(TestUtils.createTestConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        journals.forEach(VoteJournal::close);
+        stores.forEach(CrashRecoveryTest::close);
+        Config.setInstance(null);
+    }
+
+    private DataStore store(File dir, SnapshotFile snapshots, boolean codecs) {
+        DataStore store = new DataStore(dir, new FileBackend(dir, snapshots));
+        store.autoRegister(WeeklyPollConfig.class);
+        store.autoRegister(PollRegistry.class);
+        if (codecs) {
+            store.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+            store.registerCodec(PollRegistry.class, new PollRegistryCodec());
+        }
+        stores.add(store);
+        return store;
+    }
+
+    private static void close(DataStore store) {
+        store.getJournal().close();
+        store.getArchive().close();
+    }
+
+    private static WeeklyPollConfig config(int targetVotes, DayOfWeek day) {
+        WeeklyPollConfig config = new WeeklyPollConfig();
+        config.setQuestion("Футбол у неділю?");
+        config.setTargetVotes(targetVotes);
+        config.setDayOfWeek(day);
+        config.setStartTime("18:30");
+        config.setEnabled(true);
+        return config;
+    }
+
+    private static String describe(WeeklyPollConfig config) {
+        return config.getQuestion() + "|" + config.getPositiveOption() + "|" + config.getNegativeOption() + "|"
+            + config.getTargetVotes() + "|" + config.getDayOfWeek() + "|" + config.getStartTime() + "|"
+            + config.isEnabled();
+    }
+
+    private static String describe(PollRegistry registry) {
+        PollManager pollManager = registry.find(CHAT);
+        if (pollManager == null) return "none";
+        return pollManager.hasActivePoll() + "|" + pollManager.getTelegramPollId() + "|"
+            + pollManager.getPositiveVotes() + "|" + pollManager.getDirectVotes(0) + "|"
+            + pollManager.getDirectVotes(1);
+    }
+
+    private static List<VoteEvent> events(String pollId, int votes) {
+        List<VoteEvent> events = new ArrayList<>();
+        events.add(new VoteEvent.PollCreated(CHAT, 1_000_000, 5, pollId, 6));
+        for (int i = 0; i < votes; i++) {
+            events.add(new VoteEvent.DirectVote(CHAT, 1000 + i, i % 4 == 0 ? 1 : 0, "Player" + i,
+                1_700_000_000_000L + i));
+            if (i % 10 == 0) events.add(new VoteEvent.ExternalVote(CHAT, 1000 + i, "Player" + i, "Гість" + i,
+                1_700_000_000_000L + i));
+        }
+        return events;
+    }
+
+    // A registry in the state the events leave it in, built outside any DataStore
+    private PollRegistry registry(String pollId, int votes) throws Exception {
+        File file = new File(tempDir, pollId + ".journal");
+        VoteJournal writer = new VoteJournal(file, Integer.MAX_VALUE);
+        writer.replay((seq, event) -> {
+        });
+        events(pollId, votes).forEach(writer::append);
+        writer.close();
+        VoteJournal journal = new VoteJournal(file, Integer.MAX_VALUE);
+        journals.add(journal);
+        PollRegistry registry = new PollRegistry(CHAT);
+        registry.attachJournal(journal);
+        return registry;
+    }
+
+    // Commits `committed`, then saves `next` once per crash point; each time a fresh store must load `committed`,
+    // and a later clean save must still go through over whatever the crash left behind
+    private <T> int assertEveryCrashRecovers(Class<T> type, boolean codecs, T committed, T next,
+        Function<T, String> fingerprint) {
+        CrashingSnapshotFile probe = new CrashingSnapshotFile();
+        File probeDir = new File(tempDir, type.getSimpleName() + "-probe");
+        assertTrue(store(probeDir, new SnapshotFile(), codecs).save(committed));
+        probe.arm(new CrashPoint(Long.MAX_VALUE, Integer.MAX_VALUE));
+        assertTrue(store(probeDir, probe, codecs).save(next));
+        List<CrashPoint> points = CrashPoint.all(probe.bytesWritten(), probe.moves());
+        assertEquals(2, probe.moves());
+
+        for (int i = 0; i < points.size(); i++) {
+            CrashPoint point = points.get(i);
+            File dir = new File(tempDir, type.getSimpleName() + "-" + i);
+            assertTrue(store(dir, new SnapshotFile(), codecs).save(committed));
+            CrashingSnapshotFile crashing = new CrashingSnapshotFile();
+            crashing.arm(point);
+            assertFalse(store(dir, crashing, codecs).save(next), "write survived " + point);
+
+            DataStore restarted = store(dir, new SnapshotFile(), codecs);
+            assertEquals(fingerprint.apply(committed), fingerprint.apply(restarted.get(type)), "after " + point);
+            assertTrue(restarted.save(next));
+            assertEquals(fingerprint.apply(next), fingerprint.apply(store(dir, new SnapshotFile(), codecs).get(type)),
+                "rewrite after " + point);
+        }
+        return points.size();
+    }
+
+    @Test
+    void testConfigSurvivesCrashAtEveryOffset() {
+        int points = assertEveryCrashRecovers(WeeklyPollConfig.class, true, config(12, DayOfWeek.SUNDAY),
+            config(16, DayOfWeek.MONDAY), CrashRecoveryTest::describe);
+        assertTrue(points > 20);
+    }
+
+    @Test
+    void testLegacyDatSurvivesCrashAtEveryOffset() {
+        // Without a codec the config is written as Java serialization to WeeklyPollConfig.dat
+        assertEveryCrashRecovers(WeeklyPollConfig.class, false, config(12, DayOfWeek.SUNDAY),
+            config(16, DayOfWeek.MONDAY), CrashRecoveryTest::describe);
+        assertTrue(new File(tempDir, "WeeklyPollConfig-0/WeeklyPollConfig.dat").exists());
+    }
+
+    @Test
+    void testPollsSurviveCrashAtEveryOffset() throws Exception {
+        PollRegistry committed = registry("committed", 12);
+        PollRegistry next = registry("next", 20);
+        assertFalse(describe(committed).equals(describe(next)));
+        assertEveryCrashRecovers(PollRegistry.class, true, committed, next, CrashRecoveryTest::describe);
+    }
+
+    @Test
+    void testCorruptByteFallsBackToPreviousGeneration() throws Exception {
+        File dir = new File(tempDir, "corrupt");
+        DataStore store = store(dir, new SnapshotFile(), true);
+        store.save(config(12, DayOfWeek.SUNDAY));
+        store.save(config(16, DayOfWeek.MONDAY));
+        File current = new File(dir, "WeeklyPollConfig.bin");
+        byte[] intact = Files.readAllBytes(current.toPath());
+
+        for (int offset = 0; offset < intact.length; offset++) {
+            byte[] corrupt = intact.clone();
+            corrupt[offset] ^= 0x40;
+            Files.write(current.toPath(), corrupt);
+            WeeklyPollConfig loaded = store(dir, new SnapshotFile(), true).get(WeeklyPollConfig.class);
+            assertEquals(describe(config(12, DayOfWeek.SUNDAY)), describe(loaded), "byte " + offset);
+            Files.write(current.toPath(), intact);
+        }
+    }
+
+    @Test
+    void testVotesSurviveWhenShutdownHookNeverRuns() throws Exception {
+        File dir = new File(tempDir, "killed");
+        DataStore store = store(dir, new SnapshotFile(), true);
+        store.get(PollRegistry.class);
+        // Votes reach the journal as they are cast; the process dies before any snapshot or shutdown hook
+        VoteJournal journal = store.getJournal();
+        events("killed", 30).forEach(journal::append);
+        journal.flush();
+
+        PollRegistry recovered = store(dir, new SnapshotFile(), true).get(PollRegistry.class);
+        assertEquals(describe(registry("killed", 30)), describe(recovered));
+    }
+
+    @Test
+    void testRecoveryTimeAgainstStateSize() throws Exception {
+        for (int votes : new int[] { 100, 1_000, 10_000 }) {
+            PollRegistry expected = registry("size" + votes, votes);
+
+            File snapshotDir = new File(tempDir, "snapshot-" + votes);
+            assertTrue(store(snapshotDir, new SnapshotFile(), true).save(expected));
+            DataStore fromSnapshot = store(snapshotDir, new SnapshotFile(), true);
+            long start = System.nanoTime();
+            PollRegistry loaded = fromSnapshot.get(PollRegistry.class);
+            long snapshotMicros = (System.nanoTime() - start) / 1000;
+            assertEquals(describe(expected), describe(loaded));
+
+            // The journal is compacted into a snapshot every few thousand events, so its tail never grows further
+            int tail = Math.min(votes, 4_000);
+            File journalDir = new File(tempDir, "journal-" + votes);
+            DataStore killed = store(journalDir, new SnapshotFile(), true);
+            killed.get(PollRegistry.class);
+            events("tail" + tail, tail).forEach(killed.getJournal()::append);
+            killed.getJournal().flush();
+            DataStore fromJournal = store(journalDir, new SnapshotFile(), true);
+            start = System.nanoTime();
+            PollRegistry replayed = fromJournal.get(PollRegistry.class);
+            long journalMicros = (System.nanoTime() - start) / 1000;
+            assertEquals(describe(registry("tail" + tail, tail)), describe(replayed));
+
+            System.out.println("Recovered " + votes + " votes from a snapshot of "
+                + fromSnapshot.getLoadStats().get(PollRegistry.class).bytes() + " bytes in " + snapshotMicros
+                + " us; " + tail + " votes from a journal of " + killed.getJournal().getFile().length()
+                + " bytes in " + journalMicros + " us");
+        }
+    }
+}
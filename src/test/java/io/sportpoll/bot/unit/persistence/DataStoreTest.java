@@ -1,7 +1,11 @@
 package io.sportpoll.bot.unit.persistence;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,13 +13,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.config.WeeklyPollConfig;
+import io.sportpoll.bot.config.WeeklyPollConfigCodec;
+import io.sportpoll.bot.persistance.BinaryReader;
+import io.sportpoll.bot.persistance.BinaryWriter;
+import io.sportpoll.bot.persistance.Codec;
 import io.sportpoll.bot.persistance.DataStore;
+import io.sportpoll.bot.persistance.Versioned;
 import io.sportpoll.bot.unit.utils.TestUtils;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DataStoreTest {
 
@@ -67,6 +79,178 @@ public class DataStoreTest {
         assertEquals("default", instance.getValue());
     }
 
+    @Test
+    void testFlushWritesOnlyChangedObjects() {
+        dataStore.autoRegister(WeeklyPollConfig.class);
+        dataStore.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        WeeklyPollConfig config = dataStore.get(WeeklyPollConfig.class);
+        // Freshly loaded objects are clean
+        assertEquals(0, dataStore.flush());
+        config.setTargetVotes(15);
+        long bytesBefore = dataStore.getBytesWritten();
+        assertEquals(1, dataStore.flush());
+        assertTrue(dataStore.getBytesWritten() > bytesBefore);
+        assertEquals(0, dataStore.flush());
+        assertEquals(3, dataStore.getFlushCount());
+        assertTrue(dataStore.flushSummary().startsWith("Data flushes: count=3"), dataStore.flushSummary());
+        // The written copy is what a restart sees
+        DataStore restarted = new DataStore(tempDir);
+        restarted.autoRegister(WeeklyPollConfig.class);
+        restarted.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        assertEquals(15, restarted.get(WeeklyPollConfig.class).getTargetVotes());
+    }
+
+    @Test
+    void testRequestedFlushRunsOnFlusherThread() throws Exception {
+        dataStore.autoRegister(WeeklyPollConfig.class);
+        dataStore.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        WeeklyPollConfig config = dataStore.get(WeeklyPollConfig.class);
+        // A long interval means only the explicit request can write
+        dataStore.startFlusher(60_000);
+        try {
+            config.setEnabled(false);
+            dataStore.requestFlush();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (dataStore.getFlushCount() == 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(1, dataStore.getFlushCount());
+            assertEquals(0, dataStore.flush());
+        } finally {
+            dataStore.stopFlusher();
+        }
+    }
+
+    @Test
+    void testPreloadLoadsRegisteredTypesWithStats() {
+        dataStore.autoRegister(WeeklyPollConfig.class);
+        dataStore.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        dataStore.autoRegister(TestSerializableClass.class);
+        dataStore.save(new WeeklyPollConfig());
+        DataStore restarted = new DataStore(tempDir);
+        restarted.autoRegister(WeeklyPollConfig.class);
+        restarted.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        restarted.autoRegister(TestSerializableClass.class);
+        var stats = restarted.preload();
+        // Both types are loaded up front; only the stored one has a size
+        assertEquals(2, stats.size());
+        assertTrue(stats.get(WeeklyPollConfig.class).bytes() > 0);
+        assertEquals(0, stats.get(TestSerializableClass.class).bytes());
+    }
+
+    @Test
+    void testLazyModeSkipsPreload() {
+        dataStore.autoRegister(TestSerializableClass.class);
+        dataStore.setLazy(true);
+        assertTrue(dataStore.preload().isEmpty());
+        assertTrue(dataStore.getLoadStats().isEmpty());
+        assertNotNull(dataStore.get(TestSerializableClass.class));
+        assertEquals(1, dataStore.getLoadStats().size());
+    }
+
+    @Test
+    void testFilesFromOldDataDirectoryAreImportedOnce() throws IOException {
+        // An upgraded install still has its snapshots in the old fixed directory
+        File oldDir = new File(tempDir, "old");
+        File dataDir = new File(tempDir, "data");
+        oldDir.mkdirs();
+        dataDir.mkdirs();
+        Files.writeString(new File(oldDir, "PollManager.dat").toPath(), "old poll");
+        Files.writeString(new File(oldDir, "WeeklyPollConfig.bin").toPath(), "old config");
+        Files.writeString(new File(dataDir, "WeeklyPollConfig.bin").toPath(), "new config");
+        System.setProperty("bot.database.dir", dataDir.getPath());
+        System.setProperty("bot.old.database.dir", oldDir.getPath());
+        try {
+            new DataStore();
+        } finally {
+            System.clearProperty("bot.database.dir");
+            System.clearProperty("bot.old.database.dir");
+        }
+        // Missing files are copied, existing ones kept, and the old directory is set aside
+        assertEquals("old poll", Files.readString(new File(dataDir, "PollManager.dat").toPath()));
+        assertEquals("new config", Files.readString(new File(dataDir, "WeeklyPollConfig.bin").toPath()));
+        assertFalse(oldDir.exists());
+        assertTrue(new File(tempDir, "old.imported").isDirectory());
+    }
+
+    @Test
+    void testCompactionSnapshotIsNotOverwrittenByOlderFlush() throws Exception {
+        CountDownLatch encoding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dataStore.autoRegister(Counter.class);
+        dataStore.registerCodec(Counter.class, new CounterCodec(encoding, release));
+        Counter counter = dataStore.get(Counter.class);
+        counter.version = 1;
+        // The flusher starts encoding the older state and stalls in the middle of it
+        Thread flusher = Thread.ofPlatform().daemon().start(dataStore::flush);
+        Thread compaction;
+        try {
+            assertTrue(encoding.await(5, TimeUnit.SECONDS));
+            // Meanwhile more votes arrive and journal compaction snapshots the newer state
+            counter.version = 2;
+            compaction = Thread.ofPlatform().daemon().start(() -> dataStore.save(counter));
+            compaction.join(200);
+            assertTrue(compaction.isAlive());
+        } finally {
+            release.countDown();
+        }
+        flusher.join();
+        compaction.join();
+        assertFalse(compaction.isAlive());
+
+        // The snapshot written last is the newer one, the one the journal would be compacted against
+        DataStore restarted = new DataStore(tempDir);
+        restarted.autoRegister(Counter.class);
+        restarted.registerCodec(Counter.class, new CounterCodec(new CountDownLatch(1), new CountDownLatch(0)));
+        assertEquals(2, restarted.get(Counter.class).version);
+        assertEquals(0, dataStore.flush());
+    }
+
+    private static class Counter implements Versioned {
+        private volatile long version;
+
+        @Override
+        public long modificationVersion() {
+            return version;
+        }
+    }
+
+    // Holds the first encoding of version 1 until released
+    private static class CounterCodec implements Codec<Counter> {
+        private final CountDownLatch encoding;
+        private final CountDownLatch release;
+
+        CounterCodec(CountDownLatch encoding, CountDownLatch release) {
+            this.encoding = encoding;
+            this.release = release;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(Counter counter, BinaryWriter out) throws IOException {
+            long version = counter.version;
+            if (version == 1 && encoding.getCount() > 0) {
+                encoding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            out.writeVarLong(version);
+        }
+
+        @Override
+        public Counter read(BinaryReader in, int version) throws IOException {
+            Counter counter = new Counter();
+            counter.version = in.readVarLong();
+            return counter;
+        }
+    }
+
     private static class TestSerializableClass implements Serializable {
         private final String value = "default";
 
@@ -0,0 +1,91 @@
+package io.sportpoll.bot.unit.persistence;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.config.WeeklyPollConfig;
+import io.sportpoll.bot.config.WeeklyPollConfigCodec;
+import io.sportpoll.bot.persistance.DataStore;
+import io.sportpoll.bot.persistance.FileBackend;
+import io.sportpoll.bot.persistance.MapDbBackend;
+import io.sportpoll.bot.unit.utils.TestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MapDbBackendTest {
+    private static final String DB_NAME = "MapDbBackendTest";
+
+    @TempDir
+    File tempDir;
+
+    private String originalDir;
+
+    @BeforeEach
+    void setUp() {
+        Config.setInstance(TestUtils.createTestConfig());
+        originalDir = System.getProperty("bot.database.dir");
+        System.setProperty("bot.database.dir", tempDir.getAbsolutePath());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (originalDir == null) System.clearProperty("bot.database.dir");
+        else System.setProperty("bot.database.dir", originalDir);
+        Config.setInstance(null);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testPayloadsSurviveReopen() throws Exception {
+        MapDbBackend backend = new MapDbBackend(DB_NAME, new FileBackend(tempDir));
+        backend.write("Type.bin", bytes("first"));
+        backend.write("Type.bin", bytes("second"));
+        backend.close();
+        // Everything lives in the MapDB file, not in loose snapshot files
+        assertFalse(new File(tempDir, "Type.bin").exists());
+        MapDbBackend reopened = new MapDbBackend(DB_NAME, new FileBackend(tempDir));
+        assertArrayEquals(bytes("second"), reopened.read("Type.bin"));
+        assertNull(reopened.read("Missing.bin"));
+        reopened.close();
+    }
+
+    @Test
+    void testFilesAreReadUntilRewritten() throws Exception {
+        FileBackend files = new FileBackend(tempDir);
+        files.write("Type.bin", bytes("from file"));
+        MapDbBackend backend = new MapDbBackend(DB_NAME, files);
+        assertTrue(backend.exists("Type.bin"));
+        assertArrayEquals(bytes("from file"), backend.read("Type.bin"));
+        backend.write("Type.bin", bytes("from mapdb"));
+        assertArrayEquals(bytes("from mapdb"), backend.read("Type.bin"));
+        backend.close();
+    }
+
+    @Test
+    void testDataStoreRoundTrip() {
+        DataStore dataStore = new DataStore(tempDir, new MapDbBackend(DB_NAME, new FileBackend(tempDir)));
+        dataStore.autoRegister(WeeklyPollConfig.class);
+        dataStore.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        dataStore.get(WeeklyPollConfig.class).setTargetVotes(17);
+        assertEquals(1, dataStore.flush());
+        MapDbBackend backend = new MapDbBackend(DB_NAME, new FileBackend(tempDir));
+        DataStore restarted = new DataStore(tempDir, backend);
+        restarted.autoRegister(WeeklyPollConfig.class);
+        restarted.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        assertEquals(17, restarted.get(WeeklyPollConfig.class).getTargetVotes());
+        backend.close();
+    }
+}
@@ -0,0 +1,149 @@
+package io.sportpoll.bot.unit.persistence;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.models.DirectVoters;
+import io.sportpoll.bot.persistance.MappedVoteLedger;
+import io.sportpoll.bot.persistance.VoteEvent;
+import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedVoteLedgerTest {
+    private static final long CHAT = -1001234567890L;
+
+    @TempDir
+    File tempDir;
+
+    private static List<String> roster(MappedVoteLedger ledger) {
+        List<String> rows = new ArrayList<>();
+        ledger.forEach(new MappedVoteLedger.Visitor() {
+            @Override
+            public void direct(long userId, int optionId, String name, long time) {
+                rows.add(name + ":" + optionId);
+            }
+
+            @Override
+            public void external(long requesterId, String requesterName, String voterName, long time) {
+                rows.add(voterName + "<" + requesterName);
+            }
+        });
+        return rows;
+    }
+
+    @Test
+    void testRemappingRecoversWithoutClose() throws Exception {
+        File file = new File(tempDir, CHAT + ".ledger");
+        MappedVoteLedger ledger = new MappedVoteLedger(file);
+        assertFalse(ledger.open());
+        ledger.apply(new VoteEvent.PollCreated(CHAT, 10, 5, "poll", 6));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 1L, 0, "Олена", 100));
+        ledger.apply(new VoteEvent.ExternalVote(CHAT, 1L, "Олена", "Гість", 200));
+        ledger.apply(new VoteEvent.ExternalVote(CHAT, 1L, "Олена", null, 300));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 2L, 1, "B", 400));
+
+        // The first mapping is never forced or closed, as after a crash of the process
+        MappedVoteLedger recovered = new MappedVoteLedger(file);
+        assertTrue(recovered.open());
+        assertTrue(recovered.isActive());
+        assertEquals(10, recovered.targetVotes());
+        assertEquals(Integer.valueOf(5), recovered.messageId());
+        assertEquals(Integer.valueOf(6), recovered.statusMessageId());
+        assertEquals("poll", recovered.pollId());
+        assertEquals(List.of("Олена:0", "Гість<Олена", "null<Олена", "B:1"), roster(recovered));
+        recovered.close();
+    }
+
+    @Test
+    void testVoteNumbersFollowArrivalOrder() throws Exception {
+        MappedVoteLedger ledger = new MappedVoteLedger(new File(tempDir, "order.ledger"));
+        ledger.open();
+        ledger.apply(new VoteEvent.PollCreated(CHAT, 10, null, null, null));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 1L, 0, "A"));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 2L, 1, "B"));
+        ledger.apply(new VoteEvent.ExternalVote(CHAT, 3L, "C", "G1"));
+        ledger.apply(new VoteEvent.ExternalVote(CHAT, 3L, "C", "G2"));
+        // Re-voting "yes" keeps the place in line, switching from "no" to "yes" goes to the end
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 1L, 0, "A2"));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 2L, 0, "B"));
+        assertEquals(List.of("A2:0", "G1<C", "G2<C", "B:0"), roster(ledger));
+
+        // Vote #2 is G1; "no" answers are not numbered
+        ledger.apply(new VoteEvent.Revoked(CHAT, 2));
+        ledger.apply(new VoteEvent.RevokedAll(CHAT, 3L));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 1L, DirectVoters.NONE, "A2"));
+        assertEquals(List.of("B:0"), roster(ledger));
+        assertEquals(1, ledger.size());
+
+        ledger.apply(new VoteEvent.Closed(CHAT, false));
+        assertFalse(ledger.isActive());
+        ledger.apply(new VoteEvent.Closed(CHAT, true));
+        assertEquals(List.of(), roster(ledger));
+        assertNull(ledger.pollId());
+        ledger.close();
+    }
+
+    @Test
+    void testGrowsAndCompactsPastInitialCapacity() throws Exception {
+        File file = new File(tempDir, "big.ledger");
+        MappedVoteLedger ledger = new MappedVoteLedger(file);
+        ledger.open();
+        ledger.apply(new VoteEvent.PollCreated(CHAT, 1000, null, null, null));
+        for (long user = 0; user < 500; user++)
+            ledger.apply(new VoteEvent.DirectVote(CHAT, user, 0, "Player" + user));
+        // Flip-flopping voters leave dead records behind that compaction reclaims
+        for (int round = 0; round < 4; round++)
+            for (long user = 0; user < 500; user += 2)
+                ledger.apply(new VoteEvent.DirectVote(CHAT, user, round % 2 == 0 ? 1 : 0, "Player" + user));
+        assertEquals(500, ledger.size());
+        long length = file.length();
+        ledger.close();
+
+        MappedVoteLedger reopened = new MappedVoteLedger(file);
+        assertTrue(reopened.open());
+        assertEquals(500, reopened.size());
+        assertEquals(500, roster(reopened).size());
+        assertTrue(length < 128 + 2000L * 256, "file grew to " + length);
+        reopened.close();
+    }
+
+    @Test
+    void testLongNamesAreCutAtCharacterBoundary() throws Exception {
+        MappedVoteLedger ledger = new MappedVoteLedger(new File(tempDir, "names.ledger"));
+        ledger.open();
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 1L, 0, "Ї".repeat(100)));
+        String name = roster(ledger).get(0);
+        assertEquals("Ї".repeat(55) + ":0", name);
+        ledger.close();
+    }
+
+    @Test
+    void testRegistryRecoversPollsFromLedgerFiles() throws Exception {
+        File directory = new File(tempDir, "ledgers");
+        MappedVoteLedger ledger = new MappedVoteLedger(new File(directory, CHAT + ".ledger"));
+        ledger.open();
+        ledger.apply(new VoteEvent.PollCreated(CHAT, 3, 5, "poll", 6));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 1L, 0, "A"));
+        ledger.apply(new VoteEvent.DirectVote(CHAT, 2L, 1, "B"));
+        ledger.apply(new VoteEvent.ExternalVote(CHAT, 1L, "A", "Гість"));
+        ledger.force();
+
+        PollRegistry registry = new PollRegistry(CHAT);
+        registry.attachLedgers(directory);
+        PollManager pollManager = registry.find(CHAT);
+        assertTrue(pollManager.hasActivePoll());
+        assertEquals("poll", pollManager.getTelegramPollId());
+        assertEquals(2, pollManager.getPositiveVotes());
+        assertEquals(1, pollManager.getDirectVotes(1));
+        ledger.close();
+    }
+}
@@ -0,0 +1,189 @@
+package io.sportpoll.bot.unit.persistence;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.persistance.PollArchive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PollArchiveTest {
+    private static final long CHAT = -1001234567890L;
+    private static final long WEEK = 7L * 24 * 60 * 60 * 1000;
+
+    @TempDir
+    File tempDir;
+
+    private static PollArchive.ArchivedPoll poll(int week, int voters) {
+        long closedAt = 1_700_000_000_000L + week * WEEK;
+        List<PollArchive.Row> rows = new ArrayList<>();
+        for (int i = 0; i < voters; i++)
+            rows.add(new PollArchive.Row(1000 + i, i % 3 == 0 ? 1 : 0, closedAt - WEEK + i * 60_000L, "Player" + i,
+                null));
+        rows.add(new PollArchive.Row(1000, PollArchive.INVITED, closedAt - 1000, "Гость", "Player0"));
+        rows.add(new PollArchive.Row(1001, PollArchive.INVITED, closedAt - 500, null, "Player1"));
+        return new PollArchive.ArchivedPoll(
+            new PollArchive.Summary(CHAT, "poll-" + week, 12, closedAt, rows.size(), voters), rows);
+    }
+
+    @Test
+    void testAppendedPollsReadBackInOrder() throws Exception {
+        PollArchive archive = new PollArchive(new File(tempDir, "polls.archive"));
+        archive.append(poll(0, 5));
+        archive.append(poll(1, 8));
+        archive.close();
+
+        List<PollArchive.ArchivedPoll> polls = new PollArchive(archive.getFile()).readAll();
+        assertEquals(2, polls.size());
+        assertEquals(poll(0, 5), polls.get(0));
+        assertEquals(poll(1, 8), polls.get(1));
+        PollArchive.Row anonymous = polls.get(1).rows().get(9);
+        assertTrue(anonymous.isInvited());
+        assertNull(anonymous.name());
+        assertEquals("Player1", anonymous.invitedBy());
+    }
+
+    @Test
+    void testSummariesSkipVoteColumns() throws Exception {
+        PollArchive archive = new PollArchive(new File(tempDir, "polls.archive"));
+        for (int week = 0; week < 3; week++)
+            archive.append(poll(week, 4 + week));
+
+        List<PollArchive.Summary> summaries = archive.summaries();
+        assertEquals(3, summaries.size());
+        assertEquals("poll-2", summaries.get(2).pollId());
+        assertEquals(8, summaries.get(2).rowCount());
+        assertEquals(6, summaries.get(2).positiveVotes());
+        archive.close();
+    }
+
+    @Test
+    void testSamePollIsArchivedOnce() throws Exception {
+        File file = new File(tempDir, "polls.archive");
+        PollArchive archive = new PollArchive(file);
+        List<Integer> notified = new ArrayList<>();
+        archive.addListener((index, poll) -> notified.add(index));
+        assertTrue(archive.append(poll(0, 3)));
+        assertFalse(archive.append(poll(0, 3)));
+        archive.close();
+
+        // Also after a restart, e.g. when a crash brought the archived roster back
+        PollArchive reopened = new PollArchive(file);
+        assertFalse(reopened.append(poll(0, 3)));
+        assertTrue(reopened.append(poll(1, 3)));
+        assertEquals(2, reopened.readAll().size());
+        assertEquals(List.of(0), notified);
+        reopened.close();
+    }
+
+    @Test
+    void testTornTailIsDroppedBeforeNextAppend() throws Exception {
+        File file = new File(tempDir, "polls.archive");
+        PollArchive archive = new PollArchive(file);
+        archive.append(poll(0, 3));
+        archive.append(poll(1, 3));
+        archive.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        PollArchive reopened = new PollArchive(file);
+        assertEquals(1, reopened.readAll().size());
+        reopened.append(poll(2, 3));
+        List<PollArchive.ArchivedPoll> polls = reopened.readAll();
+        assertEquals(2, polls.size());
+        assertEquals("poll-2", polls.get(1).summary().pollId());
+        reopened.close();
+    }
+
+    @Test
+    void testSummariesStopAtCorruptSegmentLikeReadAll() throws Exception {
+        File file = new File(tempDir, "polls.archive");
+        PollArchive archive = new PollArchive(file);
+        archive.append(poll(0, 3));
+        archive.append(poll(1, 3));
+        long secondEnd = file.length();
+        archive.append(poll(2, 3));
+        archive.close();
+        // Flip the last column byte of the second segment; its header and meta block stay readable
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long at = secondEnd - Integer.BYTES - 1;
+            raf.seek(at);
+            int value = raf.read();
+            raf.seek(at);
+            raf.write(value ^ 0x40);
+        }
+
+        PollArchive reopened = new PollArchive(file);
+        assertEquals(1, reopened.readAll().size());
+        assertEquals(1, reopened.summaries().size());
+        reopened.close();
+    }
+
+    @Test
+    void testCompressingOlderSegmentsKeepsContent() throws Exception {
+        PollArchive archive = new PollArchive(new File(tempDir, "polls.archive"));
+        for (int week = 0; week < 10; week++)
+            archive.append(poll(week, 30));
+        List<PollArchive.ArchivedPoll> before = archive.readAll();
+        long sizeBefore = archive.getFile().length();
+
+        assertEquals(8, archive.compressOlderSegments(2));
+        assertTrue(archive.getFile().length() < sizeBefore);
+        assertEquals(before, archive.readAll());
+        assertEquals(10, archive.summaries().size());
+        // Already compressed segments are left alone, and appending after a rewrite still works
+        assertEquals(0, archive.compressOlderSegments(2));
+        archive.append(poll(10, 30));
+        assertEquals(11, archive.readAll().size());
+        assertFalse(new File(tempDir, "polls.archive.tmp").exists());
+        archive.close();
+    }
+
+    @Test
+    void testAppendsCompressOlderSegmentsInBatches() throws Exception {
+        PollArchive archive = new PollArchive(new File(tempDir, "polls.archive"), 4);
+        List<PollArchive.ArchivedPoll> appended = new ArrayList<>();
+        for (int week = 0; week < 7; week++) {
+            appended.add(poll(week, 30));
+            archive.append(appended.get(week));
+        }
+        // The rewrite after the eighth append compresses the four polls older than the newest four
+        long sizeBefore = archive.getFile().length();
+        appended.add(poll(7, 30));
+        archive.append(appended.get(7));
+        assertTrue(archive.getFile().length() < sizeBefore);
+        assertEquals(0, archive.compressOlderSegments(4));
+        assertEquals(appended, archive.readAll());
+        archive.close();
+    }
+
+    @Test
+    void testYearsOfPollsScanQuickly() throws Exception {
+        PollArchive archive = new PollArchive(new File(tempDir, "polls.archive"));
+        int weeks = 520;
+        for (int week = 0; week < weeks; week++)
+            archive.append(poll(week, 20));
+        archive.compressOlderSegments(52);
+
+        long start = System.nanoTime();
+        int[] rows = new int[1];
+        archive.forEach(poll -> rows[0] += poll.rows().size());
+        long fullScanMillis = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        assertEquals(weeks, archive.summaries().size());
+        long summaryMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Archive of " + weeks + " polls: " + archive.getFile().length() + " bytes, full scan "
+            + fullScanMillis + " ms, summaries " + summaryMillis + " ms");
+        assertEquals(weeks * 22, rows[0]);
+        archive.close();
+    }
+}
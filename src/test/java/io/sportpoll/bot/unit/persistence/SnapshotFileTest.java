@@ -0,0 +1,139 @@
+package io.sportpoll.bot.unit.persistence;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.config.WeeklyPollConfig;
+import io.sportpoll.bot.config.WeeklyPollConfigCodec;
+import io.sportpoll.bot.persistance.DataStore;
+import io.sportpoll.bot.persistance.SnapshotFile;
+import io.sportpoll.bot.unit.utils.TestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotFileTest {
+
+    @TempDir
+    File tempDir;
+
+    private final SnapshotFile snapshots = new SnapshotFile();
+
+    @BeforeEach
+    void setUp() {
+        Config.setInstance(TestUtils.createTestConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Config.setInstance(null);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testWriteKeepsPreviousGeneration() throws Exception {
+        File target = new File(tempDir, "Type.bin");
+        snapshots.write(target, bytes("first"));
+        snapshots.write(target, bytes("second"));
+        assertArrayEquals(bytes("second"), snapshots.read(target));
+        assertTrue(new File(tempDir, "Type.bin.prev").exists());
+        // No temp file is left behind
+        assertFalse(new File(tempDir, "Type.bin.tmp").exists());
+    }
+
+    @Test
+    void testTornWriteFallsBackToPreviousGeneration() throws Exception {
+        File target = new File(tempDir, "Type.bin");
+        snapshots.write(target, bytes("first"));
+        snapshots.write(target, bytes("second"));
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        assertArrayEquals(bytes("first"), snapshots.read(target));
+    }
+
+    @Test
+    void testCorruptedByteFailsChecksum() throws Exception {
+        File target = new File(tempDir, "Type.bin");
+        snapshots.write(target, bytes("only generation"));
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+            raf.seek(2);
+            raf.write('X');
+        }
+        assertNull(snapshots.read(target));
+    }
+
+    @Test
+    void testDataStoreRecoversPreviousGeneration() throws Exception {
+        DataStore dataStore = new DataStore(tempDir);
+        dataStore.autoRegister(WeeklyPollConfig.class);
+        dataStore.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        WeeklyPollConfig config = new WeeklyPollConfig();
+        config.setTargetVotes(10);
+        assertTrue(dataStore.save(config));
+        config.setTargetVotes(11);
+        assertTrue(dataStore.save(config));
+        // Simulate a crash that left the newest snapshot half written
+        try (RandomAccessFile raf = new RandomAccessFile(new File(tempDir, "WeeklyPollConfig.bin"), "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        DataStore restarted = new DataStore(tempDir);
+        restarted.autoRegister(WeeklyPollConfig.class);
+        restarted.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        assertEquals(10, restarted.get(WeeklyPollConfig.class).getTargetVotes());
+    }
+
+    private DataStore configStore() {
+        DataStore dataStore = new DataStore(tempDir);
+        dataStore.autoRegister(WeeklyPollConfig.class);
+        dataStore.registerCodec(WeeklyPollConfig.class, new WeeklyPollConfigCodec());
+        return dataStore;
+    }
+
+    private File[] corruptCopies(String name) {
+        return tempDir.listFiles((dir, file) -> file.startsWith(name + ".corrupt-"));
+    }
+
+    @Test
+    void testUndecodableSnapshotFallsBackToPreviousAndIsKept() throws Exception {
+        WeeklyPollConfig config = new WeeklyPollConfig();
+        config.setTargetVotes(10);
+        assertTrue(configStore().save(config));
+        // Passes its checksum but is not a snapshot the codec can read
+        File target = new File(tempDir, "WeeklyPollConfig.bin");
+        snapshots.write(target, bytes("from a newer version"));
+
+        DataStore restarted = configStore();
+        assertEquals(10, restarted.get(WeeklyPollConfig.class).getTargetVotes());
+        File[] copies = corruptCopies("WeeklyPollConfig.bin");
+        assertEquals(1, copies.length);
+        assertArrayEquals(bytes("from a newer version"), snapshots.read(copies[0]));
+        // Saving twice rotates the undecodable generation out, the copy stays
+        assertTrue(restarted.save(restarted.get(WeeklyPollConfig.class)));
+        assertTrue(restarted.save(restarted.get(WeeklyPollConfig.class)));
+        assertArrayEquals(bytes("from a newer version"), snapshots.read(copies[0]));
+    }
+
+    @Test
+    void testUndecodableOnlyGenerationIsKeptBeforeFreshInstance() throws Exception {
+        File target = new File(tempDir, "WeeklyPollConfig.bin");
+        snapshots.write(target, bytes("from a newer version"));
+        WeeklyPollConfig loaded = configStore().get(WeeklyPollConfig.class);
+        assertEquals(new WeeklyPollConfig().getTargetVotes(), loaded.getTargetVotes());
+        // The fresh instance was saved over it, but not before a copy was made
+        assertArrayEquals(bytes("from a newer version"), snapshots.read(corruptCopies("WeeklyPollConfig.bin")[0]));
+    }
+}
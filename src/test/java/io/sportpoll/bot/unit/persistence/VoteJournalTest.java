@@ -0,0 +1,169 @@
+package io.sportpoll.bot.unit.persistence;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.persistance.VoteEvent;
+import io.sportpoll.bot.persistance.VoteJournal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VoteJournalTest {
+    private static final long CHAT = -1001234567890L;
+
+    @TempDir
+    File tempDir;
+
+    private List<VoteEvent> replay(File file) throws Exception {
+        List<VoteEvent> events = new ArrayList<>();
+        VoteJournal journal = new VoteJournal(file, 0);
+        journal.replay((seq, event) -> events.add(event));
+        journal.close();
+        return events;
+    }
+
+    @Test
+    void testAppendedEventsReplayInOrder() throws Exception {
+        File file = new File(tempDir, "votes.journal");
+        VoteJournal journal = new VoteJournal(file, 0);
+        journal.replay((seq, event) -> {});
+        List<VoteEvent> written = List.of(new VoteEvent.PollCreated(CHAT, 12, 5, "poll", null),
+            new VoteEvent.DirectVote(CHAT, 7L, 0, "Олег"),
+            new VoteEvent.ExternalVote(CHAT, 7L, "Олег", null),
+            new VoteEvent.Revoked(CHAT, 2),
+            new VoteEvent.RevokedAll(CHAT, 7L),
+            new VoteEvent.Closed(CHAT, true));
+        long previous = 0;
+        for (VoteEvent event : written) {
+            long seq = journal.append(event);
+            // Sequence numbers grow with append order
+            assertTrue(seq > previous);
+            previous = seq;
+        }
+        journal.flush();
+        journal.close();
+        assertEquals(written, replay(file));
+    }
+
+    @Test
+    void testTornTailIsDropped() throws Exception {
+        File file = new File(tempDir, "votes.journal");
+        VoteJournal journal = new VoteJournal(file, 0);
+        journal.replay((seq, event) -> {});
+        journal.append(new VoteEvent.DirectVote(CHAT, 1L, 0, "A"));
+        journal.append(new VoteEvent.DirectVote(CHAT, 2L, 0, "B"));
+        journal.close();
+        // Simulate a crash in the middle of the last record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        VoteJournal reopened = new VoteJournal(file, 0);
+        List<Long> seqs = new ArrayList<>();
+        reopened.replay((seq, event) -> seqs.add(seq));
+        assertEquals(List.of(1L), seqs);
+        // New records continue after the last intact one
+        assertEquals(2L, reopened.append(new VoteEvent.DirectVote(CHAT, 3L, 0, "C")));
+        reopened.close();
+        assertEquals(List.of(new VoteEvent.DirectVote(CHAT, 1L, 0, "A"), new VoteEvent.DirectVote(CHAT, 3L, 0, "C")),
+            replay(file));
+    }
+
+    @Test
+    void testCompactionDropsSnapshottedEvents() throws Exception {
+        File file = new File(tempDir, "votes.journal");
+        VoteJournal journal = new VoteJournal(file, 3);
+        journal.replay((seq, event) -> {});
+        int[] snapshots = new int[1];
+        journal.setSnapshotter(() -> {
+            snapshots[0]++;
+            return true;
+        });
+        for (int i = 0; i < 3; i++)
+            journal.append(new VoteEvent.DirectVote(CHAT, i, 0, "U" + i));
+        journal.flush();
+        journal.append(new VoteEvent.Closed(CHAT, false));
+        journal.flush();
+        journal.close();
+        // Everything appended before the snapshot is covered by it
+        assertEquals(1, snapshots[0]);
+        assertEquals(List.of(new VoteEvent.Closed(CHAT, false)), replay(file));
+    }
+
+    @Test
+    void testCompactionKeepsEventsTheSnapshotMissed() throws Exception {
+        File file = new File(tempDir, "votes.journal");
+        VoteJournal journal = new VoteJournal(file, 50);
+        journal.replay((seq, event) -> {});
+        // Stands in for the published poll states: what a snapshot taken now would contain
+        Set<Long> published = ConcurrentHashMap.newKeySet();
+        AtomicReference<Set<Long>> snapshot = new AtomicReference<>(Set.of());
+        journal.setSnapshotter(() -> {
+            snapshot.set(Set.copyOf(published));
+            return true;
+        });
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long userId = t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 500; i++)
+                    journal.append(new VoteEvent.DirectVote(CHAT, userId, 0, "U"), seq -> {
+                        // Widens the gap between numbering an event and publishing it
+                        if (seq % 20 == 0) LockSupport.parkNanos(1_000_000);
+                        published.add(seq);
+                    });
+            }));
+        }
+        for (Thread writer : writers)
+            writer.join();
+        journal.close();
+
+        // Every event is either in the last snapshot or still in the journal
+        Set<Long> recovered = new HashSet<>(snapshot.get());
+        VoteJournal reopened = new VoteJournal(file, 0);
+        reopened.replay((seq, event) -> recovered.add(seq));
+        reopened.close();
+        assertEquals(published, recovered);
+        assertEquals(2000, recovered.size());
+    }
+
+    @Test
+    void testAdvanceToSkipsSnapshotSequences() throws Exception {
+        VoteJournal journal = new VoteJournal(new File(tempDir, "votes.journal"), 0);
+        journal.replay((seq, event) -> {});
+        journal.advanceTo(41);
+        assertEquals(42L, journal.append(new VoteEvent.Closed(CHAT, false)));
+        journal.close();
+    }
+
+    @Test
+    void testDeadWriterFailsFlushInsteadOfHanging() throws Exception {
+        VoteJournal journal = new VoteJournal(new File(tempDir, "votes.journal"), 1);
+        journal.replay((seq, event) -> {});
+        CountDownLatch snapshotting = new CountDownLatch(1);
+        journal.setSnapshotter(() -> {
+            snapshotting.countDown();
+            throw new IllegalStateException("snapshot failed");
+        });
+        journal.append(new VoteEvent.DirectVote(CHAT, 1L, 0, "A"));
+        snapshotting.await();
+        IllegalStateException error = assertThrows(IllegalStateException.class, journal::flush);
+        assertEquals("snapshot failed", error.getCause().getMessage());
+        // Appends after the writer died are dropped, and closing reports it instead of waiting
+        journal.append(new VoteEvent.DirectVote(CHAT, 2L, 0, "B"));
+        assertThrows(IllegalStateException.class, journal::close);
+        assertEquals(List.of(new VoteEvent.DirectVote(CHAT, 1L, 0, "A")), replay(journal.getFile()));
+    }
+}
@@ -5,6 +5,7 @@ import io.sportpoll.bot.config.WeeklyPollConfig;
 import io.sportpoll.bot.persistance.DataStore;
 import io.sportpoll.bot.services.AdminSession;
 import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
 import io.sportpoll.bot.services.TelegramClientService;
 import io.sportpoll.bot.services.WeeklyPollScheduler;
 import io.sportpoll.bot.unit.utils.TestUtils;
@@ -320,6 +321,21 @@ class AdminSessionTest {
         }
     }
 
+    @Test
+    void testMalformedGroupAndStatsCallbacksAreIgnored() throws TelegramApiException {
+        try (MockedStatic<DataStore> mockedDataStore = mockStatic(DataStore.class)) {
+            setupMockedDataStore(mockedDataStore);
+            PollRegistry registry = new PollRegistry(-100L, 0, java.util.List.of(-200L));
+            for (String data : new String[] { "group:abc", "group", "group:", "stats" }) {
+                setupCallbackUpdate(data);
+                adminSession = new AdminSession(update, telegramClient, registry);
+
+                assertDoesNotThrow(() -> adminSession.handleUpdate(update), data);
+                assertEquals(-100L, adminSession.getSelectedChatId());
+            }
+        }
+    }
+
     @Test
     void testWeeklyConfigActualValueChanges() throws TelegramApiException {
         try (MockedStatic<DataStore> mockedDataStore = mockStatic(DataStore.class)) {
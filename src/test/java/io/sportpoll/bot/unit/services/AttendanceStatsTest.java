@@ -0,0 +1,147 @@
+package io.sportpoll.bot.unit.services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.persistance.DataStore;
+import io.sportpoll.bot.persistance.PollArchive;
+import io.sportpoll.bot.services.AttendanceStats;
+import io.sportpoll.bot.services.AttendanceStatsCodec;
+import io.sportpoll.bot.unit.utils.TestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AttendanceStatsTest {
+    private static final long CHAT = -1001234567890L;
+    private static final long OTHER_CHAT = -1009876543210L;
+
+    @TempDir
+    File tempDir;
+
+    private PollArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        Config.setInstance(TestUtils.createTestConfig());
+        archive = new PollArchive(new File(tempDir, "polls.archive"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        archive.close();
+        Config.setInstance(null);
+    }
+
+    // players[i] >= 0 votes yes, < 0 votes no; guests are invited by the first player
+    private static PollArchive.ArchivedPoll poll(long chatId, long[] players, String... guests) {
+        List<PollArchive.Row> rows = new ArrayList<>();
+        int positive = 0;
+        for (long player : players) {
+            long userId = Math.abs(player);
+            rows.add(new PollArchive.Row(userId, player >= 0 ? 0 : 1, 0, "P" + userId, null));
+            if (player >= 0) positive++;
+        }
+        long inviter = Math.abs(players[0]);
+        for (String guest : guests)
+            rows.add(new PollArchive.Row(inviter, PollArchive.INVITED, 0, guest, "P" + inviter));
+        positive += guests.length;
+        return new PollArchive.ArchivedPoll(
+            new PollArchive.Summary(chatId, null, 10, 0, rows.size(), positive), rows);
+    }
+
+    private static AttendanceStats.PlayerSummary player(AttendanceStats.Report report, long userId) {
+        return report.players().stream().filter(p -> p.userId() == userId).findFirst().orElseThrow();
+    }
+
+    @Test
+    void testRateAndStreakFollowArchivedPolls() throws Exception {
+        AttendanceStats stats = new AttendanceStats();
+        stats.attachArchive(archive);
+        archive.append(poll(CHAT, new long[] { 1, 2, 3 }, "Гість"));
+        archive.append(poll(CHAT, new long[] { 1, -2 }, "Гість", null));
+        archive.append(poll(CHAT, new long[] { 1, 2 }));
+
+        AttendanceStats.Report report = stats.report(CHAT, 10, 10);
+        assertEquals(3, report.polls());
+        assertEquals(1L, report.players().get(0).userId());
+        assertEquals(100, player(report, 1).ratePercent());
+        assertEquals(3, player(report, 1).streak());
+        // Player 2 skipped the middle poll, player 3 has not come back since the first
+        assertEquals(2, player(report, 2).attended());
+        assertEquals(1, player(report, 2).streak());
+        assertEquals(0, player(report, 3).streak());
+        assertEquals(33, player(report, 3).ratePercent());
+        assertEquals(2, report.invites().get(0).count());
+        assertEquals("Гість", report.invites().get(0).guest());
+        assertEquals("P1", report.invites().get(0).inviter());
+    }
+
+    @Test
+    void testChatsAreCountedSeparately() throws Exception {
+        AttendanceStats stats = new AttendanceStats();
+        stats.attachArchive(archive);
+        archive.append(poll(CHAT, new long[] { 1 }));
+        archive.append(poll(OTHER_CHAT, new long[] { 1 }));
+        archive.append(poll(OTHER_CHAT, new long[] { 1 }));
+
+        assertEquals(1, stats.report(CHAT, 10, 10).polls());
+        assertEquals(2, player(stats.report(OTHER_CHAT, 10, 10), 1).streak());
+    }
+
+    @Test
+    void testPollsArchivedBeforeAttachAreCaughtUp() throws Exception {
+        archive.append(poll(CHAT, new long[] { 1, 2 }));
+        archive.append(poll(CHAT, new long[] { 1 }));
+
+        AttendanceStats stats = new AttendanceStats();
+        stats.attachArchive(archive);
+        assertEquals(2, stats.report(CHAT, 10, 10).polls());
+        archive.append(poll(CHAT, new long[] { 2 }));
+        assertEquals(3, stats.report(CHAT, 10, 10).polls());
+    }
+
+    @Test
+    void testRebuildMatchesIncrementalAggregates() throws Exception {
+        AttendanceStats stats = new AttendanceStats();
+        stats.attachArchive(archive);
+        for (int week = 0; week < 60; week++)
+            archive.append(poll(week % 3 == 0 ? OTHER_CHAT : CHAT,
+                new long[] { 1 + week % 4, 2 + week % 5, -(7 + week % 2), 3 }, "G" + week % 3));
+        AttendanceStats.Report before = stats.report(CHAT, 100, 100);
+
+        AttendanceStats.RebuildResult result = stats.rebuild();
+        assertEquals(60, result.polls());
+        assertTrue(result.matched());
+        assertEquals(before, stats.report(CHAT, 100, 100));
+    }
+
+    @Test
+    void testStatsSurviveDataStoreReload() throws Exception {
+        File dataDir = new File(tempDir, "data");
+        DataStore store = new DataStore(dataDir);
+        store.autoRegister(AttendanceStats.class);
+        store.registerCodec(AttendanceStats.class, new AttendanceStatsCodec());
+        AttendanceStats stats = store.get(AttendanceStats.class);
+        store.getArchive().append(poll(CHAT, new long[] { 1, 2 }, "Гість"));
+        store.getArchive().append(poll(CHAT, new long[] { 1 }));
+        store.save(stats);
+        store.getArchive().close();
+
+        DataStore reopened = new DataStore(dataDir);
+        reopened.autoRegister(AttendanceStats.class);
+        reopened.registerCodec(AttendanceStats.class, new AttendanceStatsCodec());
+        AttendanceStats loaded = reopened.get(AttendanceStats.class);
+        assertEquals(stats.report(CHAT, 10, 10), loaded.report(CHAT, 10, 10));
+        // Nothing new in the archive, so reloading did not fold the same polls in twice
+        assertEquals(2, loaded.report(CHAT, 10, 10).polls());
+        reopened.getArchive().close();
+    }
+}
@@ -0,0 +1,130 @@
+package io.sportpoll.bot.unit.services;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.pinnedmessages.PinChatMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import io.sportpoll.bot.services.ForwardingTelegramClient;
+import io.sportpoll.bot.services.OutboundScheduler;
+import io.sportpoll.bot.services.OutboundScheduler.Limits;
+import io.sportpoll.bot.services.OutboundScheduler.Priority;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundSchedulerTest {
+    // Records what reaches the Bot API; the first call to a chat listed in rateLimitedChats gets a 429
+    private static class RecordingClient extends ForwardingTelegramClient {
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        final List<String> rateLimitedChats = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingClient() {
+            super(null);
+        }
+
+        @Override
+        public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(
+            Method method) {
+            String label = switch (method) {
+                case SendMessage send -> send.getText();
+                case EditMessageText edit -> edit.getText();
+                case PinChatMessage pin -> "pin";
+                default -> method.getMethod();
+            };
+            if (method instanceof SendMessage send && rateLimitedChats.remove(send.getChatId())) {
+                ApiResponse<Object> response = new ApiResponse<>(false, 429, "Too Many Requests",
+                    new ResponseParameters(null, 1), null);
+                return CompletableFuture.failedFuture(new TelegramApiRequestException("rate limited", response));
+            }
+            sent.add(label);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private static SendMessage message(String chatId, String text) {
+        return SendMessage.builder().chatId(chatId).text(text).build();
+    }
+
+    private static EditMessageText status(String text) {
+        return EditMessageText.builder().chatId("-100").messageId(1).text(text).build();
+    }
+
+    @Test
+    void testRepliesGoOutBeforePinsAndStatusEdits() throws Exception {
+        RecordingClient client = new RecordingClient();
+        OutboundScheduler scheduler = new OutboundScheduler(client, new Limits(4, 600, 100));
+        EditMessageText menu = EditMessageText.builder().chatId("7").messageId(2).text("menu")
+            .replyMarkup(InlineKeyboardMarkup.builder().keyboard(List.of()).build()).build();
+        assertEquals(Priority.STATUS, OutboundScheduler.priorityOf(status("s")));
+        assertEquals(Priority.REPLY, OutboundScheduler.priorityOf(menu));
+
+        // Use up the global burst so the next calls have to wait for tokens and get ordered
+        List<CompletableFuture<?>> warmup = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            warmup.add(scheduler.executeAsync(message("1", "warmup" + i)));
+        CompletableFuture.allOf(warmup.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<?> statusEdit = scheduler.executeAsync(status("status"));
+        CompletableFuture<?> pin = scheduler.executeAsync(PinChatMessage.builder().chatId("-100").messageId(3)
+            .build());
+        CompletableFuture<?> reply = scheduler.executeAsync(message("2", "reply"));
+        assertEquals(3, scheduler.getMetrics().queued());
+        CompletableFuture.allOf(statusEdit, pin, reply).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("reply", "pin", "status"), client.sent.subList(4, 7));
+        OutboundScheduler.Metrics metrics = scheduler.getMetrics();
+        assertEquals(0, metrics.queued());
+        assertEquals(7, metrics.sent());
+        assertTrue(metrics.maxWaitMillis() >= 100, "waited " + metrics.maxWaitMillis());
+    }
+
+    @Test
+    void testRetryAfterHoldsOnlyTheLimitedChat() throws Exception {
+        RecordingClient client = new RecordingClient();
+        OutboundScheduler scheduler = new OutboundScheduler(client, new Limits(100, 600, 100));
+        client.rateLimitedChats.add("-100");
+
+        long start = System.nanoTime();
+        CompletableFuture<?> limited = scheduler.executeAsync(message("-100", "a"));
+        CompletableFuture<?> other = scheduler.executeAsync(message("-200", "b"));
+        other.get(5, TimeUnit.SECONDS);
+        assertFalse(limited.isDone());
+        limited.get(5, TimeUnit.SECONDS);
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of("b", "a"), client.sent);
+        assertTrue(waited >= 900, "retried after " + waited + " ms");
+        assertEquals(1, scheduler.getMetrics().rateLimited());
+        assertTrue(scheduler.summary().contains("rateLimited=1"), scheduler.summary());
+    }
+
+    @Test
+    void testGroupLimitHoldsExtraMessages() throws Exception {
+        RecordingClient client = new RecordingClient();
+        OutboundScheduler scheduler = new OutboundScheduler(client, new Limits(100, 3, 100));
+        List<CompletableFuture<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            calls.add(scheduler.executeAsync(message("-100", "m" + i)));
+        CompletableFuture<?> privateReply = scheduler.executeAsync(message("5", "private"));
+
+        CompletableFuture.allOf(calls.get(0), calls.get(1), calls.get(2), privateReply).get(5, TimeUnit.SECONDS);
+        assertFalse(calls.get(3).isDone());
+        assertEquals(List.of("m0", "m1", "m2", "private"), client.sent);
+        assertEquals(1, scheduler.getMetrics().queued());
+        assertEquals(Integer.valueOf(1), scheduler.getMetrics().queuedByPriority().get(Priority.REPLY));
+    }
+}
@@ -1,9 +1,15 @@
 package io.sportpoll.bot.unit.services;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
@@ -14,18 +20,23 @@ import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.polls.Poll;
 import org.telegram.telegrambots.meta.api.objects.polls.PollAnswer;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 import io.sportpoll.bot.config.Config;
+import io.sportpoll.bot.persistance.PollArchive;
+import io.sportpoll.bot.persistance.VoteJournal;
 import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
 import io.sportpoll.bot.services.TelegramClientService;
 import io.sportpoll.bot.unit.utils.TestUtils;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -40,6 +51,7 @@ public class PollManagerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        TestUtils.forwardAsyncCalls(telegramClient);
         Config.setInstance(TestUtils.createTestConfig());
         pollManager = new PollManager(-1001234567890L);
     }
@@ -151,6 +163,92 @@ public class PollManagerTest {
         }
     }
 
+    @Test
+    void testResetPollIsArchived(@TempDir File tempDir) throws Exception {
+        PollArchive archive = new PollArchive(new File(tempDir, "polls.archive"));
+        PollRegistry registry = new PollRegistry(-1001234567890L);
+        registry.attachArchive(archive);
+        PollManager archived = registry.getDefault();
+        TestUtils.executeWithTelegramMock(setup -> {
+            TestUtils.pollBuilder().withVoteLimit(5).createPoll(archived);
+            Update update = TestUtils.createMockUpdate("test", -1001234567890L, 123456789L);
+            archived.addExternalVote(new String[] { "John" }, 1, update);
+            archived.resetPollPublic();
+        });
+
+        List<PollArchive.ArchivedPoll> polls = archive.readAll();
+        assertEquals(1, polls.size());
+        assertEquals(5, polls.get(0).summary().targetVotes());
+        assertEquals(1, polls.get(0).summary().positiveVotes());
+        PollArchive.Row row = polls.get(0).rows().get(0);
+        assertTrue(row.isInvited());
+        assertEquals("John", row.name());
+        assertEquals(123456789L, row.userId());
+        archive.close();
+    }
+
+    @Test
+    void testCompletedPollIsArchivedOnceWhenCrashingWhilePostingTheNext(@TempDir File tempDir) throws Exception {
+        File journalFile = new File(tempDir, "votes.journal");
+        File archiveFile = new File(tempDir, "polls.archive");
+        VoteJournal journal = new VoteJournal(journalFile, Integer.MAX_VALUE);
+        PollArchive archive = new PollArchive(archiveFile);
+        PollRegistry registry = new PollRegistry(-1001234567890L);
+        registry.attachJournal(journal);
+        registry.attachArchive(archive);
+        PollManager completed = registry.getDefault();
+        CountDownLatch posting = new CountDownLatch(1);
+        CountDownLatch crashed = new CountDownLatch(1);
+        try (MockedStatic<TelegramClientService> mockedStatic = mockStatic(TelegramClientService.class)) {
+            mockedStatic.when(TelegramClientService::getInstance).thenReturn(telegramClient);
+            Message mockMessage = mock(Message.class);
+            Poll telegramPoll = mock(Poll.class);
+            when(mockMessage.getMessageId()).thenReturn(123);
+            when(mockMessage.getPoll()).thenReturn(telegramPoll);
+            when(telegramPoll.getId()).thenReturn("poll-1");
+            when(telegramClient.execute(any(SendMessage.class))).thenReturn(mockMessage);
+            when(telegramClient.execute(any(SendPoll.class))).thenReturn(mockMessage);
+            when(telegramClient.execute(any(PinChatMessage.class))).thenReturn(true);
+            Update update = TestUtils.createMockUpdate("test", -1001234567890L, 123456789L);
+            completed.createAndPostPoll("Test question", "Yes", "No", 1, update);
+            completed.addExternalVote(new String[] { "John" }, 1, update);
+            assertFalse(completed.hasActivePoll());
+
+            // The next poll archives the completed one, then the process dies while Telegram is posting it
+            when(telegramClient.execute(any(SendPoll.class))).thenAnswer(invocation -> {
+                posting.countDown();
+                crashed.await();
+                throw new TelegramApiException("process killed");
+            });
+            CompletableFuture<Void> next = completed
+                .submit(pm -> pm.createAndPostPoll("Next question", "Yes", "No", 1, update));
+            assertTrue(posting.await(5, TimeUnit.SECONDS));
+            journal.flush();
+            File crashDir = new File(tempDir, "crashed");
+            crashDir.mkdirs();
+            Files.copy(journalFile.toPath(), new File(crashDir, journalFile.getName()).toPath());
+            Files.copy(archiveFile.toPath(), new File(crashDir, archiveFile.getName()).toPath());
+            crashed.countDown();
+            assertThrows(Exception.class, next::join);
+            journal.close();
+            archive.close();
+
+            // After a restart from what was on disk, the next poll goes out without archiving the old one again
+            when(telegramClient.execute(any(SendPoll.class))).thenReturn(mockMessage);
+            VoteJournal restartedJournal = new VoteJournal(new File(crashDir, journalFile.getName()), 0);
+            PollArchive restartedArchive = new PollArchive(new File(crashDir, archiveFile.getName()));
+            PollRegistry restarted = new PollRegistry(-1001234567890L);
+            restarted.attachJournal(restartedJournal);
+            restarted.attachArchive(restartedArchive);
+            restarted.getDefault().createAndPostPoll("Next question", "Yes", "No", 1, update);
+            List<PollArchive.ArchivedPoll> polls = restartedArchive.readAll();
+            assertEquals(1, polls.size());
+            assertEquals("poll-1", polls.get(0).summary().pollId());
+            restartedJournal.close();
+            restartedArchive.close();
+        }
+    }
+
     @Test
     void testRevokeByVoteNumber() throws TelegramApiException {
         try (MockedStatic<TelegramClientService> mockedStatic = mockStatic(TelegramClientService.class)) {
@@ -201,6 +299,31 @@ public class PollManagerTest {
         }
     }
 
+    @Test
+    void testRevokeAllInvitedVotes() throws TelegramApiException {
+        try (MockedStatic<TelegramClientService> mockedStatic = mockStatic(TelegramClientService.class)) {
+            mockedStatic.when(TelegramClientService::getInstance).thenReturn(telegramClient);
+            Message mockMessage = mock(Message.class);
+            when(mockMessage.getMessageId()).thenReturn(123);
+            when(telegramClient.execute(any(SendMessage.class))).thenReturn(mockMessage);
+            when(telegramClient.execute(any(SendPoll.class))).thenReturn(mockMessage);
+            when(telegramClient.execute(any(PinChatMessage.class))).thenReturn(true);
+
+            // Two requesters invite votes
+            Update update = TestUtils.createMockUpdate("test", -1001234567890L, 123456789L);
+            Update otherUpdate = TestUtils.createMockUpdate("test", -1001234567890L, 555555555L);
+            pollManager.createAndPostPoll("Test question", "Yes", "No", 10, update);
+            pollManager.addExternalVote(new String[] { "John", "Jane" }, 2, update);
+            pollManager.addExternalVote(null, 1, otherUpdate);
+            pollManager.addExternalVote(null, 1, update);
+            assertEquals(4, pollManager.getPositiveVotes());
+            // Only the caller's invited votes are revoked
+            Update revokeUpdate = TestUtils.createMockUpdate("/- all", -1001234567890L, 123456789L);
+            pollManager.handleRevokeCommand(revokeUpdate);
+            assertEquals(1, pollManager.getPositiveVotes());
+        }
+    }
+
     @Test
     void testHandleDirectVote() throws TelegramApiException {
         try (MockedStatic<TelegramClientService> mockedStatic = mockStatic(TelegramClientService.class)) {
@@ -403,4 +526,47 @@ public class PollManagerTest {
             assertEquals(0, pollManager.getPositiveVotes());
         }
     }
+
+    @Test
+    void testDirectVoteTalliesPerOption() throws TelegramApiException {
+        try (MockedStatic<TelegramClientService> mockedStatic = mockStatic(TelegramClientService.class)) {
+            mockedStatic.when(TelegramClientService::getInstance).thenReturn(telegramClient);
+            Message mockMessage = mock(Message.class);
+            when(mockMessage.getMessageId()).thenReturn(123);
+            when(telegramClient.execute(any(SendMessage.class))).thenReturn(mockMessage);
+            when(telegramClient.execute(any(PinChatMessage.class))).thenReturn(true);
+
+            pollManager.initializePoll(10, 123);
+            pollManager.handleDirectVote(TestUtils.createMockDirectVoteUpdate(1L, "A", 0));
+            pollManager.handleDirectVote(TestUtils.createMockDirectVoteUpdate(2L, "B", 1));
+            pollManager.handleDirectVote(TestUtils.createMockDirectVoteUpdate(3L, "C", 1));
+            assertEquals(1, pollManager.getDirectVotes(0));
+            assertEquals(2, pollManager.getDirectVotes(1));
+            // External votes only add to the positive total
+            Update update = TestUtils.createMockUpdate("/+ 2", -1001234567890L, 123456789L);
+            pollManager.handleVoteCommand(update);
+            assertEquals(3, pollManager.getPositiveVotes());
+            assertEquals(1, pollManager.getDirectVotes(0));
+        }
+    }
+
+    @Test
+    void testDirectVoterIdentifiedByUserId() throws TelegramApiException {
+        try (MockedStatic<TelegramClientService> mockedStatic = mockStatic(TelegramClientService.class)) {
+            mockedStatic.when(TelegramClientService::getInstance).thenReturn(telegramClient);
+            Message mockMessage = mock(Message.class);
+            when(mockMessage.getMessageId()).thenReturn(123);
+            when(telegramClient.execute(any(SendMessage.class))).thenReturn(mockMessage);
+            when(telegramClient.execute(any(PinChatMessage.class))).thenReturn(true);
+
+            pollManager.initializePoll(10, 123);
+            pollManager.handleDirectVote(TestUtils.createMockDirectVoteUpdate(123456789L, "Old Name", 0));
+            // Same user id arriving as a different User object with a new name is not double counted
+            pollManager.handleDirectVote(TestUtils.createMockDirectVoteUpdate(123456789L, "New Name", 0));
+            assertEquals(1, pollManager.getPositiveVotes());
+            pollManager.handleDirectVote(TestUtils.createMockDirectVoteUpdate(123456789L, "New Name", 1));
+            assertEquals(0, pollManager.getPositiveVotes());
+            assertEquals(1, pollManager.getDirectVotes(1));
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package io.sportpoll.bot.unit.services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sportpoll.bot.persistance.VoteEvent;
+import io.sportpoll.bot.persistance.VoteJournal;
+import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PollRegistryTest {
+    private static final long DEFAULT_CHAT = -1001234567890L;
+    private static final long OTHER_CHAT = -1009876543210L;
+
+    @TempDir
+    File tempDir;
+
+    private PollRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new PollRegistry(DEFAULT_CHAT);
+    }
+
+    @Test
+    void testPollsAreKeyedByChatId() {
+        PollManager defaultPoll = registry.getDefault();
+        PollManager otherPoll = registry.getOrCreate(OTHER_CHAT);
+        // Each chat gets its own poll bound to that chat
+        assertNotSame(defaultPoll, otherPoll);
+        assertEquals(DEFAULT_CHAT, defaultPoll.getChatId());
+        assertEquals(OTHER_CHAT, otherPoll.getChatId());
+        // Lookups return the same instance
+        assertSame(otherPoll, registry.getOrCreate(OTHER_CHAT));
+        assertSame(otherPoll, registry.find(OTHER_CHAT));
+    }
+
+    @Test
+    void testHasPoll() {
+        // The configured group always has a poll
+        assertTrue(registry.hasPoll(DEFAULT_CHAT));
+        assertFalse(registry.hasPoll(OTHER_CHAT));
+        assertNull(registry.find(OTHER_CHAT));
+        registry.getOrCreate(OTHER_CHAT);
+        assertTrue(registry.hasPoll(OTHER_CHAT));
+    }
+
+    @Test
+    void testRegisteredGroupsAcceptPolls() throws Exception {
+        PollRegistry groups = new PollRegistry(DEFAULT_CHAT, 0, List.of(DEFAULT_CHAT, OTHER_CHAT));
+        assertEquals(List.of(DEFAULT_CHAT, OTHER_CHAT), groups.getGroupChatIds());
+        // A registered group routes messages before anyone created its poll
+        assertTrue(groups.hasPoll(OTHER_CHAT));
+        List<PollManager> visited = new ArrayList<>();
+        groups.execute(OTHER_CHAT, visited::add);
+        assertEquals(1, visited.size());
+        assertEquals(OTHER_CHAT, visited.get(0).getChatId());
+        assertSame(visited.get(0), groups.find(OTHER_CHAT));
+    }
+
+    @Test
+    void testRegisterConfiguresPoll() {
+        File ledgers = new File(tempDir, "ledgers");
+        registry.attachLedgers(ledgers);
+        registry.register(OTHER_CHAT, new PollManager(OTHER_CHAT));
+        // A registered poll gets the same wiring as one the registry created
+        assertTrue(new File(ledgers, OTHER_CHAT + ".ledger").exists());
+    }
+
+    @Test
+    void testExecuteSkipsUnknownChat() throws Exception {
+        List<PollManager> visited = new ArrayList<>();
+        registry.execute(OTHER_CHAT, visited::add);
+        assertTrue(visited.isEmpty());
+        registry.execute(DEFAULT_CHAT, visited::add);
+        assertEquals(1, visited.size());
+    }
+
+    @Test
+    void testFindByUnknownPollId() {
+        registry.getOrCreate(OTHER_CHAT);
+        assertNull(registry.findByPollId("unknown"));
+        assertNull(registry.findByPollId(null));
+    }
+
+    @Test
+    void testSubmitSerializesPerChat() throws Exception {
+        registry.getOrCreate(OTHER_CHAT);
+        int[] counters = new int[2];
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        registry.submit(DEFAULT_CHAT, pm -> counters[0]++).get();
+                        registry.submit(OTHER_CHAT, pm -> counters[1]++).get();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        // Unsynchronized increments stay exact because each poll runs one task at a time on its actor
+        assertEquals(8000, counters[0]);
+        assertEquals(8000, counters[1]);
+    }
+
+    @Test
+    void testPollMethodsRunOnActor() throws Exception {
+        PollManager pollManager = registry.getDefault();
+        // Reads from other threads are answered by the actor, nested calls run inline
+        assertEquals(0, pollManager.getPositiveVotes());
+        List<Integer> seen = new ArrayList<>();
+        registry.submit(DEFAULT_CHAT, pm -> seen.add(pm.getPositiveVotes())).get();
+        assertEquals(List.of(0), seen);
+    }
+
+    @Test
+    void testJournalReplayRestoresVotes() throws Exception {
+        File file = new File(tempDir, "votes.journal");
+        VoteJournal journal = new VoteJournal(file, 0);
+        journal.replay((seq, event) -> {});
+        journal.append(new VoteEvent.PollCreated(OTHER_CHAT, 10, 5, "poll", 6));
+        journal.append(new VoteEvent.DirectVote(OTHER_CHAT, 1L, 0, "A"));
+        journal.append(new VoteEvent.DirectVote(OTHER_CHAT, 2L, 0, "B"));
+        journal.append(new VoteEvent.ExternalVote(OTHER_CHAT, 1L, "A", "Гость"));
+        journal.append(new VoteEvent.ExternalVote(OTHER_CHAT, 1L, "A", null));
+        journal.append(new VoteEvent.Revoked(OTHER_CHAT, 2));
+        journal.close();
+
+        VoteJournal reopened = new VoteJournal(file, 0);
+        registry.attachJournal(reopened);
+        PollManager pollManager = registry.find(OTHER_CHAT);
+        // Direct vote #2 was revoked, both invited votes survive
+        assertTrue(pollManager.hasActivePoll());
+        assertEquals("poll", pollManager.getTelegramPollId());
+        assertEquals(3, pollManager.getPositiveVotes());
+        assertEquals(1, pollManager.getDirectVotes(0));
+        assertSame(pollManager, registry.findByPollId("poll"));
+        // Replaying again is a no-op because the poll remembers the last applied sequence
+        reopened.close();
+        VoteJournal again = new VoteJournal(file, 0);
+        registry.attachJournal(again);
+        assertEquals(3, pollManager.getPositiveVotes());
+        again.close();
+    }
+}
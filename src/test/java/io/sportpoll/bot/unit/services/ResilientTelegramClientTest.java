@@ -0,0 +1,181 @@
+package io.sportpoll.bot.unit.services;
+
+import java.io.Serializable;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import io.sportpoll.bot.services.ForwardingTelegramClient;
+import io.sportpoll.bot.services.ResilientTelegramClient;
+import io.sportpoll.bot.services.ResilientTelegramClient.Failure;
+import io.sportpoll.bot.services.ResilientTelegramClient.MethodStats;
+import io.sportpoll.bot.services.ResilientTelegramClient.Policy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResilientTelegramClientTest {
+    // Fails with the queued errors in order, then succeeds
+    private static class ScriptedClient extends ForwardingTelegramClient {
+        final Deque<Throwable> failures = new ArrayDeque<>();
+        final AtomicInteger calls = new AtomicInteger();
+
+        ScriptedClient() {
+            super(null);
+        }
+
+        @Override
+        public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(
+            Method method) {
+            calls.incrementAndGet();
+            Throwable failure;
+            synchronized (failures) {
+                failure = failures.poll();
+            }
+            return failure == null ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(failure);
+        }
+    }
+
+    private static TelegramApiRequestException apiError(int code) {
+        return new TelegramApiRequestException("Error", new ApiResponse<>(false, code, "error " + code, null, null));
+    }
+
+    private static TelegramApiException timeout() {
+        return new TelegramApiException("Unable to execute", new SocketTimeoutException("timeout"));
+    }
+
+    private static TelegramApiException refused() {
+        return new TelegramApiException("Unable to execute", new ConnectException("Connection refused"));
+    }
+
+    private static EditMessageText edit() {
+        return EditMessageText.builder().chatId("-100").messageId(1).text("status").build();
+    }
+
+    private static SendMessage send() {
+        return SendMessage.builder().chatId("-100").text("hello").build();
+    }
+
+    @Test
+    void testClassifiesFailures() {
+        assertEquals(Failure.PERMANENT, ResilientTelegramClient.classify(apiError(400)));
+        assertEquals(Failure.PERMANENT, ResilientTelegramClient.classify(apiError(403)));
+        assertEquals(Failure.RATE_LIMITED, ResilientTelegramClient.classify(apiError(429)));
+        assertEquals(Failure.SERVER, ResilientTelegramClient.classify(apiError(502)));
+        assertEquals(Failure.SERVER, ResilientTelegramClient.classify(new TelegramApiRequestException("Unable to "
+            + "deserialize response", new IllegalStateException())));
+        assertEquals(Failure.NETWORK, ResilientTelegramClient.classify(timeout()));
+        assertEquals(Failure.UNREACHABLE, ResilientTelegramClient.classify(refused()));
+        assertEquals(Failure.NETWORK, ResilientTelegramClient.classify(new SocketTimeoutException("timeout")));
+        assertEquals(Failure.UNREACHABLE, ResilientTelegramClient.classify(new ConnectException("refused")));
+        assertEquals(Failure.PERMANENT, ResilientTelegramClient.classify(new TelegramApiException("bad chat id")));
+    }
+
+    @Test
+    void testRetriesIdempotentCallsOnly() throws Exception {
+        ScriptedClient delegate = new ScriptedClient();
+        ResilientTelegramClient client = new ResilientTelegramClient(delegate, new Policy(4, 1, 5, 100, 1000));
+
+        delegate.failures.add(timeout());
+        delegate.failures.add(apiError(502));
+        client.execute(edit());
+        assertEquals(3, delegate.calls.get());
+
+        // A timed-out send may already be in the chat, so it is not repeated
+        delegate.failures.add(timeout());
+        TelegramApiException error = assertThrows(TelegramApiException.class, () -> client.execute(send()));
+        assertTrue(error.getCause() instanceof SocketTimeoutException);
+        assertEquals(4, delegate.calls.get());
+
+        // ...but one that never connected is
+        delegate.failures.add(refused());
+        client.execute(send());
+        assertEquals(6, delegate.calls.get());
+
+        // Permanent errors come back at once
+        delegate.failures.add(apiError(400));
+        assertThrows(TelegramApiRequestException.class, () -> client.execute(edit()));
+        assertEquals(7, delegate.calls.get());
+
+        MethodStats edits = client.getStats().get("editmessagetext");
+        assertEquals(1, edits.successes());
+        assertEquals(1, edits.failures());
+        assertEquals(2, edits.retries());
+        MethodStats sends = client.getStats().get("sendmessage");
+        assertEquals(1, sends.successes());
+        assertEquals(1, sends.failures());
+        assertEquals(1, sends.retries());
+        assertTrue(client.summary().contains("ok=1 failed=1 retries=2"), client.summary());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        ScriptedClient delegate = new ScriptedClient();
+        ResilientTelegramClient client = new ResilientTelegramClient(delegate, new Policy(3, 1, 5, 100, 1000));
+        TelegramApiException last = timeout();
+        delegate.failures.add(timeout());
+        delegate.failures.add(timeout());
+        delegate.failures.add(last);
+        delegate.failures.add(timeout());
+        assertSame(last, assertThrows(TelegramApiException.class, () -> client.execute(edit())));
+        assertEquals(3, delegate.calls.get());
+    }
+
+    @Test
+    void testCircuitBreakerOpensAndRecovers() throws Exception {
+        ScriptedClient delegate = new ScriptedClient();
+        ResilientTelegramClient client = new ResilientTelegramClient(delegate, new Policy(1, 1, 5, 2, 200));
+        delegate.failures.add(apiError(500));
+        delegate.failures.add(apiError(503));
+        assertThrows(TelegramApiRequestException.class, () -> client.execute(edit()));
+        assertFalse(client.isOpen());
+        assertThrows(TelegramApiRequestException.class, () -> client.execute(edit()));
+        assertTrue(client.isOpen());
+
+        // While open, calls fail without reaching the API
+        assertThrows(ResilientTelegramClient.CircuitOpenException.class, () -> client.execute(send()));
+        assertEquals(2, delegate.calls.get());
+        assertEquals(1, client.getStats().get("sendmessage").rejected());
+
+        // After the cooldown a successful trial call closes it again
+        Thread.sleep(250);
+        client.execute(send());
+        assertFalse(client.isOpen());
+        client.execute(edit());
+        assertEquals(4, delegate.calls.get());
+    }
+
+    @Test
+    void testRetriesBareIOExceptionsFromAsyncTransport() throws Exception {
+        // OkHttpTelegramClient.executeAsync fails its future with the IOException itself
+        ScriptedClient delegate = new ScriptedClient();
+        ResilientTelegramClient client = new ResilientTelegramClient(delegate, new Policy(3, 1, 5, 3, 1000));
+        delegate.failures.add(new SocketTimeoutException("timeout"));
+        client.executeAsync(edit()).join();
+        assertEquals(2, delegate.calls.get());
+        assertEquals(1, client.getStats().get("editmessagetext").retries());
+
+        delegate.failures.add(new ConnectException("Connection refused"));
+        delegate.failures.add(new ConnectException("Connection refused"));
+        delegate.failures.add(new ConnectException("Connection refused"));
+        CompletionException error = assertThrows(CompletionException.class, () -> client.executeAsync(send()).join());
+        assertTrue(error.getCause() instanceof ConnectException);
+        assertEquals(5, delegate.calls.get());
+        assertTrue(client.isOpen());
+    }
+}
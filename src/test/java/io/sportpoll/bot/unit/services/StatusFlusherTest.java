@@ -0,0 +1,135 @@
+package io.sportpoll.bot.unit.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import io.sportpoll.bot.services.StatusFlusher;
+import io.sportpoll.bot.services.StatusRenderer;
+import io.sportpoll.bot.services.TelegramClientService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+
+public class StatusFlusherTest {
+    private static CompletableFuture<?> record(List<String> sent, String text) {
+        sent.add(text);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Test
+    void testBurstIsCoalescedToLatestText() throws Exception {
+        TelegramClient client = mock(TelegramClient.class);
+        List<String> sent = new ArrayList<>();
+        try (MockedStatic<TelegramClientService> mockedService = mockStatic(TelegramClientService.class)) {
+            mockedService.when(TelegramClientService::getInstance).thenReturn(client);
+            StatusFlusher flusher = new StatusFlusher(60_000);
+
+            // First edit goes out immediately
+            flusher.submit("v1", (c, text) -> record(sent, text));
+            assertEquals(List.of("v1"), sent);
+
+            // Edits inside the interval are held and replaced by newer ones
+            flusher.submit("v2", (c, text) -> record(sent, text));
+            flusher.submit("v3", (c, text) -> {
+                assertSame(client, c);
+                return record(sent, text);
+            });
+            assertEquals(List.of("v1"), sent);
+            assertTrue(flusher.hasPending());
+
+            // A forced flush sends only the latest text
+            flusher.flush();
+            assertEquals(List.of("v1", "v3"), sent);
+            assertFalse(flusher.hasPending());
+            flusher.flush();
+            assertEquals(2, sent.size());
+        }
+    }
+
+    @Test
+    void testZeroIntervalSendsEveryEdit() throws Exception {
+        List<String> sent = new ArrayList<>();
+        try (MockedStatic<TelegramClientService> mockedService = mockStatic(TelegramClientService.class)) {
+            mockedService.when(TelegramClientService::getInstance).thenReturn(mock(TelegramClient.class));
+            StatusFlusher flusher = new StatusFlusher(0);
+            flusher.submit("v1", (c, text) -> record(sent, text));
+            flusher.submit("v2", (c, text) -> record(sent, text));
+            assertEquals(List.of("v1", "v2"), sent);
+        }
+    }
+
+    @Test
+    void testCancelDropsPendingEdit() throws Exception {
+        List<String> sent = new ArrayList<>();
+        try (MockedStatic<TelegramClientService> mockedService = mockStatic(TelegramClientService.class)) {
+            mockedService.when(TelegramClientService::getInstance).thenReturn(mock(TelegramClient.class));
+            StatusFlusher flusher = new StatusFlusher(60_000);
+            flusher.submit("v1", (c, text) -> record(sent, text));
+            flusher.submit("v2", (c, text) -> record(sent, text));
+            flusher.cancel();
+            flusher.flush();
+            assertEquals(List.of("v1"), sent);
+        }
+    }
+
+    @Test
+    void testUnchangedContentIsNotResent() throws Exception {
+        List<String> sent = new ArrayList<>();
+        try (MockedStatic<TelegramClientService> mockedService = mockStatic(TelegramClientService.class)) {
+            mockedService.when(TelegramClientService::getInstance).thenReturn(mock(TelegramClient.class));
+            StatusFlusher flusher = new StatusFlusher(0);
+            flusher.markSent(StatusRenderer.hash("v1"));
+            flusher.submit("v1", (c, text) -> record(sent, text));
+            assertTrue(sent.isEmpty());
+            flusher.submit("v2", (c, text) -> record(sent, text));
+            flusher.submit("v2", (c, text) -> record(sent, text));
+            assertEquals(List.of("v2"), sent);
+        }
+    }
+
+    @Test
+    void testDelayedFlushIsHandedToOwner() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        List<Runnable> handedOver = new CopyOnWriteArrayList<>();
+        try (MockedStatic<TelegramClientService> mockedService = mockStatic(TelegramClientService.class)) {
+            mockedService.when(TelegramClientService::getInstance).thenReturn(mock(TelegramClient.class));
+            StatusFlusher flusher = new StatusFlusher(50, handedOver::add);
+            flusher.submit("v1", (c, text) -> record(sent, text));
+            flusher.submit("v2", (c, text) -> record(sent, text));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (handedOver.isEmpty() && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            // The timer only hands the flush over; the owner sends it
+            assertEquals(1, handedOver.size());
+            assertEquals(List.of("v1"), sent);
+            handedOver.get(0).run();
+            assertEquals(List.of("v1", "v2"), sent);
+        }
+    }
+
+    @Test
+    void testFailedEditIsSentAgain() throws Exception {
+        List<String> sent = new ArrayList<>();
+        try (MockedStatic<TelegramClientService> mockedService = mockStatic(TelegramClientService.class)) {
+            mockedService.when(TelegramClientService::getInstance).thenReturn(mock(TelegramClient.class));
+            StatusFlusher flusher = new StatusFlusher(0);
+            flusher.submit("v1", (c, text) -> {
+                sent.add(text);
+                return CompletableFuture.failedFuture(new IllegalStateException("timeout"));
+            });
+            // The failure is reported through the future, so the same content is not treated as delivered
+            flusher.submit("v1", (c, text) -> record(sent, text));
+            assertEquals(List.of("v1", "v1"), sent);
+        }
+    }
+}
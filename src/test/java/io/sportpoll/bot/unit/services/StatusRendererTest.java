@@ -0,0 +1,77 @@
+package io.sportpoll.bot.unit.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.sportpoll.bot.constants.Messages;
+import io.sportpoll.bot.models.DirectVoters;
+import io.sportpoll.bot.models.Vote;
+import io.sportpoll.bot.models.VoteLedger;
+import io.sportpoll.bot.services.StatusRenderer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatusRendererTest {
+    private StatusRenderer renderer;
+    private DirectVoters directVoters;
+    private VoteLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        renderer = new StatusRenderer();
+        directVoters = new DirectVoters();
+        ledger = new VoteLedger();
+    }
+
+    @Test
+    void testRosterLinesAreNumbered() {
+        directVoters.put(1L, 0, "Alice");
+        ledger.appendDirect(1L);
+        directVoters.put(2L, 1, "Bob");
+        ledger.appendExternal(new Vote(1L, "Alice", "Petro"));
+        ledger.appendExternal(new Vote(1L, "Alice"));
+
+        String status = renderer.render(5, 3, directVoters, ledger);
+
+        assertTrue(status.startsWith(Messages.STATUS_HEADER + Messages.STATUS_POLL_ACTIVE));
+        assertTrue(status.contains(String.format(Messages.STATUS_REMAINING, 2)));
+        assertTrue(status.contains(Messages.STATUS_COMMAND_MINUS));
+        String invited = String.format(Messages.INVITED, "Alice");
+        assertTrue(status.endsWith(Messages.STATUS_VOTE_LIST + "1. Alice\n2. Petro (" + invited + ")\n3. "
+            + Messages.ANONYMOUS_VOTER + " (" + invited + ")\n"));
+        // Negative answers are not listed
+        assertFalse(status.contains("Bob"));
+    }
+
+    @Test
+    void testCompletedPollOmitsInstructions() {
+        directVoters.put(1L, 0, "Alice");
+        ledger.appendDirect(1L);
+        String status = renderer.render(1, 1, directVoters, ledger);
+        assertTrue(status.contains(Messages.STATUS_POLL_COMPLETED));
+        assertTrue(status.contains(String.format(Messages.STATUS_TARGET, 1)));
+        assertFalse(status.contains(Messages.STATUS_HOW_TO_VOTE));
+    }
+
+    @Test
+    void testContentHashTracksOutput() {
+        directVoters.put(1L, 0, "Alice");
+        ledger.appendDirect(1L);
+        String first = renderer.render(5, 1, directVoters, ledger);
+        long firstHash = renderer.contentHash();
+        assertEquals(StatusRenderer.hash(first), firstHash);
+
+        // Re-rendering the same roster yields the same hash
+        assertEquals(first, renderer.render(5, 1, directVoters, ledger));
+        assertEquals(firstHash, renderer.contentHash());
+
+        // A renamed voter regenerates that line
+        directVoters.put(1L, 0, "Alicia");
+        String renamed = renderer.render(5, 1, directVoters, ledger);
+        assertTrue(renamed.contains("1. Alicia\n"));
+        assertNotEquals(firstHash, renderer.contentHash());
+    }
+}
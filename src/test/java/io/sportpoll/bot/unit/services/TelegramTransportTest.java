@@ -0,0 +1,104 @@
+package io.sportpoll.bot.unit.services;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.TelegramUrl;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.sportpoll.bot.services.TelegramTransport;
+import io.sportpoll.bot.services.TelegramTransport.Settings;
+import io.sportpoll.bot.utils.LatencyHistogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TelegramTransportTest {
+    private static final String MESSAGE = "{\"ok\":true,\"result\":{\"message_id\":7,\"date\":1700000000,"
+        + "\"chat\":{\"id\":-100,\"type\":\"group\"}}}";
+
+    private HttpServer server;
+    private final List<String> paths = Collections.synchronizedList(new ArrayList<>());
+
+    // Stands in for a local Bot API server
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            paths.add(exchange.getRequestURI().getPath());
+            byte[] body = MESSAGE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private Settings settings(String apiUrl) {
+        return new Settings(2, 1000, 3, 1000, 1000, false, apiUrl);
+    }
+
+    @Test
+    void testSendsToConfiguredServerAndRecordsLatency() throws Exception {
+        TelegramTransport transport = new TelegramTransport(settings("http://127.0.0.1:"
+            + server.getAddress().getPort()));
+        TelegramClient client = transport.createClient("123:token");
+        for (int i = 0; i < 3; i++) {
+            Message message = client.execute(SendMessage.builder().chatId(-100L).text("hi").build());
+            assertEquals(7, (int) message.getMessageId());
+        }
+        client.executeAsync(SendMessage.builder().chatId(-100L).text("async").build()).join();
+
+        assertEquals("/bot123:token/sendmessage", paths.get(0));
+        LatencyHistogram.Snapshot latency = transport.getLatencies().get("sendmessage");
+        assertEquals(4, latency.count());
+        assertTrue(latency.p50Millis() <= latency.p99Millis() && latency.p99Millis() <= latency.maxMillis());
+        assertTrue(transport.summary().contains("sendmessage"));
+    }
+
+    @Test
+    void testDefaultsToPublicApi() {
+        assertSame(TelegramUrl.DEFAULT_URL, new TelegramTransport(settings(null)).telegramUrl());
+        TelegramUrl local = new TelegramTransport(settings("http://localhost:8081")).telegramUrl();
+        assertEquals("http", local.getSchema());
+        assertEquals("localhost", local.getHost());
+        assertEquals(8081, local.getPort());
+        assertEquals(443, new TelegramTransport(settings("https://bots.example.org")).telegramUrl().getPort());
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++)
+            histogram.record(3_000_000L);
+        for (int i = 0; i < 9; i++)
+            histogram.record(80_000_000L);
+        histogram.record(1_200_000_000L);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(5, snapshot.p50Millis());
+        assertEquals(5, snapshot.p90Millis());
+        assertEquals(100, snapshot.p99Millis());
+        assertEquals(1200, snapshot.maxMillis());
+        assertEquals(0, new LatencyHistogram().snapshot().p99Millis());
+    }
+}
@@ -0,0 +1,153 @@
+package io.sportpoll.bot.unit.services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.chat.Chat;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.polls.PollAnswer;
+
+import io.sportpoll.bot.persistance.VoteEvent;
+import io.sportpoll.bot.persistance.VoteJournal;
+import io.sportpoll.bot.services.PollRegistry;
+import io.sportpoll.bot.services.UpdateDispatcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UpdateDispatcherTest {
+    private static final long CHAT = -1001234567890L;
+
+    @TempDir
+    File tempDir;
+
+    private static Update message(int updateId, long chatId) {
+        Message message = new Message();
+        message.setChat(Chat.builder().id(chatId).type("group").build());
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setMessage(message);
+        return update;
+    }
+
+    private static Update pollAnswer(int updateId, String pollId, long userId) {
+        PollAnswer answer = new PollAnswer();
+        answer.setPollId(pollId);
+        answer.setUser(User.builder().id(userId).firstName("U" + userId).isBot(false).build());
+        answer.setOptionIds(List.of(0));
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setPollAnswer(answer);
+        return update;
+    }
+
+    @Test
+    void testKeepsOrderWithinEachChat() throws Exception {
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        UpdateDispatcher dispatcher = new UpdateDispatcher(4, 8, update -> seen
+            .computeIfAbsent(update.getMessage().getChatId(), chat -> Collections.synchronizedList(new ArrayList<>()))
+            .add(update.getUpdateId()));
+        for (int i = 0; i < 2000; i++)
+            dispatcher.submit(message(i, -100 - i % 10));
+        dispatcher.stop(10, TimeUnit.SECONDS);
+
+        assertEquals(10, seen.size());
+        seen.forEach((chat, ids) -> {
+            assertEquals(200, ids.size());
+            for (int i = 1; i < ids.size(); i++)
+                assertTrue(ids.get(i - 1) < ids.get(i), "chat " + chat + " out of order: " + ids);
+        });
+        assertEquals(2000, dispatcher.getMetrics().processed());
+    }
+
+    @Test
+    void testPollAnswersShareTheirChatsPartition() throws Exception {
+        // Gives the chat's poll a Telegram id without a client
+        PollRegistry registry = new PollRegistry(CHAT);
+        VoteJournal journal = new VoteJournal(new File(tempDir, "votes.journal"), 0);
+        journal.replay((seq, event) -> {});
+        journal.append(new VoteEvent.PollCreated(CHAT, 10, 5, "poll", 6));
+        registry.attachJournal(journal);
+
+        Set<String> chatWorkers = ConcurrentHashMap.newKeySet();
+        Set<String> strayWorkers = ConcurrentHashMap.newKeySet();
+        UpdateDispatcher dispatcher = new UpdateDispatcher(16, 64, registry, update -> {
+            if (update.hasPollAnswer() && !"poll".equals(update.getPollAnswer().getPollId()))
+                strayWorkers.add(Thread.currentThread().getName());
+            else chatWorkers.add(Thread.currentThread().getName());
+        });
+        dispatcher.submit(message(1, CHAT));
+        for (int i = 0; i < 50; i++) {
+            dispatcher.submit(pollAnswer(2 + i, "poll", 1000 + i));
+            dispatcher.submit(pollAnswer(100 + i, "unknown", 1000 + i));
+        }
+        dispatcher.stop(10, TimeUnit.SECONDS);
+        journal.close();
+        // Answers from fifty users were handled in order with the chat's messages
+        assertEquals(1, chatWorkers.size());
+        // Answers to an unknown poll fall back to the user and spread out
+        assertTrue(strayWorkers.size() > 1);
+    }
+
+    @Test
+    void testSlowChatDoesNotHoldOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+        UpdateDispatcher dispatcher = new UpdateDispatcher(16, 8, update -> {
+            try {
+                if (update.getMessage().getChatId() == -1L) release.await();
+                else otherDone.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.submit(message(1, -1L));
+        // Find a chat that lands on another partition; a shared one would queue behind the blocked update
+        boolean done = false;
+        for (long chat = -2; chat > -50 && !done; chat--) {
+            dispatcher.submit(message(2, chat));
+            done = otherDone.await(200, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(done);
+        release.countDown();
+        dispatcher.stop(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testFullPartitionPushesBack() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        UpdateDispatcher dispatcher = new UpdateDispatcher(1, 2, update -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.submit(message(1, -1L));
+        started.await();
+        assertTrue(dispatcher.submit(message(2, -1L), 1, TimeUnit.SECONDS));
+        assertTrue(dispatcher.submit(message(3, -2L), 1, TimeUnit.SECONDS));
+        assertFalse(dispatcher.submit(message(4, -3L), 50, TimeUnit.MILLISECONDS));
+        assertEquals(2, dispatcher.getMetrics().queued());
+
+        release.countDown();
+        assertTrue(dispatcher.submit(message(4, -3L), 1, TimeUnit.SECONDS));
+        dispatcher.stop(5, TimeUnit.SECONDS);
+        assertEquals(4, dispatcher.getMetrics().processed());
+        assertFalse(dispatcher.submit(message(5, -1L), 1, TimeUnit.SECONDS));
+    }
+}
@@ -4,6 +4,7 @@ import io.sportpoll.bot.config.Config;
 import io.sportpoll.bot.config.WeeklyPollConfig;
 import io.sportpoll.bot.persistance.DataStore;
 import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
 import io.sportpoll.bot.services.TelegramClientService;
 import io.sportpoll.bot.services.WeeklyPollScheduler;
 import io.sportpoll.bot.unit.utils.TestUtils;
@@ -169,11 +170,14 @@ class WeeklyPollSchedulerTest {
         PollManager realPollManager) throws TelegramApiException {
         DataStore dataStore = mock(DataStore.class);
         TelegramClient telegramClient = mock(TelegramClient.class);
+        TestUtils.forwardAsyncCalls(telegramClient);
         Message mockMessage = mock(Message.class);
 
         mockedDataStore.when(DataStore::getInstance).thenReturn(dataStore);
         mockedTelegram.when(TelegramClientService::getInstance).thenReturn(telegramClient);
-        when(dataStore.get(PollManager.class)).thenReturn(realPollManager);
+        PollRegistry pollRegistry = new PollRegistry(realPollManager.getChatId());
+        pollRegistry.register(realPollManager.getChatId(), realPollManager);
+        when(dataStore.get(PollRegistry.class)).thenReturn(pollRegistry);
         when(dataStore.get(WeeklyPollConfig.class)).thenReturn(config);
         when(mockMessage.getMessageId()).thenReturn(12345);
         when(telegramClient.execute(any(SendPoll.class))).thenReturn(mockMessage);
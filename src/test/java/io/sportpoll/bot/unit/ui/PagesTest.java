@@ -7,6 +7,8 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKe
 import io.sportpoll.bot.ui.Pages;
 import io.sportpoll.bot.constants.UIText;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -56,7 +58,7 @@ class PagesTest {
         assertEquals(2, keyboardWithoutPoll.getKeyboard().size());
 
         assertEquals(2, keyboardWithPoll.getKeyboard().get(0).size());
-        assertEquals(1, keyboardWithPoll.getKeyboard().get(1).size());
+        assertEquals(2, keyboardWithPoll.getKeyboard().get(1).size());
 
         InlineKeyboardButton createButton = keyboardWithPoll.getKeyboard().get(0).get(0);
         assertEquals(UIText.BUTTON_CREATE_POLL, createButton.getText());
@@ -71,6 +73,30 @@ class PagesTest {
         assertEquals("main:weekly", weeklyButton.getCallbackData());
     }
 
+    @Test
+    void testMainMenuPageWithGroupSelection() {
+        String text = Pages.MainMenuPage.getText(false, -100123L);
+        assertTrue(text.startsWith(UIText.MAIN_MENU_TITLE));
+        assertTrue(text.contains("-100123"));
+
+        InlineKeyboardMarkup keyboard = Pages.MainMenuPage.getKeyboard(false, true);
+        assertEquals(3, keyboard.getKeyboard().size());
+        InlineKeyboardButton groupButton = keyboard.getKeyboard().get(2).get(0);
+        assertEquals(UIText.BUTTON_SELECT_GROUP, groupButton.getText());
+        assertEquals("main:group", groupButton.getCallbackData());
+    }
+
+    @Test
+    void testGroupPageGetKeyboard() {
+        InlineKeyboardMarkup keyboard = Pages.GroupPage.getKeyboard(List.of(-100L, -200L), -200L);
+        // One row per group plus the back button
+        assertEquals(3, keyboard.getKeyboard().size());
+        assertEquals("-100", keyboard.getKeyboard().get(0).get(0).getText());
+        assertEquals("group:-100", keyboard.getKeyboard().get(0).get(0).getCallbackData());
+        assertEquals(String.format(UIText.GROUP_SELECTED, -200L), keyboard.getKeyboard().get(1).get(0).getText());
+        assertEquals("main:menu", keyboard.getKeyboard().get(2).get(0).getCallbackData());
+    }
+
     @Test
     void testCreatePollPageGetText() {
         String result = Pages.CreatePollPage.getText("Test Question?", "Yes Option", "No Option", 10);
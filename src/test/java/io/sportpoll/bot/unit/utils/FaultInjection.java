@@ -0,0 +1,212 @@
+package io.sportpoll.bot.unit.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.sportpoll.bot.persistance.SnapshotFile;
+
+// Crash injection for the file layer of DataStore. A CrashingSnapshotFile stops a write after a byte budget or
+// before a numbered rename and throws, the way a killed process would leave the files: nothing is rolled back.
+public final class FaultInjection {
+
+    private FaultInjection() {
+    }
+
+    public static final class SimulatedCrash extends IOException {
+        public SimulatedCrash(String message) {
+            super(message);
+        }
+    }
+
+    // Where a write dies: after this many bytes reached the temp file, or before the given rename (0 moves the
+    // current file to .prev, 1 moves the temp file into place)
+    public record CrashPoint(long afterBytes, int beforeMove) {
+        public static CrashPoint atByte(long offset) {
+            return new CrashPoint(offset, Integer.MAX_VALUE);
+        }
+
+        public static CrashPoint beforeMove(int move) {
+            return new CrashPoint(Long.MAX_VALUE, move);
+        }
+
+        // Every byte offset of a write of this size, then every rename it performs
+        public static List<CrashPoint> all(long bytes, int moves) {
+            List<CrashPoint> points = new ArrayList<>();
+            for (long offset = 0; offset < bytes; offset++)
+                points.add(atByte(offset));
+            for (int move = 0; move < moves; move++)
+                points.add(beforeMove(move));
+            return points;
+        }
+    }
+
+    // Counts what the writes through it do; once armed, the first write to reach the crash point throws
+    public static class CrashingSnapshotFile extends SnapshotFile {
+        private CrashPoint armed;
+        private long bytes;
+        private int moves;
+
+        public synchronized void arm(CrashPoint point) {
+            this.armed = point;
+            this.bytes = 0;
+            this.moves = 0;
+        }
+
+        public synchronized void disarm() {
+            this.armed = null;
+        }
+
+        public synchronized long bytesWritten() {
+            return bytes;
+        }
+
+        public synchronized int moves() {
+            return moves;
+        }
+
+        @Override
+        protected FileChannel openForWrite(Path path) throws IOException {
+            return new CrashingChannel(super.openForWrite(path), this);
+        }
+
+        @Override
+        protected void move(Path source, Path target) throws IOException {
+            synchronized (this) {
+                if (armed != null && moves == armed.beforeMove())
+                    throw new SimulatedCrash("Crashed before moving " + source.getFileName());
+                moves++;
+            }
+            super.move(source, target);
+        }
+
+        // How many of the requested bytes may still be written before the crash point
+        private synchronized int allow(int requested) {
+            long left = armed == null ? Long.MAX_VALUE : armed.afterBytes() - bytes;
+            int allowed = (int) Math.max(0, Math.min(requested, left));
+            bytes += allowed;
+            return allowed;
+        }
+    }
+
+    // Writes go through the byte budget; reads and the rest are passed to the real channel
+    private static final class CrashingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final CrashingSnapshotFile owner;
+
+        CrashingChannel(FileChannel delegate, CrashingSnapshotFile owner) {
+            this.delegate = delegate;
+            this.owner = owner;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int requested = src.remaining();
+            int allowed = owner.allow(requested);
+            ByteBuffer prefix = src.slice(src.position(), allowed);
+            while (prefix.hasRemaining())
+                delegate.write(prefix);
+            src.position(src.position() + allowed);
+            if (allowed < requested) throw new SimulatedCrash("Crashed after " + owner.bytesWritten() + " bytes");
+            return allowed;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            long written = 0;
+            for (int i = offset; i < offset + length; i++)
+                written += write(srcs[i]);
+            return written;
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            long saved = delegate.position();
+            delegate.position(position);
+            try {
+                return write(src);
+            } finally {
+                delegate.position(saved);
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            throw new UnsupportedOperationException("transferFrom bypasses the crash point");
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            throw new UnsupportedOperationException("Mapped writes bypass the crash point");
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -10,11 +10,13 @@ import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.polls.PollAnswer;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 import io.sportpoll.bot.config.Config;
 import io.sportpoll.bot.services.PollManager;
+import io.sportpoll.bot.services.PollRegistry;
 import io.sportpoll.bot.services.TelegramClientService;
 import io.sportpoll.bot.utils.MessageUtils;
 
@@ -33,11 +35,15 @@ public class MessageUtilsTest {
     private TelegramClient telegramClient;
     @Mock
     private PollManager pollManager;
+    private PollRegistry pollRegistry;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        TestUtils.forwardAsyncCalls(telegramClient);
         Config.setInstance(TestUtils.createTestConfig());
+        pollRegistry = new PollRegistry(-1001234567890L);
+        pollRegistry.register(-1001234567890L, pollManager);
     }
 
     @Test
@@ -77,7 +83,7 @@ public class MessageUtilsTest {
 
     @Test
     void testRouteUpdateWithNullUpdate() throws TelegramApiException {
-        assertDoesNotThrow(() -> MessageUtils.routeUpdate(null, pollManager));
+        assertDoesNotThrow(() -> MessageUtils.routeUpdate(null, pollRegistry));
         verifyNoInteractions(pollManager);
     }
 
@@ -85,7 +91,25 @@ public class MessageUtilsTest {
     void testRouteUpdateWithPollAnswer() throws TelegramApiException {
         Update update = mock(Update.class);
         when(update.hasPollAnswer()).thenReturn(true);
-        MessageUtils.routeUpdate(update, pollManager);
+        when(update.getPollAnswer()).thenReturn(mock(PollAnswer.class));
+        MessageUtils.routeUpdate(update, pollRegistry);
         verify(pollManager, times(1)).handleDirectVote(update);
     }
+
+    @Test
+    void testRouteUpdateResolvesPollByChatId() throws TelegramApiException {
+        PollManager otherPollManager = mock(PollManager.class);
+        pollRegistry.register(-1009876543210L, otherPollManager);
+        Update update = TestUtils.createMockUpdate("/+", -1009876543210L, 555555555L);
+        MessageUtils.routeUpdate(update, pollRegistry);
+        verify(otherPollManager, times(1)).handleVoteCommand(update);
+        verifyNoInteractions(pollManager);
+    }
+
+    @Test
+    void testRouteUpdateIgnoresUnknownGroup() throws TelegramApiException {
+        Update update = TestUtils.createMockUpdate("/+", -1005555555555L, 555555555L);
+        MessageUtils.routeUpdate(update, pollRegistry);
+        verifyNoInteractions(pollManager);
+    }
 }
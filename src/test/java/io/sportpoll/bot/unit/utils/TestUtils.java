@@ -6,12 +6,15 @@ import org.telegram.telegrambots.meta.api.objects.User;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.polls.PollAnswer;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 import io.sportpoll.bot.SportPollBot;
 import io.sportpoll.bot.config.Config;
 import io.sportpoll.bot.services.PollManager;
 import io.sportpoll.bot.services.WeeklyPollScheduler;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.io.File;
 import static org.mockito.ArgumentMatchers.any;
@@ -20,6 +23,23 @@ import static org.mockito.Mockito.*;
 public class TestUtils {
     private static User cachedUser = null;
 
+    // Routes executeAsync through the execute stubs so tests stub each Telegram method once
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void forwardAsyncCalls(TelegramClient telegramClient) {
+        try {
+            when(telegramClient.executeAsync(any(BotApiMethod.class))).thenAnswer(invocation -> {
+                try {
+                    return CompletableFuture
+                        .completedFuture(telegramClient.execute((BotApiMethod) invocation.getArgument(0)));
+                } catch (Exception e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            });
+        } catch (TelegramApiException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public static Config createTestConfig() {
         return new Config("test_token", List.of(123456789L), -1001234567890L, "INFO");
     }
@@ -137,6 +157,7 @@ public class TestUtils {
 
         public static TelegramMockSetup createBasicMocks() throws Exception {
             TelegramClient telegramClient = mock(TelegramClient.class);
+            forwardAsyncCalls(telegramClient);
             Message mockMessage = mock(Message.class);
             when(mockMessage.getMessageId()).thenReturn(123);
             when(telegramClient.execute(any(org.telegram.telegrambots.meta.api.methods.send.SendMessage.class)))
@@ -72,6 +72,7 @@ class TestUtilsDemo {
     void demonstrateAdminSessionMocking() throws Exception {
         TestUtils.executeWithDataStoreMock(setup -> {
             TelegramClient telegramClient = mock(TelegramClient.class);
+            TestUtils.forwardAsyncCalls(telegramClient);
             Update update = TestUtils.createMockUpdate("/start", 12345L, 67890L);
 
             AdminSession adminSession = new AdminSession(update, telegramClient, pollManager);
@@ -84,6 +85,7 @@ class TestUtilsDemo {
     void demonstrateCallbackHandling() throws Exception {
         TestUtils.executeWithDataStoreMock(setup -> {
             TelegramClient telegramClient = mock(TelegramClient.class);
+            TestUtils.forwardAsyncCalls(telegramClient);
             Update callbackUpdate = TestUtils.createMockCallbackUpdate("main:menu", 12345L, 67890L);
 
             AdminSession adminSession = new AdminSession(callbackUpdate, telegramClient, pollManager);